@@ -1,25 +1,54 @@
 import javax.swing.*;
 import javax.swing.Timer;
 import javax.swing.border.*;
+import javax.swing.event.*;
+import javax.swing.filechooser.FileNameExtensionFilter;
 import javax.swing.text.*;
 import java.awt.*;
 import java.awt.event.*;
 import java.awt.geom.RoundRectangle2D;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
 import java.util.*;
 import java.util.List;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import codecola.CodeColaCli;
+import codecola.ConversionCache;
+import codecola.ConversionMetrics;
+import codecola.ConversionResult;
+import codecola.IncrementalConverter;
+import codecola.RecipeConverter;
+import codecola.RecipeDiff;
+import codecola.RecipeSamples;
+import codecola.RecipeSimulation;
+import codecola.VocabularyWatcher;
 
+@SuppressWarnings("serial")
 class CodeColaGUI extends JFrame {
-    private JTextArea codeInput;
-    private JTextArea output;
+    private JTabbedPane tabs;
     private JButton convertButton;
     private JButton clearButton;
     private JButton loadExampleButton;
+    private JButton openButton;
     private JLabel statusLabel;
+    private JLabel statsLabel;
     private JProgressBar progressBar;
-    private Map<String, String> variables;
-    private List<String> recipeSteps;
+    private JCheckBox liveToggle;
+    private int untitledCount = 1;
+    private final RecipeConverter converter = createConverter();
+    private final ConversionCache cache = createCache();
+    // Every tab's conversions, diffs and simulations run on these threads,
+    // one per core. Converting many tabs at once queues the extra work here
+    // instead of starting more threads than there are cores.
+    private final ExecutorService workers = createWorkers();
     
     // Minimalistic color palette
     private static final Color BG_COLOR = new Color(250, 250, 250);
@@ -33,20 +62,23 @@ class CodeColaGUI extends JFrame {
     private static final Color DANGER_COLOR = new Color(220, 53, 69);
     private static final Color HOVER_COLOR = new Color(248, 249, 250);
     
+    // With -Dcodecola.gui.prerender=true buttons and card titles are drawn
+    // from images rendered once per size, see prerender
+    private static final boolean PRERENDER = Boolean.getBoolean("codecola.gui.prerender");
+    
+    // main has set the look and feel by the time this runs
     public CodeColaGUI() {
-        variables = new HashMap<>();
-        recipeSteps = new ArrayList<>();
-        
-        try {
-            UIManager.setLookAndFeel(UIManager.getSystemLookAndFeelClassName());
-        } catch (Exception e) {
-            // Fallback to default
-        }
-        
         initializeComponents();
         setupLayout();
         setupEventHandlers();
         
+        addWindowListener(new WindowAdapter() {
+            @Override
+            public void windowOpened(WindowEvent e) {
+                startWarmUp();
+            }
+        });
+        
         setMinimumSize(new Dimension(800, 500));
         // Changed from MAXIMIZED_BOTH to a smaller default size
         setSize(1000, 600);
@@ -58,26 +90,10 @@ class CodeColaGUI extends JFrame {
         setDefaultCloseOperation(JFrame.EXIT_ON_CLOSE);
         setBackground(BG_COLOR);
         
-        // Text areas with clean styling
-        codeInput = new JTextArea(getDefaultCode());
-        codeInput.setFont(new Font("Consolas", Font.PLAIN, 14));
-        codeInput.setTabSize(4);
-        codeInput.setLineWrap(false);
-        codeInput.setBorder(new EmptyBorder(15, 15, 15, 15));
-        codeInput.setBackground(PANEL_COLOR);
-        codeInput.setForeground(TEXT_COLOR);
-        codeInput.setCaretColor(TEXT_COLOR);
-        codeInput.setSelectionColor(new Color(0, 123, 255, 30));
-        
-        output = new JTextArea();
-        output.setFont(new Font("Segoe UI", Font.PLAIN, 14));
-        output.setEditable(false);
-        output.setLineWrap(true);
-        output.setWrapStyleWord(true);
-        output.setBorder(new EmptyBorder(15, 15, 15, 15));
-        output.setBackground(PANEL_COLOR);
-        output.setForeground(TEXT_COLOR);
-        output.setSelectionColor(new Color(0, 123, 255, 30));
+        // One tab per open document, each with its own input and recipe
+        tabs = new JTabbedPane(JTabbedPane.TOP, JTabbedPane.SCROLL_TAB_LAYOUT);
+        tabs.setFont(new Font("Segoe UI", Font.PLAIN, 13));
+        tabs.setBackground(BG_COLOR);
         
         // Clean, minimal buttons
         convertButton = new MinimalButton("Convert to Recipe", PRIMARY_COLOR);
@@ -92,11 +108,32 @@ class CodeColaGUI extends JFrame {
         loadExampleButton.setFont(new Font("Segoe UI", Font.PLAIN, 14));
         loadExampleButton.setPreferredSize(new Dimension(120, 36));
         
+        openButton = new MinimalButton("Open", PRIMARY_COLOR);
+        openButton.setFont(new Font("Segoe UI", Font.PLAIN, 14));
+        openButton.setPreferredSize(new Dimension(80, 36));
+        
+        // Live preview re-converts shortly after the user stops typing
+        liveToggle = new JCheckBox("Live preview");
+        liveToggle.setFont(new Font("Segoe UI", Font.PLAIN, 13));
+        liveToggle.setForeground(SECONDARY_TEXT);
+        liveToggle.setBackground(BG_COLOR);
+        liveToggle.setFocusPainted(false);
+        
         // Simple status components
         statusLabel = new JLabel("Ready");
         statusLabel.setFont(new Font("Segoe UI", Font.PLAIN, 13));
         statusLabel.setForeground(SECONDARY_TEXT);
         
+        // Running totals of every conversion, refreshed once a second
+        statsLabel = new JLabel();
+        statsLabel.setFont(new Font("Segoe UI", Font.PLAIN, 12));
+        statsLabel.setForeground(SECONDARY_TEXT);
+        statsLabel.setVisible(ConversionMetrics.ENABLED);
+        if (ConversionMetrics.ENABLED) {
+            new Timer(1000, e -> refreshStats()).start();
+            refreshStats();
+        }
+        
         progressBar = new JProgressBar();
         progressBar.setStringPainted(false);
         progressBar.setVisible(false);
@@ -104,6 +141,8 @@ class CodeColaGUI extends JFrame {
         progressBar.setBorderPainted(false);
         progressBar.setBackground(BORDER_COLOR);
         progressBar.setForeground(PRIMARY_COLOR);
+        
+        addTab("Untitled", RecipeSamples.getDefaultCode());
     }
     
     private void setupLayout() {
@@ -136,6 +175,8 @@ class CodeColaGUI extends JFrame {
         // Control panel
         JPanel controlPanel = new JPanel(new FlowLayout(FlowLayout.RIGHT, 10, 0));
         controlPanel.setBackground(BG_COLOR);
+        controlPanel.add(liveToggle);
+        controlPanel.add(openButton);
         controlPanel.add(loadExampleButton);
         controlPanel.add(clearButton);
         controlPanel.add(convertButton); // Added convert button to control panel
@@ -143,44 +184,17 @@ class CodeColaGUI extends JFrame {
         headerPanel.add(titlePanel, BorderLayout.WEST);
         headerPanel.add(controlPanel, BorderLayout.EAST);
         
-        // Content panels with clean cards - SIDE BY SIDE layout
-        JPanel inputCard = new CleanCard("Java Code Input");
-        inputCard.setLayout(new BorderLayout());
-        
-        JScrollPane inputScroll = new JScrollPane(codeInput);
-        inputScroll.setBorder(null);
-        inputScroll.setBackground(PANEL_COLOR);
-        inputScroll.getViewport().setBackground(PANEL_COLOR);
-        
-        inputCard.add(inputScroll, BorderLayout.CENTER);
-        
-        // Output panel
-        JPanel outputCard = new CleanCard("Recipe Output");
-        outputCard.setLayout(new BorderLayout());
-        
-        JScrollPane outputScroll = new JScrollPane(output);
-        outputScroll.setBorder(null);
-        outputScroll.setBackground(PANEL_COLOR);
-        outputScroll.getViewport().setBackground(PANEL_COLOR);
-        
-        outputCard.add(outputScroll, BorderLayout.CENTER);
-        
-        // Content layout - Changed from GridLayout(2, 1) to GridLayout(1, 2) for side-by-side
-        JPanel contentPanel = new JPanel(new GridLayout(1, 2, 15, 0));
-        contentPanel.setBackground(BG_COLOR);
-        contentPanel.add(inputCard);
-        contentPanel.add(outputCard);
-        
         // Footer
         JPanel footerPanel = new JPanel(new BorderLayout(10, 0));
         footerPanel.setBackground(BG_COLOR);
         footerPanel.setBorder(new EmptyBorder(10, 0, 0, 0));
         footerPanel.add(statusLabel, BorderLayout.WEST);
         footerPanel.add(progressBar, BorderLayout.CENTER);
+        footerPanel.add(statsLabel, BorderLayout.EAST);
         
         // Assembly - Removed convert button panel since it's now in header
         mainContainer.add(headerPanel, BorderLayout.NORTH);
-        mainContainer.add(contentPanel, BorderLayout.CENTER);
+        mainContainer.add(tabs, BorderLayout.CENTER);
         
         add(mainContainer, BorderLayout.CENTER);
         add(footerPanel, BorderLayout.SOUTH);
@@ -190,6 +204,10 @@ class CodeColaGUI extends JFrame {
         convertButton.addActionListener(e -> convertCodeWithProgress());
         clearButton.addActionListener(e -> clearAll());
         loadExampleButton.addActionListener(e -> loadExample());
+        openButton.addActionListener(e -> openFile());
+        // Only user clicks; switching tabs sets the box without toggling anything
+        liveToggle.addActionListener(e -> toggleLivePreview());
+        tabs.addChangeListener(e -> showSelectedTab());
         
         // Keyboard shortcuts
         InputMap inputMap = getRootPane().getInputMap(JComponent.WHEN_IN_FOCUSED_WINDOW);
@@ -203,275 +221,605 @@ class CodeColaGUI extends JFrame {
             }
         });
         
-        inputMap.put(KeyStroke.getKeyStroke(KeyEvent.VK_F1, 0), "help");
-        actionMap.put("help", new AbstractAction() {
+        inputMap.put(KeyStroke.getKeyStroke(KeyEvent.VK_F5, InputEvent.SHIFT_DOWN_MASK), "convertAll");
+        actionMap.put("convertAll", new AbstractAction() {
             @Override
             public void actionPerformed(ActionEvent e) {
-                showHelp();
+                convertAllTabs();
             }
         });
-    }
-    
-    private void convertCodeWithProgress() {
-        progressBar.setVisible(true);
-        progressBar.setIndeterminate(true);
-        convertButton.setEnabled(false);
-        statusLabel.setText("Converting code...");
-        statusLabel.setForeground(WARNING_COLOR.darker());
         
-        SwingWorker<String, Void> worker = new SwingWorker<String, Void>() {
+        inputMap.put(KeyStroke.getKeyStroke(KeyEvent.VK_F6, 0), "changes");
+        actionMap.put("changes", new AbstractAction() {
             @Override
-            protected String doInBackground() throws Exception {
-                Thread.sleep(500); // Simulate processing time
-                return convertCode();
+            public void actionPerformed(ActionEvent e) {
+                selectedTab().showChanges();
             }
-            
+        });
+        
+        inputMap.put(KeyStroke.getKeyStroke(KeyEvent.VK_F7, 0), "simulate");
+        actionMap.put("simulate", new AbstractAction() {
             @Override
-            protected void done() {
-                try {
-                    String result = get();
-                    output.setText(result);
-                    statusLabel.setText("Conversion completed - " + recipeSteps.size() + " steps found");
-                    statusLabel.setForeground(SUCCESS_COLOR.darker());
-                    
-                } catch (Exception e) {
-                    statusLabel.setText("Error during conversion");
-                    statusLabel.setForeground(DANGER_COLOR.darker());
-                    output.setText("Error during conversion:\n" + e.getMessage());
-                }
-                progressBar.setVisible(false);
-                convertButton.setEnabled(true);
+            public void actionPerformed(ActionEvent e) {
+                selectedTab().showSimulation();
             }
-        };
-        worker.execute();
-    }
-    
-    private String convertCode() {
-        String code = codeInput.getText();
-        variables.clear();
-        recipeSteps.clear();
-        
-        StringBuilder recipe = new StringBuilder();
-        recipe.append("Recipe Generated from Code\n");
-        recipe.append("=".repeat(35)).append("\n\n");
+        });
         
-        String[] lines = code.split("\n");
-        int stepNumber = 1;
+        inputMap.put(KeyStroke.getKeyStroke(KeyEvent.VK_ESCAPE, 0), "cancel");
+        actionMap.put("cancel", new AbstractAction() {
+            @Override
+            public void actionPerformed(ActionEvent e) {
+                selectedTab().cancelConversion();
+            }
+        });
         
-        for (int i = 0; i < lines.length; i++) {
-            String line = lines[i].trim();
-            if (line.isEmpty() || line.startsWith("//") || line.startsWith("/*") || line.startsWith("*")) {
-                continue;
+        inputMap.put(KeyStroke.getKeyStroke(KeyEvent.VK_T, InputEvent.CTRL_DOWN_MASK), "newTab");
+        actionMap.put("newTab", new AbstractAction() {
+            @Override
+            public void actionPerformed(ActionEvent e) {
+                addTab("Untitled " + ++untitledCount, "");
             }
-            
-            String result = parseLine(line, i + 1);
-            if (!result.isEmpty()) {
-                recipe.append(String.format("%d. %s\n", stepNumber++, result));
-                recipeSteps.add(result);
+        });
+        
+        inputMap.put(KeyStroke.getKeyStroke(KeyEvent.VK_W, InputEvent.CTRL_DOWN_MASK), "closeTab");
+        actionMap.put("closeTab", new AbstractAction() {
+            @Override
+            public void actionPerformed(ActionEvent e) {
+                closeTab(selectedTab());
             }
-        }
+        });
         
-        if (recipeSteps.isEmpty()) {
-            recipe.append("No convertible instructions found!\n");
-            recipe.append("Make sure your code uses Java syntax.\n");
-        } else {
-            recipe.append("\nRecipe completed!\n");
-            recipe.append("=".repeat(35)).append("\n");
-            recipe.append("Statistics:\n");
-            recipe.append("   - Ingredients found: ").append(variables.size()).append("\n");
-            recipe.append("   - Processing steps: ").append(recipeSteps.size()).append("\n");
-            recipe.append("   - Estimated time: ").append(recipeSteps.size() * 2).append(" minutes\n");
-        }
+        inputMap.put(KeyStroke.getKeyStroke(KeyEvent.VK_O, InputEvent.CTRL_DOWN_MASK), "open");
+        actionMap.put("open", new AbstractAction() {
+            @Override
+            public void actionPerformed(ActionEvent e) {
+                openFile();
+            }
+        });
         
-        return recipe.toString();
+        inputMap.put(KeyStroke.getKeyStroke(KeyEvent.VK_F1, 0), "help");
+        actionMap.put("help", new AbstractAction() {
+            @Override
+            public void actionPerformed(ActionEvent e) {
+                showHelp();
+            }
+        });
     }
     
-    private String parseLine(String line, int lineNumber) {
-        try {
-            if (line.matches("(int|double|float|long)\\s+\\w+\\s*=\\s*[\\d.]+;")) {
-                return parseNumericVariable(line);
-            } else if (line.matches("String\\s+\\w+\\s*=\\s*\"[^\"]*\";")) {
-                return parseStringVariable(line);
-            } else if (line.matches("boolean\\s+\\w+\\s*=\\s*(true|false);")) {
-                return parseBooleanVariable(line);
-            } else if (line.matches("\\w+\\([^)]*\\);")) {
-                return parseMethodCall(line);
-            } else if (line.matches("if\\s*\\([^)]+\\)\\s*\\{?")) {
-                return parseIfStatement(line);
-            } else if (line.matches("for\\s*\\([^)]+\\)\\s*\\{?")) {
-                return parseForLoop(line);
-            } else if (line.matches("while\\s*\\([^)]+\\)\\s*\\{?")) {
-                return parseWhileLoop(line);
-            } else if (line.contains("class ")) {
-                return parseClassDefinition(line);
-            } else if (line.matches("(public|private|protected)?\\s*(static)?\\s*\\w+\\s+\\w+\\([^)]*\\)\\s*\\{?")) {
-                return parseMethodDefinition(line);
-            }
-        } catch (Exception e) {
-            return "Error in line " + lineNumber + ": " + e.getMessage();
-        }
-        return "";
+    private DocumentTab selectedTab() {
+        return (DocumentTab) ((JComponent) tabs.getSelectedComponent()).getClientProperty(DocumentTab.class);
     }
     
-    private String parseNumericVariable(String line) {
-        Pattern pattern = Pattern.compile("(int|double|float|long)\\s+(\\w+)\\s*=\\s*([\\d.]+);");
-        Matcher matcher = pattern.matcher(line);
-        if (matcher.find()) {
-            String type = matcher.group(1);
-            String name = matcher.group(2);
-            String value = matcher.group(3);
-            variables.put(name, value);
-            
-            String unit = getUnitForVariable(name, type);
-            return String.format("Prepare %s %s %s", value, unit, name);
-        }
-        return "";
+    private DocumentTab tabAt(int index) {
+        return (DocumentTab) ((JComponent) tabs.getComponentAt(index)).getClientProperty(DocumentTab.class);
     }
     
-    private String parseStringVariable(String line) {
-        Pattern pattern = Pattern.compile("String\\s+(\\w+)\\s*=\\s*\"([^\"]*)\";");
-        Matcher matcher = pattern.matcher(line);
-        if (matcher.find()) {
-            String name = matcher.group(1);
-            String value = matcher.group(2);
-            variables.put(name, value);
-            return String.format("Select \"%s\" as %s", value, name);
-        }
-        return "";
+    private DocumentTab addTab(String title, String code) {
+        DocumentTab tab = new DocumentTab(code);
+        tabs.addTab(title, tab.panel);
+        tabs.setTabComponentAt(tabs.getTabCount() - 1, tabHeader(title, tab));
+        tabs.setSelectedComponent(tab.panel);
+        return tab;
     }
     
-    private String parseBooleanVariable(String line) {
-        Pattern pattern = Pattern.compile("boolean\\s+(\\w+)\\s*=\\s*(true|false);");
-        Matcher matcher = pattern.matcher(line);
-        if (matcher.find()) {
-            String name = matcher.group(1);
-            String value = matcher.group(2);
-            variables.put(name, value);
-            return String.format("Set %s to %s", name, value.equals("true") ? "on" : "off");
-        }
-        return "";
+    // Tab title with a small close button
+    private JComponent tabHeader(String title, DocumentTab tab) {
+        JPanel header = new JPanel(new FlowLayout(FlowLayout.LEFT, 6, 0));
+        header.setOpaque(false);
+        
+        JLabel titleLabel = new JLabel(title);
+        titleLabel.setFont(new Font("Segoe UI", Font.PLAIN, 13));
+        titleLabel.setForeground(TEXT_COLOR);
+        
+        JButton close = new JButton("×");
+        close.setFont(new Font("Segoe UI", Font.PLAIN, 13));
+        close.setForeground(SECONDARY_TEXT);
+        close.setBorder(new EmptyBorder(0, 2, 0, 2));
+        close.setContentAreaFilled(false);
+        close.setFocusPainted(false);
+        close.setToolTipText("Close (Ctrl+W)");
+        close.addActionListener(e -> closeTab(tab));
+        
+        header.add(titleLabel);
+        header.add(close);
+        return header;
     }
     
-    private String parseMethodCall(String line) {
-        Pattern pattern = Pattern.compile("(\\w+)\\(([^)]*)\\);");
-        Matcher matcher = pattern.matcher(line);
-        if (matcher.find()) {
-            String method = matcher.group(1);
-            String args = matcher.group(2);
-            
-            switch (method.toLowerCase()) {
-                case "boil":
-                    return String.format("Heat %s", formatArguments(args));
-                case "mix":
-                    return String.format("Mix %s", formatArguments(args));
-                case "add":
-                case "addflavor":
-                    return String.format("Add %s", formatArguments(args));
-                case "serve":
-                    return String.format("Serve %s", formatArguments(args));
-                case "wait":
-                    return String.format("Wait %s", formatArguments(args));
-                case "stir":
-                    return String.format("Stir %s", formatArguments(args));
-                default:
-                    return String.format("Execute %s with %s", method, formatArguments(args));
-            }
+    // The window always keeps one tab; closing the last leaves an empty one
+    private void closeTab(DocumentTab tab) {
+        tab.dispose();
+        tabs.remove(tab.panel);
+        if (tabs.getTabCount() == 0) {
+            addTab("Untitled " + ++untitledCount, "");
         }
-        return "";
     }
     
-    private String parseIfStatement(String line) {
-        Pattern pattern = Pattern.compile("if\\s*\\(([^)]+)\\)");
-        Matcher matcher = pattern.matcher(line);
-        if (matcher.find()) {
-            String condition = matcher.group(1);
-            return String.format("If %s, then:", condition);
+    // The footer shows the selected tab's status, progress and live mode
+    private void showSelectedTab() {
+        if (tabs.getSelectedIndex() < 0) {
+            return;
         }
-        return "";
+        DocumentTab tab = selectedTab();
+        statusLabel.setText(tab.status);
+        statusLabel.setForeground(tab.statusColor);
+        statusLabel.setToolTipText(tab.statusTip);
+        progressBar.setVisible(tab.progress >= 0);
+        progressBar.setValue(Math.max(tab.progress, 0));
+        liveToggle.setSelected(tab.live);
     }
     
-    private String parseForLoop(String line) {
-        return "Repeat the following steps:";
+    private void convertCodeWithProgress() {
+        selectedTab().convert();
     }
     
-    private String parseWhileLoop(String line) {
-        Pattern pattern = Pattern.compile("while\\s*\\(([^)]+)\\)");
-        Matcher matcher = pattern.matcher(line);
-        if (matcher.find()) {
-            String condition = matcher.group(1);
-            return String.format("While %s, repeat:", condition);
+    // Queues every tab; the pool runs as many at once as there are cores
+    private void convertAllTabs() {
+        for (int i = 0; i < tabs.getTabCount(); i++) {
+            tabAt(i).convert();
         }
-        return "";
     }
     
-    private String parseClassDefinition(String line) {
-        Pattern pattern = Pattern.compile("class\\s+(\\w+)");
-        Matcher matcher = pattern.matcher(line);
-        if (matcher.find()) {
-            String className = matcher.group(1);
-            return String.format("Start recipe: %s", className);
-        }
-        return "";
+    // Loads the parser and its tables while the user is still looking at the
+    // window, so the first conversion does not have to
+    private void startWarmUp() {
+        Thread warmUp = new Thread(converter::warmUp, "codecola-warmup");
+        warmUp.setDaemon(true);
+        warmUp.setPriority(Thread.MIN_PRIORITY);
+        warmUp.start();
     }
     
-    private String parseMethodDefinition(String line) {
-        Pattern pattern = Pattern.compile("\\w+\\s+(\\w+)\\([^)]*\\)");
-        Matcher matcher = pattern.matcher(line);
-        if (matcher.find()) {
-            String methodName = matcher.group(1);
-            if (!methodName.equals("main")) {
-                return String.format("Define process: %s", methodName);
+    // One open document: its editor, its recipe and the state of converting
+    // it. Tabs share the converter, the cache and the worker threads, and
+    // nothing else, so one tab's conversion never touches another's output.
+    private class DocumentTab {
+        private final JTextArea codeInput;
+        private final JList<String> output;
+        private final RecipeListModel outputLines = new RecipeListModel();
+        private final JPanel panel;
+        // The conversion, diff or simulation whose result the tab is waiting
+        // for; workers it replaced drop their results
+        private SwingWorker<?, ?> job;
+        private String lastConvertedCode;
+        // Created when live preview is first turned on for this tab
+        private IncrementalConverter liveConverter;
+        private Timer liveTimer;
+        private boolean live;
+        
+        // What the footer shows while this tab is selected; no progress bar
+        // when progress is negative
+        private String status = "Ready";
+        private Color statusColor = SECONDARY_TEXT;
+        private String statusTip;
+        private int progress = -1;
+        
+        DocumentTab(String code) {
+            // Text areas with clean styling
+            codeInput = new JTextArea(code);
+            codeInput.setFont(new Font("Consolas", Font.PLAIN, 14));
+            codeInput.setTabSize(4);
+            codeInput.setLineWrap(false);
+            codeInput.setBorder(new EmptyBorder(15, 15, 15, 15));
+            codeInput.setBackground(PANEL_COLOR);
+            codeInput.setForeground(TEXT_COLOR);
+            codeInput.setCaretColor(TEXT_COLOR);
+            codeInput.setSelectionColor(new Color(0, 123, 255, 30));
+            
+            // One list row per recipe line. With a fixed row size the list only
+            // lays out and paints the rows in view, however long the recipe.
+            output = new JList<>(outputLines);
+            output.setFont(new Font("Segoe UI", Font.PLAIN, 14));
+            output.setFixedCellHeight(output.getFontMetrics(output.getFont()).getHeight() + 2);
+            output.setFixedCellWidth(1);
+            output.setBorder(new EmptyBorder(15, 15, 15, 15));
+            output.setBackground(PANEL_COLOR);
+            output.setForeground(TEXT_COLOR);
+            output.setSelectionBackground(new Color(0, 123, 255, 30));
+            output.setSelectionForeground(TEXT_COLOR);
+            outputLines.addListDataListener(new ListDataListener() {
+                @Override
+                public void intervalAdded(ListDataEvent e) {
+                    fitOutputWidth();
+                }
+                
+                @Override
+                public void intervalRemoved(ListDataEvent e) {
+                    fitOutputWidth();
+                }
+                
+                @Override
+                public void contentsChanged(ListDataEvent e) {
+                    fitOutputWidth();
+                }
+            });
+            
+            codeInput.getDocument().addDocumentListener(new DocumentListener() {
+                @Override
+                public void insertUpdate(DocumentEvent e) {
+                    trackEdit(e);
+                }
+                
+                @Override
+                public void removeUpdate(DocumentEvent e) {
+                    trackEdit(e);
+                }
+                
+                @Override
+                public void changedUpdate(DocumentEvent e) {
+                    // Attribute changes don't affect the recipe
+                }
+            });
+            
+            // Content panels with clean cards - SIDE BY SIDE layout
+            JPanel inputCard = new CleanCard("Java Code Input");
+            inputCard.setLayout(new BorderLayout());
+            
+            JScrollPane inputScroll = new JScrollPane(codeInput);
+            inputScroll.setBorder(null);
+            inputScroll.setBackground(PANEL_COLOR);
+            inputScroll.getViewport().setBackground(PANEL_COLOR);
+            
+            inputCard.add(inputScroll, BorderLayout.CENTER);
+            
+            // Output panel
+            JPanel outputCard = new CleanCard("Recipe Output");
+            outputCard.setLayout(new BorderLayout());
+            
+            JScrollPane outputScroll = new JScrollPane(output);
+            outputScroll.setBorder(null);
+            outputScroll.setBackground(PANEL_COLOR);
+            outputScroll.getViewport().setBackground(PANEL_COLOR);
+            
+            outputCard.add(outputScroll, BorderLayout.CENTER);
+            
+            // Content layout - Changed from GridLayout(2, 1) to GridLayout(1, 2) for side-by-side
+            panel = new JPanel(new GridLayout(1, 2, 15, 0));
+            panel.setBackground(BG_COLOR);
+            panel.setBorder(new EmptyBorder(10, 0, 0, 0));
+            panel.add(inputCard);
+            panel.add(outputCard);
+            panel.putClientProperty(DocumentTab.class, this);
+        }
+        
+        private void setStatus(String text, Color color) {
+            status = text;
+            statusColor = color;
+            statusTip = null;
+            if (isSelected()) {
+                statusLabel.setText(text);
+                statusLabel.setForeground(color);
+                statusLabel.setToolTipText(null);
+            }
+        }
+        
+        private void setProgress(int value) {
+            progress = value;
+            if (isSelected()) {
+                progressBar.setVisible(value >= 0);
+                progressBar.setValue(Math.max(value, 0));
+            }
+        }
+        
+        private boolean isSelected() {
+            return tabs.getSelectedComponent() == panel;
+        }
+        
+        // Repeating a request for the text already being converted is a no-op;
+        // a request for different text cancels the running one and starts over
+        private void convert() {
+            String code = codeInput.getText();
+            if (job instanceof ConversionWorker && !job.isDone() && ((ConversionWorker) job).code.equals(code)) {
+                return;
+            }
+            cancelConversion();
+            
+            setProgress(0);
+            setStatus("Converting code...", WARNING_COLOR.darker());
+            outputLines.clear();
+            
+            job = new ConversionWorker(this, code);
+            workers.execute(job);
+        }
+        
+        // Lists the steps that differ between the last converted code and the editor
+        private void showChanges() {
+            if (lastConvertedCode == null) {
+                setStatus("Convert once first; F6 then shows what your edits change", SECONDARY_TEXT);
+                return;
+            }
+            cancelConversion();
+            String oldCode = lastConvertedCode;
+            String newCode = codeInput.getText();
+            setStatus("Comparing with the last conversion...", WARNING_COLOR.darker());
+            
+            job = new SwingWorker<RecipeDiff, Void>() {
+                @Override
+                protected RecipeDiff doInBackground() {
+                    return RecipeDiff.compare(converter, oldCode, newCode);
+                }
+                
+                @Override
+                protected void done() {
+                    if (job != this || isCancelled()) {
+                        return;
+                    }
+                    try {
+                        RecipeDiff diff = get();
+                        outputLines.setText(diff.toString());
+                        output.ensureIndexIsVisible(0);
+                        setStatus("Changes since the last conversion - " + diff.getSummary(), SUCCESS_COLOR.darker());
+                    } catch (Exception e) {
+                        setStatus("Error while comparing", DANGER_COLOR.darker());
+                    }
+                }
+            };
+            workers.execute(job);
+        }
+        
+        // Runs the code in the editor: loops counted, conditions decided
+        private void showSimulation() {
+            cancelConversion();
+            String code = codeInput.getText();
+            setStatus("Simulating recipe...", WARNING_COLOR.darker());
+            
+            job = new SwingWorker<RecipeSimulation, Void>() {
+                @Override
+                protected RecipeSimulation doInBackground() {
+                    return RecipeSimulation.simulate(converter, code);
+                }
+                
+                @Override
+                protected void done() {
+                    if (job != this || isCancelled()) {
+                        return;
+                    }
+                    try {
+                        RecipeSimulation simulation = get();
+                        outputLines.setText(simulation.getText());
+                        output.ensureIndexIsVisible(0);
+                        long steps = simulation.getStepsPerformed();
+                        setStatus("Simulation - " + (steps == RecipeSimulation.UNKNOWN
+                            ? "some counts unknown" : steps + " steps performed"), SUCCESS_COLOR.darker());
+                    } catch (Exception e) {
+                        setStatus("Error while simulating", DANGER_COLOR.darker());
+                    }
+                }
+            };
+            workers.execute(job);
+        }
+        
+        // Cancels the running conversion, diff or simulation, if any
+        private void cancelConversion() {
+            if (job != null && !job.isDone()) {
+                job.cancel(false);
+                setProgress(-1);
+                setStatus(job instanceof ConversionWorker ? "Conversion cancelled" : "Cancelled", SECONDARY_TEXT);
+            }
+            job = null;
+        }
+        
+        // Stops everything the tab has running before it is closed
+        private void dispose() {
+            cancelConversion();
+            if (liveTimer != null) {
+                liveTimer.stop();
+            }
+        }
+        
+        private void clear() {
+            cancelConversion();
+            codeInput.setText("");
+            outputLines.clear();
+            setStatus("Ready", SECONDARY_TEXT);
+        }
+        
+        private void setLive(boolean enabled) {
+            live = enabled;
+            if (enabled) {
+                if (liveConverter == null) {
+                    liveConverter = new IncrementalConverter(converter);
+                    liveTimer = new Timer(150, e -> refreshLivePreview());
+                    liveTimer.setRepeats(false);
+                }
+                liveConverter.reset(codeInput.getText());
+                refreshLivePreview();
+            } else {
+                liveTimer.stop();
+                setStatus("Ready", SECONDARY_TEXT);
+            }
+        }
+        
+        // Hands only the lines touched by this edit to the live converter
+        private void trackEdit(DocumentEvent e) {
+            if (!live) {
+                return;
+            }
+            
+            Element root = codeInput.getDocument().getDefaultRootElement();
+            DocumentEvent.ElementChange change = e.getChange(root);
+            if (change != null) {
+                Element[] added = change.getChildrenAdded();
+                List<String> addedLines = new ArrayList<>(added.length);
+                for (Element line : added) {
+                    addedLines.add(lineText(line));
+                }
+                liveConverter.replaceLines(change.getIndex(), change.getChildrenRemoved().length, addedLines);
+            } else {
+                int index = root.getElementIndex(e.getOffset());
+                liveConverter.replaceLines(index, 1, List.of(lineText(root.getElement(index))));
+            }
+            liveTimer.restart();
+        }
+        
+        private String lineText(Element line) {
+            Document document = codeInput.getDocument();
+            int start = line.getStartOffset();
+            int end = Math.min(line.getEndOffset(), document.getLength());
+            try {
+                String text = document.getText(start, end - start);
+                return text.endsWith("\n") ? text.substring(0, text.length() - 1) : text;
+            } catch (BadLocationException e) {
+                return "";
+            }
+        }
+        
+        private void refreshLivePreview() {
+            cancelConversion();
+            long start = System.nanoTime();
+            outputLines.setText(liveConverter.refresh());
+            output.ensureIndexIsVisible(0);
+            long millis = (System.nanoTime() - start) / 1_000_000;
+            
+            setStatus("Live preview - " + liveConverter.getStepCount() + " steps ("
+                + liveConverter.getParsedLineCount() + " of " + liveConverter.getLineCount()
+                + " lines parsed in " + millis + " ms)", SUCCESS_COLOR.darker());
+        }
+        
+        // Rows share one width, that of the longest line, so the list never has
+        // to measure every row to size itself
+        private void fitOutputWidth() {
+            int width = output.getFontMetrics(output.getFont()).stringWidth(outputLines.getLongestLine()) + 8;
+            if (width != output.getFixedCellWidth()) {
+                output.setFixedCellWidth(width);
             }
         }
-        return "";
     }
     
-    private String formatArguments(String args) {
-        if (args.trim().isEmpty()) {
-            return "everything";
+    // Converts one snapshot of a tab's input on the worker pool, appending the
+    // recipe to that tab's output as it grows. Only the tab's current worker
+    // may touch its UI; a superseded one stops at its next progress report.
+    private class ConversionWorker extends SwingWorker<ConversionResult, String> {
+        private final DocumentTab tab;
+        private final String code;
+        
+        ConversionWorker(DocumentTab tab, String code) {
+            this.tab = tab;
+            this.code = code;
+            addPropertyChangeListener(e -> {
+                if ("progress".equals(e.getPropertyName()) && tab.job == this) {
+                    tab.setProgress((Integer) e.getNewValue());
+                }
+            });
+        }
+        
+        @Override
+        protected ConversionResult doInBackground() {
+            return cache.convert(code, (chunk, charsRead, totalChars) -> {
+                if (isCancelled()) {
+                    throw new CancellationException();
+                }
+                publish(chunk);
+                setProgress(totalChars == 0 ? 100 : (int) (charsRead * 100 / totalChars));
+            });
         }
         
-        for (Map.Entry<String, String> entry : variables.entrySet()) {
-            args = args.replace(entry.getKey(), entry.getValue());
+        @Override
+        protected void process(List<String> chunks) {
+            if (tab.job != this) {
+                return;
+            }
+            StringBuilder text = new StringBuilder();
+            for (String chunk : chunks) {
+                text.append(chunk);
+            }
+            tab.outputLines.append(text.toString());
         }
         
-        args = args.replaceAll("\"", "");
-        return args;
+        @Override
+        protected void done() {
+            if (tab.job != this || isCancelled()) {
+                return;
+            }
+            try {
+                ConversionResult result = get();
+                // A cache hit publishes nothing, and the last chunks may still be queued
+                if (tab.outputLines.getTextLength() != result.getText().length()) {
+                    tab.outputLines.setText(result.getText());
+                }
+                tab.lastConvertedCode = code;
+                tab.setStatus("Conversion completed - " + result.getSteps().size() + " steps found",
+                    SUCCESS_COLOR.darker());
+                tab.statusTip = cache.toString();
+                if (tab.isSelected()) {
+                    statusLabel.setToolTipText(tab.statusTip);
+                }
+            
+            } catch (Exception e) {
+                tab.setStatus("Error during conversion", DANGER_COLOR.darker());
+                tab.outputLines.setText("Error during conversion:\n" + e.getMessage());
+            }
+            tab.setProgress(-1);
+        }
+    }
+    
+    // Custom verbs and units come from -Dcodecola.vocabulary and reload on save
+    private RecipeConverter createConverter() {
+        RecipeConverter recipeConverter = new RecipeConverter();
+        String file = System.getProperty("codecola.vocabulary");
+        if (file != null) {
+            try {
+                VocabularyWatcher.start(Paths.get(file), recipeConverter, System.err);
+            } catch (IOException e) {
+                System.err.println("Using the built-in vocabulary: " + e.getMessage());
+            }
+        }
+        return recipeConverter;
+    }
+    
+    // Recipes stay cached across restarts when -Dcodecola.cache.dir is set
+    private ConversionCache createCache() {
+        String directory = System.getProperty("codecola.cache.dir");
+        if (directory != null) {
+            try {
+                return new ConversionCache(converter, 64, Paths.get(directory));
+            } catch (IOException e) {
+                // Fall back to the memory-only cache
+            }
+        }
+        return new ConversionCache(converter, 64);
+    }
+    
+    // Daemon threads, so open tabs never keep the JVM alive
+    private static ExecutorService createWorkers() {
+        AtomicInteger count = new AtomicInteger();
+        return Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors(), runnable -> {
+            Thread thread = new Thread(runnable, "codecola-worker-" + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
     }
     
-    private String getUnitForVariable(String name, String type) {
-        String lowerName = name.toLowerCase();
-        if (lowerName.contains("water") || lowerName.contains("liquid")) {
-            return "ml";
-        } else if (lowerName.contains("sugar") || lowerName.contains("salt")) {
-            return "g";
-        } else if (lowerName.contains("temp")) {
-            return "°C";
-        } else if (lowerName.contains("time")) {
-            return "minutes";
-        }
-        return type.equals("int") || type.equals("double") ? "units" : "";
+    private void refreshStats() {
+        ConversionMetrics metrics = ConversionMetrics.get();
+        String text = String.format("%,d conversions · %,d lines · %,d steps · %,d errors · p99 %.1f ms",
+            metrics.getConversions(), metrics.getLines(), metrics.getSteps(), metrics.getErrors(),
+            metrics.getConversionP99Millis());
+        if (!text.equals(statsLabel.getText())) {
+            statsLabel.setText(text);
+            statsLabel.setToolTipText("Lines per kind: " + metrics.getConstructCounts()
+                + ", comments skipped: " + metrics.getCommentLines());
+        }
+    }
+    
+    private void toggleLivePreview() {
+        selectedTab().setLive(liveToggle.isSelected());
     }
     
     private void clearAll() {
         int result = JOptionPane.showConfirmDialog(
             this,
-            "Do you really want to clear everything?",
+            "Do you really want to clear this tab?",
             "Confirmation",
             JOptionPane.YES_NO_OPTION,
             JOptionPane.QUESTION_MESSAGE
         );
         
         if (result == JOptionPane.YES_OPTION) {
-            codeInput.setText("");
-            output.setText("");
-            variables.clear();
-            recipeSteps.clear();
-            statusLabel.setText("Ready");
-            statusLabel.setForeground(SECONDARY_TEXT);
+            selectedTab().clear();
         }
     }
     
+    // Each example opens in its own tab and converts right away, so variants
+    // can be compared by switching tabs
     private void loadExample() {
         String[] examples = {
             "Simple Example",
@@ -491,23 +839,50 @@ class CodeColaGUI extends JFrame {
         );
         
         if (choice != null) {
+            String code;
             switch (choice) {
-                case "Simple Example":
-                    codeInput.setText(getDefaultCode());
-                    break;
                 case "Advanced Cola":
-                    codeInput.setText(getAdvancedColaCode());
+                    code = RecipeSamples.getAdvancedColaCode();
                     break;
                 case "Cocktail Recipe":
-                    codeInput.setText(getCocktailCode());
+                    code = RecipeSamples.getCocktailCode();
                     break;
                 case "Coffee Preparation":
-                    codeInput.setText(getCoffeeCode());
+                    code = RecipeSamples.getCoffeeCode();
                     break;
+                default:
+                    code = RecipeSamples.getDefaultCode();
             }
-            statusLabel.setText("Example loaded: " + choice);
-            statusLabel.setForeground(SUCCESS_COLOR.darker());
+            DocumentTab tab = addTab(choice, code);
+            tab.convert();
+        }
+    }
+    
+    // Reads the file on the worker pool and converts it in a new tab
+    private void openFile() {
+        JFileChooser chooser = new JFileChooser();
+        chooser.setFileFilter(new FileNameExtensionFilter("Java source", "java"));
+        if (chooser.showOpenDialog(this) != JFileChooser.APPROVE_OPTION) {
+            return;
         }
+        File file = chooser.getSelectedFile();
+        
+        workers.execute(new SwingWorker<String, Void>() {
+            @Override
+            protected String doInBackground() throws IOException {
+                return Files.readString(file.toPath(), StandardCharsets.UTF_8);
+            }
+            
+            @Override
+            protected void done() {
+                try {
+                    addTab(file.getName(), get()).convert();
+                } catch (Exception e) {
+                    statusLabel.setText("Could not open " + file.getName());
+                    statusLabel.setForeground(DANGER_COLOR.darker());
+                }
+            }
+        });
     }
     
     private void showHelp() {
@@ -516,6 +891,12 @@ class CodeColaGUI extends JFrame {
             
             Keyboard Shortcuts:
             • F5 - Convert code
+            • Shift+F5 - Convert every open tab
+            • F6 - Show recipe changes since the last conversion
+            • F7 - Simulate: count loops and decide conditions
+            • Esc - Cancel a running conversion
+            • Ctrl+T / Ctrl+W - New tab / close tab
+            • Ctrl+O - Open a file in a new tab
             • F1 - Show this help
             
             Supported Java Constructs:
@@ -528,169 +909,196 @@ class CodeColaGUI extends JFrame {
             • Use descriptive variable names
             • Use method names like 'boil', 'mix', 'add'
             • Comments are intelligently ignored
+            • Tick 'Live preview' to convert while you type
+            • Every tab converts on its own, so examples can be compared side by side
             """;
         
         JOptionPane.showMessageDialog(this, helpText, "CodeCola Help", JOptionPane.INFORMATION_MESSAGE);
     }
     
-    private String getDefaultCode() {
-        return """
-            public class Main {
-                public static void main(String[] args) {
-                    int water = 200;
-                    int sugar = 50;
-                    String flavor = "lime";
-                    boolean carbonated = true;
-                    
-                    boil(water);
-                    add(sugar);
-                    addFlavor(flavor);
-                    if (carbonated) {
-                        mix();
-                    }
-                    serve();
-                }
-                
-                public static void boil(int ml) {}
-                public static void add(int grams) {}
-                public static void addFlavor(String flavor) {}
-                public static void mix() {}
-                public static void serve() {}
-            }""";
-    }
     
-    private String getAdvancedColaCode() {
-        return """
-            public class ColaRecipe {
-                public static void main(String[] args) {
-                    int water = 500;
-                    int sugar = 100;
-                    int caramel = 20;
-                    String spices = "vanilla and cinnamon";
-                    int temperature = 80;
-                    
-                    boil(water, temperature);
-                    add(sugar);
-                    stir();
-                    add(caramel);
-                    addFlavor(spices);
-                    
-                    for (int i = 0; i < 5; i++) {
-                        stir();
-                    }
-                    
-                    wait(10);
-                    serve();
-                }
-            }""";
-    }
-    
-    private String getCocktailCode() {
-        return """
-            public class CocktailMixer {
-                public static void main(String[] args) {
-                    int rum = 50;
-                    int lime = 30;
-                    int sugar = 20;
-                    int ice = 100;
-                    boolean garnish = true;
-                    
-                    add(rum);
-                    add(lime);
-                    add(sugar);
-                    mix();
-                    add(ice);
-                    
-                    if (garnish) {
-                        addFlavor("mint leaves");
-                    }
-                    
-                    serve();
-                }
-            }""";
-    }
-    
-    private String getCoffeeCode() {
-        return """
-            public class CoffeeMaker {
-                public static void main(String[] args) {
-                    int water = 200;
-                    int coffee = 15;
-                    int temperature = 95;
-                    String milk = "oat milk";
-                    
-                    boil(water, temperature);
-                    add(coffee);
-                    wait(4);
-                    
-                    if (milk != null) {
-                        add(milk);
-                    }
-                    
-                    stir();
-                    serve();
+    // Recipe text as a list of lines. Appending adds rows at the end without
+    // touching the ones before, so streamed chunks cost only their own size.
+    @SuppressWarnings("serial")
+    private static class RecipeListModel extends AbstractListModel<String> {
+        private final List<String> lines = new ArrayList<>();
+        private String longestLine = "";
+        private int textLength;
+        private boolean lineOpen;
+        
+        @Override
+        public int getSize() {
+            return lines.size();
+        }
+        
+        @Override
+        public String getElementAt(int index) {
+            return lines.get(index);
+        }
+        
+        public int getTextLength() {
+            return textLength;
+        }
+        
+        public String getLongestLine() {
+            return longestLine;
+        }
+        
+        public void setText(String text) {
+            clear();
+            append(text);
+        }
+        
+        public void clear() {
+            int size = lines.size();
+            lines.clear();
+            longestLine = "";
+            textLength = 0;
+            lineOpen = false;
+            if (size > 0) {
+                fireIntervalRemoved(this, 0, size - 1);
+            }
+        }
+        
+        // A chunk may end mid-line; the next one then continues that row
+        public void append(String text) {
+            if (text.isEmpty()) {
+                return;
+            }
+            textLength += text.length();
+            int start = 0;
+            if (lineOpen) {
+                int end = text.indexOf('\n');
+                int last = lines.size() - 1;
+                addLine(last, lines.get(last) + text.substring(0, end < 0 ? text.length() : end));
+                fireContentsChanged(this, last, last);
+                if (end < 0) {
+                    return;
                 }
-            }""";
+                start = end + 1;
+            }
+            int first = lines.size();
+            int end;
+            while ((end = text.indexOf('\n', start)) >= 0) {
+                addLine(-1, text.substring(start, end));
+                start = end + 1;
+            }
+            lineOpen = start < text.length();
+            if (lineOpen) {
+                addLine(-1, text.substring(start));
+            }
+            if (lines.size() > first) {
+                fireIntervalAdded(this, first, lines.size() - 1);
+            }
+        }
+        
+        private void addLine(int index, String line) {
+            if (index < 0) {
+                lines.add(line);
+            } else {
+                lines.set(index, line);
+            }
+            if (line.length() > longestLine.length()) {
+                longestLine = line;
+            }
+        }
     }
     
-    // Minimal button with clean design
+    // Minimal button with clean design. The colours, the cursor and the shape
+    // are made once, so a paint allocates nothing of its own. Hovering is
+    // tracked by the button model, which also repaints when it changes.
+    @SuppressWarnings("serial")
     private static class MinimalButton extends JButton {
-        private Color buttonColor;
-        private boolean isHovered = false;
+        private final Color buttonColor;
+        private final Color hoverColor;
+        private final Color pressedColor;
+        private final RoundRectangle2D.Float shape = new RoundRectangle2D.Float();
+        // Normal, hover and pressed background, with PRERENDER only
+        private final BufferedImage[] backgrounds = new BufferedImage[3];
+        private int backgroundWidth;
+        private int backgroundHeight;
+        private GraphicsConfiguration backgroundConfiguration;
         
         public MinimalButton(String text, Color color) {
             super(text);
             this.buttonColor = color;
+            this.hoverColor = color.brighter();
+            this.pressedColor = color.darker();
             setContentAreaFilled(false);
             setBorderPainted(false);
             setFocusPainted(false);
             setBorder(new EmptyBorder(8, 16, 8, 16));
             setForeground(Color.WHITE);
-            
-            addMouseListener(new MouseAdapter() {
-                @Override
-                public void mouseEntered(MouseEvent e) {
-                    isHovered = true;
-                    setCursor(new Cursor(Cursor.HAND_CURSOR));
-                    repaint();
-                }
-                
-                @Override
-                public void mouseExited(MouseEvent e) {
-                    isHovered = false;
-                    setCursor(new Cursor(Cursor.DEFAULT_CURSOR));
-                    repaint();
-                }
-            });
+            setRolloverEnabled(true);
+            setCursor(Cursor.getPredefinedCursor(Cursor.HAND_CURSOR));
         }
         
         @Override
         protected void paintComponent(Graphics g) {
-            Graphics2D g2 = (Graphics2D) g.create();
-            g2.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+            ButtonModel model = getModel();
+            int state = model.isPressed() ? 2 : model.isRollover() ? 1 : 0;
+            Graphics2D g2 = (Graphics2D) g;
             
+            if (PRERENDER) {
+                BufferedImage background = background(state);
+                if (background != null) {
+                    g2.drawImage(background, 0, 0, getWidth(), getHeight(), null);
+                }
+            } else {
+                Object antialiasing = g2.getRenderingHint(RenderingHints.KEY_ANTIALIASING);
+                Color color = g2.getColor();
+                g2.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+                g2.setColor(state == 2 ? pressedColor : state == 1 ? hoverColor : buttonColor);
+                shape.setRoundRect(0, 0, getWidth(), getHeight(), 6, 6);
+                g2.fill(shape);
+                g2.setColor(color);
+                g2.setRenderingHint(RenderingHints.KEY_ANTIALIASING, antialiasing);
+            }
+            super.paintComponent(g);
+        }
+        
+        // Rendered at the screen's scale on first use, again after a resize or
+        // a move to another screen; null while the button has no size
+        private BufferedImage background(int state) {
             int width = getWidth();
             int height = getHeight();
-            
-            Color bgColor = buttonColor;
-            if (isHovered) {
-                bgColor = buttonColor.brighter();
+            if (width <= 0 || height <= 0) {
+                return null;
             }
-            if (getModel().isPressed()) {
-                bgColor = buttonColor.darker();
+            GraphicsConfiguration configuration = getGraphicsConfiguration();
+            if (width != backgroundWidth || height != backgroundHeight || configuration != backgroundConfiguration) {
+                Arrays.fill(backgrounds, null);
+                backgroundWidth = width;
+                backgroundHeight = height;
+                backgroundConfiguration = configuration;
             }
-            
-            g2.setColor(bgColor);
-            g2.fill(new RoundRectangle2D.Float(0, 0, width, height, 6, 6));
-            
-            g2.dispose();
-            super.paintComponent(g);
+            if (backgrounds[state] == null) {
+                Color color = state == 2 ? pressedColor : state == 1 ? hoverColor : buttonColor;
+                backgrounds[state] = prerender(configuration, width, height, image -> {
+                    image.setColor(color);
+                    image.fill(new RoundRectangle2D.Float(0, 0, width, height, 6, 6));
+                });
+            }
+            return backgrounds[state];
         }
     }
     
-    // Clean card component with minimal styling
+    // Clean card component with minimal styling. The title font and insets
+    // are shared and the title is measured once, so a paint allocates nothing
+    // of its own.
+    @SuppressWarnings("serial")
     private static class CleanCard extends JPanel {
-        private String title;
+        private static final Font TITLE_FONT = new Font("Segoe UI", Font.BOLD, 14);
+        
+        private final String title;
+        private final Insets insets = new Insets(35, 15, 15, 15);
+        // Measured on the first paint, with the antialiasing the title is drawn with
+        private int titleAscent = -1;
+        private int titleHeight;
+        private int titleWidth;
+        // The title text, with PRERENDER only
+        private BufferedImage titleImage;
+        private GraphicsConfiguration titleConfiguration;
         
         public CleanCard(String title) {
             this.title = title;
@@ -704,29 +1112,88 @@ class CodeColaGUI extends JFrame {
         @Override
         protected void paintComponent(Graphics g) {
             super.paintComponent(g);
-            Graphics2D g2 = (Graphics2D) g.create();
+            Graphics2D g2 = (Graphics2D) g;
+            Object antialiasing = g2.getRenderingHint(RenderingHints.KEY_ANTIALIASING);
+            Color color = g2.getColor();
+            Font font = g2.getFont();
             g2.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+            if (titleAscent < 0) {
+                FontMetrics fm = g2.getFontMetrics(TITLE_FONT);
+                titleAscent = fm.getAscent();
+                titleHeight = fm.getHeight();
+                titleWidth = fm.stringWidth(title);
+            }
             
             // Title
-            g2.setColor(TEXT_COLOR);
-            g2.setFont(new Font("Segoe UI", Font.BOLD, 14));
-            FontMetrics fm = g2.getFontMetrics();
-            g2.drawString(title, 15, fm.getAscent() + 5);
+            if (PRERENDER) {
+                GraphicsConfiguration configuration = getGraphicsConfiguration();
+                if (titleImage == null || configuration != titleConfiguration) {
+                    titleConfiguration = configuration;
+                    titleImage = prerender(configuration, titleWidth + 2, titleHeight, image -> {
+                        image.setColor(TEXT_COLOR);
+                        image.setFont(TITLE_FONT);
+                        image.drawString(title, 0, titleAscent);
+                    });
+                }
+                g2.drawImage(titleImage, 15, 5, titleWidth + 2, titleHeight, null);
+            } else {
+                g2.setColor(TEXT_COLOR);
+                g2.setFont(TITLE_FONT);
+                g2.drawString(title, 15, titleAscent + 5);
+            }
             
             // Underline
             g2.setColor(BORDER_COLOR);
-            g2.drawLine(15, fm.getHeight() + 8, getWidth() - 15, fm.getHeight() + 8);
+            g2.drawLine(15, titleHeight + 8, getWidth() - 15, titleHeight + 8);
             
-            g2.dispose();
+            g2.setFont(font);
+            g2.setColor(color);
+            g2.setRenderingHint(RenderingHints.KEY_ANTIALIASING, antialiasing);
         }
         
+        // The same instance every time; reset in case a caller changed it
         @Override
         public Insets getInsets() {
-            return new Insets(35, 15, 15, 15);
+            insets.set(35, 15, 15, 15);
+            return insets;
+        }
+        
+        @Override
+        public Insets getInsets(Insets reuse) {
+            if (reuse == null) {
+                return getInsets();
+            }
+            reuse.set(35, 15, 15, 15);
+            return reuse;
         }
     }
     
+    // A translucent image of width x height at the screen's scale, drawn once
+    // with antialiasing by painter. Remote X11 and VNC sessions keep such an
+    // image on the server, so drawing it again is a copy instead of sending
+    // freshly antialiased pixels over the wire.
+    private static BufferedImage prerender(GraphicsConfiguration configuration, int width, int height,
+            Consumer<Graphics2D> painter) {
+        double scale = configuration != null ? configuration.getDefaultTransform().getScaleX() : 1;
+        int scaledWidth = (int) Math.ceil(width * scale);
+        int scaledHeight = (int) Math.ceil(height * scale);
+        BufferedImage image = configuration != null
+            ? configuration.createCompatibleImage(scaledWidth, scaledHeight, Transparency.TRANSLUCENT)
+            : new BufferedImage(scaledWidth, scaledHeight, BufferedImage.TYPE_INT_ARGB_PRE);
+        Graphics2D g2 = image.createGraphics();
+        g2.scale(scale, scale);
+        g2.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+        painter.accept(g2);
+        g2.dispose();
+        return image;
+    }
+    
     public static void main(String[] args) {
+        if (args.length > 0) {
+            CodeColaCli.main(args);
+            return;
+        }
+        
         System.setProperty("awt.useSystemAAFontSettings", "on");
         System.setProperty("swing.aatext", "true");
         
@@ -0,0 +1,59 @@
+package codecola;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+// Argument substitution as the number of declared ingredients grows. The
+// replaceLoop benchmark is the previous String.replace-per-variable approach,
+// kept here for comparison.
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class FormatArgumentsBenchmark {
+    @Param({"10", "100", "1000", "10000"})
+    public int ingredients;
+    
+    private final RecipeConverter converter = new RecipeConverter();
+    private ConversionContext context;
+    private String args;
+    private final StringBuilder formatted = new StringBuilder();
+    
+    @Setup
+    public void setUp() {
+        context = new ConversionContext();
+        for (int i = 0; i < ingredients; i++) {
+            converter.parseLine("int water" + i + " = " + i + ";", i + 1, context);
+        }
+        args = "water0, water" + (ingredients / 2) + ", water" + (ingredients - 1) + ", \"mint leaves\"";
+    }
+    
+    @Benchmark
+    public StringBuilder trie() {
+        formatted.setLength(0);
+        converter.formatArguments(args, context, formatted);
+        return formatted;
+    }
+    
+    @Benchmark
+    public String replaceLoop() {
+        String replaced = args;
+        for (Map.Entry<String, String> entry : context.variables.entrySet()) {
+            replaced = replaced.replace(entry.getKey(), entry.getValue());
+        }
+        return replaced.replaceAll("\"", "");
+    }
+}
@@ -0,0 +1,55 @@
+package codecola;
+
+import java.util.Random;
+
+// Deterministic adversarial inputs: generated sources with some lines
+// replaced by shapes that are expensive for a regex or a recursive parser,
+// like a modifier followed by a long run of spaces, minified lines, huge
+// literals and deeply nested blocks. Sizes vary over several orders of
+// magnitude so a latency distribution has a real tail.
+final class FuzzedCode {
+    private FuzzedCode() {
+    }
+    
+    static String[] generate(int count, long seed) {
+        Random random = new Random(seed);
+        String[] inputs = new String[count];
+        for (int i = 0; i < count; i++) {
+            String[] lines = SyntheticCode.generate(100 + random.nextInt(900)).split("\n", -1);
+            int mutations = 1 + random.nextInt(4);
+            for (int m = 0; m < mutations; m++) {
+                // Mostly small, sometimes very large
+                int size = 10 << random.nextInt(15);
+                lines[random.nextInt(lines.length)] = mutation(random, size);
+            }
+            inputs[i] = String.join("\n", lines);
+        }
+        return inputs;
+    }
+    
+    private static String mutation(Random random, int size) {
+        switch (random.nextInt(8)) {
+            case 0:
+                return "public" + " ".repeat(size) + "!";
+            case 1:
+                return "x(" + "a".repeat(size) + ");";
+            case 2:
+                return "String s = \"" + "x".repeat(size) + "\";";
+            case 3:
+                return "{".repeat(size);
+            case 4:
+                return "if (a) {\n".repeat(Math.min(size, 20_000));
+            case 5:
+                return "(".repeat(size) + ";";
+            case 6:
+                return "int water = 5; boil(water); ".repeat(size / 28 + 1);
+            default: {
+                StringBuilder noise = new StringBuilder(size);
+                for (int i = 0; i < size; i++) {
+                    noise.append((char) (' ' + random.nextInt(95)));
+                }
+                return noise.toString();
+            }
+        }
+    }
+}
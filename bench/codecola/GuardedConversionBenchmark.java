@@ -0,0 +1,47 @@
+package codecola;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+// Latency distribution of guarded conversions over a fuzzed corpus, one
+// input per call in turn. Read the p0.99, p0.999 and p1.00 rows: the maximum
+// should grow with the largest input only, and stay far below the time
+// limit. Unguarded, some of these inputs overflow the structured backend's
+// stack.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class GuardedConversionBenchmark {
+    @Param({"lines", "structured"})
+    public String backend;
+    
+    private final RecipeConverter converter = new RecipeConverter();
+    private String[] inputs;
+    private int next;
+    
+    @Setup
+    public void setUp() {
+        converter.setLimits(ConversionLimits.SERVICE);
+        inputs = FuzzedCode.generate(500, 42);
+    }
+    
+    @Benchmark
+    public ConversionResult convert() {
+        String code = inputs[next];
+        next = (next + 1) % inputs.length;
+        return backend.equals("lines") ? converter.convert(code) : converter.convertStructured(code);
+    }
+}
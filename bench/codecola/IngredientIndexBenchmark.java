@@ -0,0 +1,57 @@
+package codecola;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+// Queries over an index of many small recipes. total and moreThan scan the
+// row columns once; update re-converts a single recipe, which is what a
+// refresh pays per changed file.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class IngredientIndexBenchmark {
+    @Param({"1000", "10000"})
+    public int recipes;
+    
+    private IngredientIndex index;
+    private String code;
+    
+    @Setup
+    public void setUp() {
+        index = new IngredientIndex(new RecipeConverter());
+        code = SyntheticCode.generate(260);
+        for (int i = 0; i < recipes; i++) {
+            index.update("recipes/Recipe" + i + ".java", code);
+        }
+    }
+    
+    @Benchmark
+    public double total() {
+        return index.total("water0", "ml");
+    }
+    
+    @Benchmark
+    public List<String> moreThan() {
+        return index.recipesUsingMoreThan("sugar0", 50, "g");
+    }
+    
+    @Benchmark
+    public int update() {
+        index.update("recipes/Recipe0.java", code);
+        return index.getRowCount();
+    }
+}
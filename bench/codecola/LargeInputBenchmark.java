@@ -0,0 +1,39 @@
+package codecola;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+// Full conversion of generated inputs, to see how the pipeline scales with size
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class LargeInputBenchmark {
+    @Param({"10000", "100000", "1000000"})
+    public int lines;
+    
+    private final RecipeConverter converter = new RecipeConverter();
+    private String code;
+    
+    @Setup
+    public void setUp() {
+        code = SyntheticCode.generate(lines);
+    }
+    
+    @Benchmark
+    public ConversionResult convert() {
+        return converter.convert(code);
+    }
+}
@@ -0,0 +1,82 @@
+package codecola;
+
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+// Converting a file on disk three ways: read it into a String and split it
+// into lines (what convert(String) used to do), stream it through a Reader,
+// and scan it through a memory mapping. Run with -prof gc to compare the
+// bytes allocated per conversion.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class MappedInputBenchmark {
+    @Param({"100000", "1000000"})
+    public int lines;
+    
+    private final RecipeConverter converter = new RecipeConverter();
+    private Path file;
+    
+    @Setup
+    public void setUp() throws IOException {
+        file = Files.createTempFile("codecola-bench", ".java");
+        Files.writeString(file, SyntheticCode.generate(lines), StandardCharsets.UTF_8);
+    }
+    
+    @TearDown
+    public void tearDown() throws IOException {
+        Files.deleteIfExists(file);
+    }
+    
+    @Benchmark
+    public int split() throws IOException {
+        String code = Files.readString(file, StandardCharsets.UTF_8);
+        String[] codeLines = code.split("\n");
+        ConversionContext context = new ConversionContext(converter.getVocabulary(), false);
+        Writer output = Writer.nullWriter();
+        for (int i = 0; i < codeLines.length; i++) {
+            String line = codeLines[i].trim();
+            if (RecipeConverter.isIgnored(line)) {
+                continue;
+            }
+            CharSequence result = converter.parseLine(line, i + 1, context);
+            if (result.length() > 0) {
+                output.append(String.format("%d. %s\n", ++context.stepCount, result));
+            }
+        }
+        return context.stepCount;
+    }
+    
+    @Benchmark
+    public RecipeStatistics reader() throws IOException {
+        try (Reader reader = new InputStreamReader(Files.newInputStream(file), StandardCharsets.UTF_8)) {
+            return converter.convert(reader, Writer.nullWriter());
+        }
+    }
+    
+    @Benchmark
+    public RecipeStatistics mapped() throws IOException {
+        return converter.convert(file, Writer.nullWriter());
+    }
+}
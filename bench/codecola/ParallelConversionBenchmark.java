@@ -0,0 +1,45 @@
+package codecola;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+// Scaling of one large file over threads; compare against
+// LargeInputBenchmark.convert for the same number of lines. Speedup stops
+// at the machine's core count, and the sequential replay bounds it anyway.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class ParallelConversionBenchmark {
+    @Param({"1", "2", "4", "8", "16"})
+    public int threads;
+    
+    @Param({"1000000"})
+    public int lines;
+    
+    private ParallelConverter converter;
+    private String code;
+    
+    @Setup
+    public void setUp() {
+        converter = new ParallelConverter(new RecipeConverter(), threads);
+        code = SyntheticCode.generate(lines);
+    }
+    
+    @Benchmark
+    public ConversionResult convert() {
+        return converter.convert(code);
+    }
+}
@@ -0,0 +1,70 @@
+package codecola;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+// The individual stages of a conversion: line classification, argument
+// substitution and unit lookup
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ParserBenchmark {
+    private static final String[] LINES = {
+        "int water = 500;",
+        "String spices = \"vanilla and cinnamon\";",
+        "boolean carbonated = true;",
+        "boil(water, temperature);",
+        "if (carbonated) {",
+        "for (int i = 0; i < 5; i++) {",
+        "while (temperature > 40) {",
+        "public class ColaRecipe {",
+        "public static void main(String[] args) {",
+        "}"
+    };
+    
+    private final RecipeConverter converter = new RecipeConverter();
+    private ConversionContext context;
+    private final StringBuilder formatted = new StringBuilder();
+    
+    @Setup
+    public void setUp() {
+        context = new ConversionContext();
+        converter.parseLine("int water = 500;", 1, context);
+        converter.parseLine("int temperature = 80;", 2, context);
+        converter.parseLine("String spices = \"vanilla and cinnamon\";", 3, context);
+    }
+    
+    @Benchmark
+    public void parseLine(Blackhole blackhole) {
+        for (int i = 0; i < LINES.length; i++) {
+            blackhole.consume(converter.parseLine(LINES[i], i + 1, context));
+        }
+    }
+    
+    @Benchmark
+    public StringBuilder formatArguments() {
+        formatted.setLength(0);
+        converter.formatArguments("water, temperature, spices", context, formatted);
+        return formatted;
+    }
+    
+    @Benchmark
+    public void getUnitForVariable(Blackhole blackhole) {
+        blackhole.consume(converter.getUnitForVariable("water", "int"));
+        blackhole.consume(converter.getUnitForVariable("brewTemperature", "double"));
+        blackhole.consume(converter.getUnitForVariable("caramel", "int"));
+    }
+}
@@ -0,0 +1,58 @@
+package codecola;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+// Encoding and decoding typed recipes, against producing the recipe text
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RecipeCodecBenchmark {
+    @Param({"10000", "100000"})
+    public int lines;
+    
+    private Recipe recipe;
+    private byte[] binary;
+    
+    @Setup
+    public void setUp() {
+        recipe = new RecipeConverter().convertToRecipe(SyntheticCode.generate(lines));
+        binary = RecipeCodec.toBinary(recipe);
+        System.out.printf("%n%d steps: text %d bytes, binary %d bytes, json %d bytes%n", recipe.getSteps().size(),
+            recipe.toText().length(), binary.length, RecipeCodec.toJson(recipe).length());
+    }
+    
+    @Benchmark
+    public byte[] encodeBinary() {
+        return RecipeCodec.toBinary(recipe);
+    }
+    
+    @Benchmark
+    public Recipe decodeBinary() throws IOException {
+        return RecipeCodec.fromBinary(binary);
+    }
+    
+    @Benchmark
+    public String encodeJson() {
+        return RecipeCodec.toJson(recipe);
+    }
+    
+    @Benchmark
+    public String renderText() {
+        return recipe.toText();
+    }
+}
@@ -0,0 +1,76 @@
+package codecola;
+
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.lang.reflect.Constructor;
+import java.util.concurrent.TimeUnit;
+import javax.swing.AbstractButton;
+import javax.swing.JComponent;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+// Paints per second of the app's button, hovered button and card, drawn
+// directly or from prerendered images. Run with -prof gc and read
+// gc.alloc.rate.norm as the bytes allocated per paint.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Djava.awt.headless=true")
+public class RepaintBenchmark {
+    @Param({"button", "hoveredButton", "card"})
+    public String widget;
+    
+    @Param({"false", "true"})
+    public boolean prerender;
+    
+    private JComponent component;
+    private BufferedImage canvas;
+    private Graphics2D graphics;
+    
+    @Setup
+    public void setUp() throws Exception {
+        // Read once when CodeColaGUI is loaded, so it has to be set first
+        System.setProperty("codecola.gui.prerender", Boolean.toString(prerender));
+        // The widgets are private to CodeColaGUI, which is in the default
+        // package and cannot be imported
+        if (widget.equals("card")) {
+            Constructor<?> card = Class.forName("CodeColaGUI$CleanCard").getDeclaredConstructor(String.class);
+            card.setAccessible(true);
+            component = (JComponent) card.newInstance("Java Code Input");
+            component.setSize(480, 360);
+        } else {
+            Constructor<?> button = Class.forName("CodeColaGUI$MinimalButton")
+                .getDeclaredConstructor(String.class, Color.class);
+            button.setAccessible(true);
+            component = (JComponent) button.newInstance("Convert to Recipe", new Color(52, 58, 64));
+            component.setSize(component.getPreferredSize());
+            ((AbstractButton) component).getModel().setRollover(widget.equals("hoveredButton"));
+        }
+        canvas = new BufferedImage(component.getWidth(), component.getHeight(), BufferedImage.TYPE_INT_RGB);
+        graphics = canvas.createGraphics();
+    }
+    
+    @TearDown
+    public void tearDown() {
+        graphics.dispose();
+    }
+    
+    @Benchmark
+    public BufferedImage paint() {
+        component.paint(graphics);
+        return canvas;
+    }
+}
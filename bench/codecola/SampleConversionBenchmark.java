@@ -0,0 +1,54 @@
+package codecola;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+// Full conversion of the built-in examples
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SampleConversionBenchmark {
+    @Param({"default", "advancedCola", "cocktail", "coffee"})
+    public String sample;
+    
+    private final RecipeConverter converter = new RecipeConverter();
+    private String code;
+    
+    @Setup
+    public void setUp() {
+        switch (sample) {
+            case "default":
+                code = RecipeSamples.getDefaultCode();
+                break;
+            case "advancedCola":
+                code = RecipeSamples.getAdvancedColaCode();
+                break;
+            case "cocktail":
+                code = RecipeSamples.getCocktailCode();
+                break;
+            case "coffee":
+                code = RecipeSamples.getCoffeeCode();
+                break;
+            default:
+                throw new IllegalArgumentException("Unknown sample: " + sample);
+        }
+    }
+    
+    @Benchmark
+    public ConversionResult convert() {
+        return converter.convert(code);
+    }
+}
@@ -0,0 +1,148 @@
+package codecola;
+
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.Arrays;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// Load test for ConversionServer. Without --url it starts a server on a free
+// localhost port in this JVM. Every client thread sends its share of the
+// requests back to back; latencies are collected after a warm-up round.
+//
+//   java -cp target/benchmarks.jar codecola.ServiceLoadTest --clients 16 --requests 20000
+public class ServiceLoadTest {
+    public static void main(String[] args) throws Exception {
+        String url = null;
+        int clients = 8;
+        int requests = 10000;
+        int maxConcurrent = Runtime.getRuntime().availableProcessors() * 2;
+        int lines = 0;
+        
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "--url":
+                    url = args[++i];
+                    break;
+                case "--clients":
+                    clients = Integer.parseInt(args[++i]);
+                    break;
+                case "--requests":
+                    requests = Integer.parseInt(args[++i]);
+                    break;
+                case "--max-concurrent":
+                    maxConcurrent = Integer.parseInt(args[++i]);
+                    break;
+                case "--lines":
+                    lines = Integer.parseInt(args[++i]);
+                    break;
+                default:
+                    throw new IllegalArgumentException("Unexpected argument: " + args[i]);
+            }
+        }
+        
+        ConversionServer server = null;
+        if (url == null) {
+            // Measured as the serve command runs it
+            CodeColaCli.enableNoDelay();
+            RecipeConverter converter = new RecipeConverter();
+            server = new ConversionServer(new ConversionCache(converter, 256), converter,
+                new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), maxConcurrent, 16 * 1024 * 1024);
+            server.start();
+            url = "http://localhost:" + server.getPort() + "/convert";
+        }
+        
+        // Generated input misses the cache the first time only, so by
+        // default every request sends a different sample to measure parsing
+        String body = lines > 0 ? SyntheticCode.generate(lines) : null;
+        String[] samples = {
+            RecipeSamples.getDefaultCode(), RecipeSamples.getAdvancedColaCode(),
+            RecipeSamples.getCocktailCode(), RecipeSamples.getCoffeeCode()
+        };
+        
+        try {
+            HttpClient client = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+            URI target = URI.create(url);
+            run(client, target, samples, body, clients, Math.max(clients, requests / 10));
+            Result result = run(client, target, samples, body, clients, requests);
+            System.out.println(result.report(clients));
+        } finally {
+            if (server != null) {
+                server.stop();
+            }
+        }
+    }
+    
+    private static Result run(HttpClient client, URI target, String[] samples, String body, int clients,
+            int requests) throws InterruptedException {
+        long[] latencies = new long[requests];
+        AtomicInteger next = new AtomicInteger();
+        AtomicInteger failures = new AtomicInteger();
+        CountDownLatch done = new CountDownLatch(clients);
+        
+        long start = System.nanoTime();
+        for (int c = 0; c < clients; c++) {
+            Thread thread = new Thread(() -> {
+                try {
+                    int index;
+                    while ((index = next.getAndIncrement()) < requests) {
+                        // Unique text per request so the server cache does not answer
+                        String code = body != null ? body : samples[index % samples.length] + "\n// " + index;
+                        HttpRequest request = HttpRequest.newBuilder(target)
+                            .POST(HttpRequest.BodyPublishers.ofString(code))
+                            .build();
+                        long sent = System.nanoTime();
+                        int status;
+                        try {
+                            status = client.send(request, HttpResponse.BodyHandlers.discarding()).statusCode();
+                        } catch (Exception e) {
+                            status = -1;
+                        }
+                        latencies[index] = System.nanoTime() - sent;
+                        if (status != 200) {
+                            failures.incrementAndGet();
+                        }
+                    }
+                } finally {
+                    done.countDown();
+                }
+            });
+            thread.start();
+        }
+        done.await();
+        return new Result(latencies, failures.get(), System.nanoTime() - start);
+    }
+    
+    private static final class Result {
+        private final long[] latencies;
+        private final int failures;
+        private final long elapsedNanos;
+        
+        Result(long[] latencies, int failures, long elapsedNanos) {
+            this.latencies = latencies;
+            this.failures = failures;
+            this.elapsedNanos = elapsedNanos;
+            Arrays.sort(latencies);
+        }
+        
+        private double percentileMillis(double percentile) {
+            int index = (int) Math.ceil(percentile / 100 * latencies.length) - 1;
+            return latencies[Math.max(0, index)] / 1_000_000.0;
+        }
+        
+        String report(int clients) {
+            return String.format("%d requests from %d clients in %.1f ms%n"
+                + "   - Throughput: %.0f req/s%n"
+                + "   - Latency p50: %.2f ms, p99: %.2f ms, max: %.2f ms%n"
+                + "   - Non-200 responses: %d",
+                latencies.length, clients, elapsedNanos / 1_000_000.0,
+                latencies.length * 1_000_000_000.0 / elapsedNanos,
+                percentileMillis(50), percentileMillis(99), latencies[latencies.length - 1] / 1_000_000.0,
+                failures);
+        }
+    }
+}
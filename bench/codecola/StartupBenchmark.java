@@ -0,0 +1,132 @@
+package codecola;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+// Starts CodeCola in fresh JVMs and times them from the outside, once as is
+// and once with an AppCDS archive recorded by a training run first. The CLI
+// mode times "stream" of a built-in sample until the process exits; the GUI
+// mode (needs a display) runs the app under StartupProbe, from this jar, and
+// waits for the first-frame and first-conversion lines it prints.
+//
+//   java -cp target/benchmarks.jar codecola.StartupBenchmark --jar target/codecola-1.0-SNAPSHOT.jar --mode gui
+public class StartupBenchmark {
+    public static void main(String[] args) throws Exception {
+        Path jar = Paths.get("target/codecola-1.0-SNAPSHOT.jar");
+        String mode = "cli";
+        int runs = 10;
+        
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "--jar":
+                    jar = Paths.get(args[++i]);
+                    break;
+                case "--mode":
+                    mode = args[++i];
+                    break;
+                case "--runs":
+                    runs = Integer.parseInt(args[++i]);
+                    break;
+                default:
+                    throw new IllegalArgumentException("Unexpected argument: " + args[i]);
+            }
+        }
+        if (!mode.equals("cli") && !mode.equals("gui")) {
+            throw new IllegalArgumentException("--mode is cli or gui");
+        }
+        // CDS only archives classes loaded from jar files, not from directories
+        if (!Files.isRegularFile(jar)) {
+            throw new IllegalArgumentException("Build the jar first (mvn package): " + jar);
+        }
+        
+        Path work = Files.createTempDirectory("codecola-startup");
+        Path sample = work.resolve("Sample.java");
+        Files.writeString(sample, RecipeSamples.getAdvancedColaCode(), StandardCharsets.UTF_8);
+        Path archive = work.resolve("codecola.jsa");
+        try {
+            // The app's classes still load from its jar; only the probe comes from this one
+            Path probe = Paths.get(StartupBenchmark.class.getProtectionDomain().getCodeSource().getLocation().toURI());
+            List<String> app = mode.equals("cli")
+                ? List.of("-jar", jar.toString(), "stream", sample.toString(), "-")
+                : List.of("-cp", jar + File.pathSeparator + probe, "codecola.StartupProbe");
+            
+            launch(List.of("-XX:ArchiveClassesAtExit=" + archive), app);
+            if (!Files.isRegularFile(archive)) {
+                throw new IllegalStateException("The training run wrote no archive");
+            }
+            
+            // Alternate the two variants so drift on the machine hits both alike
+            long[][] plain = new long[runs][];
+            long[][] withArchive = new long[runs][];
+            launch(List.of(), app);
+            for (int i = 0; i < runs; i++) {
+                plain[i] = launch(List.of(), app);
+                withArchive[i] = launch(List.of("-XX:SharedArchiveFile=" + archive), app);
+            }
+            
+            System.out.printf("%d runs of %s, median (min) in ms%n", runs, mode);
+            report("default", plain, mode);
+            report("AppCDS", withArchive, mode);
+        } finally {
+            Files.deleteIfExists(sample);
+            Files.deleteIfExists(archive);
+            Files.deleteIfExists(work);
+        }
+    }
+    
+    // Milliseconds from launch to the first frame, to the first conversion and to exit
+    private static long[] launch(List<String> jvmOptions, List<String> app) throws IOException, InterruptedException {
+        List<String> command = new ArrayList<>();
+        command.add(Paths.get(System.getProperty("java.home"), "bin", "java").toString());
+        command.addAll(jvmOptions);
+        command.addAll(app);
+        
+        long start = System.nanoTime();
+        Process process = new ProcessBuilder(command).redirectErrorStream(true).start();
+        long firstFrame = -1;
+        long firstConversion = -1;
+        try (BufferedReader output = new BufferedReader(
+                new InputStreamReader(process.getInputStream(), StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = output.readLine()) != null) {
+                if (line.equals("codecola.startup first-frame")) {
+                    firstFrame = System.nanoTime() - start;
+                } else if (line.equals("codecola.startup first-conversion")) {
+                    firstConversion = System.nanoTime() - start;
+                }
+            }
+        }
+        int status = process.waitFor();
+        long exit = System.nanoTime() - start;
+        if (status != 0) {
+            throw new IllegalStateException("Exit status " + status + " from " + command);
+        }
+        return new long[] {firstFrame / 1_000_000, firstConversion / 1_000_000, exit / 1_000_000};
+    }
+    
+    private static void report(String label, long[][] samples, String mode) {
+        StringBuilder line = new StringBuilder(String.format("  %-8s", label));
+        String[] names = {"first frame", "first conversion", "exit"};
+        for (int column = 0; column < names.length; column++) {
+            if (mode.equals("cli") && column < 2) {
+                continue;
+            }
+            long[] values = new long[samples.length];
+            for (int i = 0; i < samples.length; i++) {
+                values[i] = samples[i][column];
+            }
+            Arrays.sort(values);
+            line.append(String.format("  %s %d (%d)", names[column], values[values.length / 2], values[0]));
+        }
+        System.out.println(line);
+    }
+}
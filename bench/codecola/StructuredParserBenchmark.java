@@ -0,0 +1,44 @@
+package codecola;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+// Line-based parsing against the structured backend on the same input
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class StructuredParserBenchmark {
+    @Param({"10000", "100000", "1000000"})
+    public int lines;
+    
+    private final RecipeConverter converter = new RecipeConverter();
+    private String code;
+    
+    @Setup
+    public void setUp() {
+        code = SyntheticCode.generate(lines);
+    }
+    
+    @Benchmark
+    public ConversionResult lineBased() {
+        return converter.convert(code);
+    }
+    
+    @Benchmark
+    public ConversionResult structured() {
+        return converter.convertStructured(code);
+    }
+}
@@ -0,0 +1,50 @@
+package codecola;
+
+// Generates large, deterministic inputs that exercise every statement form.
+// Variable names repeat every VARIABLE_BLOCKS blocks, like a big generated
+// class would reuse a limited set of ingredients.
+final class SyntheticCode {
+    private static final int VARIABLE_BLOCKS = 100;
+    
+    private static final String[] BODY = {
+        "public class Generated%d {",
+        "    public static void main(String[] args) {",
+        "        int water%d = 500;",
+        "        int sugar%d = 100;",
+        "        double temperature%d = 80.5;",
+        "        String spices%d = \"vanilla and cinnamon\";",
+        "        boolean carbonated%d = true;",
+        "        // warm everything up first",
+        "        boil(water%d, temperature%d);",
+        "        add(sugar%d);",
+        "        addFlavor(spices%d);",
+        "        for (int i = 0; i < 5; i++) {",
+        "            stir();",
+        "        }",
+        "        if (carbonated%d) {",
+        "            mix();",
+        "        }",
+        "        while (temperature%d > 40) {",
+        "            wait(1);",
+        "        }",
+        "        serve();",
+        "    }",
+        "    private static void shake(int ml) {",
+        "        pour(ml);",
+        "    }",
+        "}",
+        ""
+    };
+    
+    private SyntheticCode() {
+    }
+    
+    static String generate(int lines) {
+        StringBuilder code = new StringBuilder(lines * 24);
+        for (int i = 0; i < lines; i++) {
+            int block = (i / BODY.length) % VARIABLE_BLOCKS;
+            code.append(BODY[i % BODY.length].replace("%d", Integer.toString(block))).append('\n');
+        }
+        return code.toString();
+    }
+}
@@ -0,0 +1,64 @@
+package codecola;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+// Verb and unit lookups as the vocabulary grows. entries extra verbs and as
+// many extra unit keywords are added after the built-in ones; the names
+// looked up hit the built-in entries, the last added ones, and nothing.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class VocabularyBenchmark {
+    @Param({"0", "100", "1000", "10000"})
+    public int entries;
+    
+    private Vocabulary vocabulary;
+    private String lastVerb;
+    private String lastUnitName;
+    
+    @Setup
+    public void setUp() throws IOException {
+        StringBuilder source = new StringBuilder(Vocabulary.DEFAULT_SOURCE);
+        source.append("[verbs]\n");
+        for (int i = 0; i < entries; i++) {
+            source.append("customVerb").append(i).append(" = Verb").append(i).append('\n');
+        }
+        source.append("[units]\n");
+        for (int i = 0; i < entries; i++) {
+            source.append("keyword").append(i).append(" = unit").append(i).append('\n');
+        }
+        vocabulary = Vocabulary.parse(source.toString());
+        lastVerb = "CustomVerb" + (entries - 1);
+        lastUnitName = "myKeyword" + (entries - 1) + "Amount";
+    }
+    
+    @Benchmark
+    public void verb(Blackhole blackhole) {
+        blackhole.consume(vocabulary.verb("addFlavor"));
+        blackhole.consume(vocabulary.verb(lastVerb));
+        blackhole.consume(vocabulary.verb("prepareGlass"));
+    }
+    
+    @Benchmark
+    public void unit(Blackhole blackhole) {
+        blackhole.consume(vocabulary.unitFor("brewTemperature"));
+        blackhole.consume(vocabulary.unitFor(lastUnitName));
+        blackhole.consume(vocabulary.unitFor("caramelColor"));
+    }
+}
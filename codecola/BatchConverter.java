@@ -0,0 +1,182 @@
+package codecola;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.RecursiveTask;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+// Converts every .java file below a directory into a .recipe.txt file,
+// spreading the work over a fork-join pool.
+//
+// In project mode the files are treated as one program: a first parallel
+// pass collects the ingredients every file declares into an IngredientTable,
+// and the second pass converts each file against it, so a call in one class
+// shows the values of ingredients declared in another.
+public class BatchConverter {
+    private static final int FILES_PER_TASK = 16;
+    
+    private final RecipeConverter converter;
+    private final int parallelism;
+    private final PrintStream log;
+    private final boolean structured;
+    private final boolean project;
+    private IngredientTable ingredients;
+    
+    public BatchConverter(RecipeConverter converter, int parallelism, PrintStream log) {
+        this(converter, parallelism, log, false);
+    }
+    
+    // structured reads each file whole and uses the syntax tree backend
+    public BatchConverter(RecipeConverter converter, int parallelism, PrintStream log, boolean structured) {
+        this(converter, parallelism, log, structured, false);
+    }
+    
+    public BatchConverter(RecipeConverter converter, int parallelism, PrintStream log, boolean structured,
+            boolean project) {
+        this.converter = converter;
+        this.parallelism = parallelism;
+        this.log = log;
+        this.structured = structured;
+        this.project = project;
+    }
+    
+    public BatchReport convertTree(Path sourceRoot, Path outputRoot) throws IOException {
+        List<Path> files;
+        try (Stream<Path> walk = Files.walk(sourceRoot)) {
+            files = walk.filter(Files::isRegularFile)
+                .filter(path -> path.toString().endsWith(".java"))
+                .collect(Collectors.toList());
+        }
+        
+        long start = System.nanoTime();
+        ForkJoinPool pool = new ForkJoinPool(parallelism);
+        BatchReport report;
+        try {
+            if (project) {
+                ingredients = new IngredientTable();
+                pool.invoke(new CollectTask(files, 0, files.size(), sourceRoot));
+            }
+            report = pool.invoke(new ConvertTask(files, 0, files.size(), sourceRoot, outputRoot));
+        } finally {
+            pool.shutdown();
+        }
+        return report.withElapsed(System.nanoTime() - start);
+    }
+    
+    // The table the last project-mode convertTree built, or null
+    public IngredientTable getIngredients() {
+        return ingredients;
+    }
+    
+    private BatchReport convertFile(Path file, Path sourceRoot, Path outputRoot) {
+        try {
+            Path target = recipePath(file, sourceRoot, outputRoot);
+            Path parent = target.getParent();
+            if (parent != null) {
+                Files.createDirectories(parent);
+            }
+            
+            RecipeStatistics statistics;
+            if (structured) {
+                ConversionResult result = converter.convertStructured(Files.readString(file, StandardCharsets.UTF_8),
+                    ingredients);
+                Files.writeString(target, result.getText(), StandardCharsets.UTF_8);
+                return new BatchReport(1, Files.size(file), result.getSteps().size(), 0, 0);
+            }
+            try (Writer writer = Files.newBufferedWriter(target, StandardCharsets.UTF_8)) {
+                statistics = converter.convert(file, writer, ingredients);
+            }
+            return new BatchReport(1, Files.size(file), statistics.getStepCount(), 0, 0);
+        } catch (IOException | UncheckedIOException e) {
+            log.println("Failed: " + file + ": " + e.getMessage());
+            return new BatchReport(0, 0, 0, 1, 0);
+        }
+    }
+    
+    static Path recipePath(Path file, Path sourceRoot, Path outputRoot) {
+        Path relative = sourceRoot.relativize(file);
+        String fileName = relative.getFileName().toString();
+        String recipeName = fileName.substring(0, fileName.length() - ".java".length()) + ".recipe.txt";
+        return outputRoot.resolve(relative).resolveSibling(recipeName);
+    }
+    
+    // A file that cannot be read here fails again, and is reported, in the second pass
+    private void collectFile(Path file, Path sourceRoot) {
+        try {
+            converter.collectIngredients(file, ingredients, sourceRoot.relativize(file).toString());
+        } catch (IOException | UncheckedIOException e) {
+            // Reported by convertFile
+        }
+    }
+    
+    @SuppressWarnings("serial")
+    private class CollectTask extends RecursiveAction {
+        private final List<Path> files;
+        private final int from;
+        private final int to;
+        private final Path sourceRoot;
+        
+        CollectTask(List<Path> files, int from, int to, Path sourceRoot) {
+            this.files = files;
+            this.from = from;
+            this.to = to;
+            this.sourceRoot = sourceRoot;
+        }
+        
+        @Override
+        protected void compute() {
+            if (to - from <= FILES_PER_TASK) {
+                for (int i = from; i < to; i++) {
+                    collectFile(files.get(i), sourceRoot);
+                }
+                return;
+            }
+            
+            int middle = (from + to) >>> 1;
+            invokeAll(new CollectTask(files, from, middle, sourceRoot), new CollectTask(files, middle, to, sourceRoot));
+        }
+    }
+    
+    @SuppressWarnings("serial")
+    private class ConvertTask extends RecursiveTask<BatchReport> {
+        private final List<Path> files;
+        private final int from;
+        private final int to;
+        private final Path sourceRoot;
+        private final Path outputRoot;
+        
+        ConvertTask(List<Path> files, int from, int to, Path sourceRoot, Path outputRoot) {
+            this.files = files;
+            this.from = from;
+            this.to = to;
+            this.sourceRoot = sourceRoot;
+            this.outputRoot = outputRoot;
+        }
+        
+        @Override
+        protected BatchReport compute() {
+            if (to - from <= FILES_PER_TASK) {
+                BatchReport report = BatchReport.EMPTY;
+                for (int i = from; i < to; i++) {
+                    report = report.plus(convertFile(files.get(i), sourceRoot, outputRoot));
+                }
+                return report;
+            }
+            
+            int middle = (from + to) >>> 1;
+            ConvertTask left = new ConvertTask(files, from, middle, sourceRoot, outputRoot);
+            left.fork();
+            BatchReport right = new ConvertTask(files, middle, to, sourceRoot, outputRoot).compute();
+            return left.join().plus(right);
+        }
+    }
+}
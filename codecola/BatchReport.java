@@ -0,0 +1,66 @@
+package codecola;
+
+// Totals of a batch run; instances are combined as fork-join tasks complete
+public final class BatchReport {
+    static final BatchReport EMPTY = new BatchReport(0, 0, 0, 0, 0);
+    
+    private final int files;
+    private final long bytes;
+    private final long steps;
+    private final int failures;
+    private final long elapsedNanos;
+    
+    BatchReport(int files, long bytes, long steps, int failures, long elapsedNanos) {
+        this.files = files;
+        this.bytes = bytes;
+        this.steps = steps;
+        this.failures = failures;
+        this.elapsedNanos = elapsedNanos;
+    }
+    
+    BatchReport plus(BatchReport other) {
+        return new BatchReport(files + other.files, bytes + other.bytes, steps + other.steps,
+            failures + other.failures, elapsedNanos + other.elapsedNanos);
+    }
+    
+    BatchReport withElapsed(long nanos) {
+        return new BatchReport(files, bytes, steps, failures, nanos);
+    }
+    
+    public int getFiles() {
+        return files;
+    }
+    
+    public long getBytes() {
+        return bytes;
+    }
+    
+    public long getSteps() {
+        return steps;
+    }
+    
+    public int getFailures() {
+        return failures;
+    }
+    
+    public double getFilesPerSecond() {
+        return perSecond(files);
+    }
+    
+    public double getBytesPerSecond() {
+        return perSecond(bytes);
+    }
+    
+    private double perSecond(long amount) {
+        return elapsedNanos == 0 ? 0 : amount * 1_000_000_000.0 / elapsedNanos;
+    }
+    
+    @Override
+    public String toString() {
+        return String.format("Converted %d files (%d bytes, %d steps) in %.1f ms%n"
+                + "   - Throughput: %.1f files/sec, %.0f bytes/sec%n"
+                + "   - Failures: %d",
+            files, bytes, steps, elapsedNanos / 1_000_000.0,
+            getFilesPerSecond(), getBytesPerSecond(), failures);
+    }
+}
@@ -0,0 +1,409 @@
+package codecola;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.PrintStream;
+import java.io.Reader;
+import java.io.Writer;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+
+// Headless entry point, used when CodeColaGUI is started with arguments
+public class CodeColaCli {
+    
+    private static final String USAGE = """
+        Usage:
+          java CodeColaGUI batch <sourceDir> [--out <dir>] [--threads <n>] [--structured] [--project]
+          java CodeColaGUI stream [--structured] [--threads <n>] [--guarded] [<input.java>|-] [<output.txt>|-]
+          java CodeColaGUI diff <old.java> <new.java>
+          java CodeColaGUI simulate <input.java>
+          java CodeColaGUI index <sourceDir> [--file <index>] [--threads <n>] [--total <ingredient> <unit>]
+                                 [--more-than <ingredient> <amount>] [--shopping-list]
+          java CodeColaGUI serve [--host <address>] [--port <n>] [--max-concurrent <n>] [--max-body <bytes>] [--cache-dir <dir>]
+                                 [--max-line-length <n>] [--max-depth <n>] [--time-limit <ms>]
+        
+        Set -Dcodecola.vocabulary=<file> to use custom verbs and units.
+        """;
+    
+    public static void main(String[] args) {
+        int status = run(args, System.out, System.err);
+        // A started server keeps the JVM alive on its own threads
+        if (status != 0 || !args[0].equals("serve")) {
+            System.exit(status);
+        }
+    }
+    
+    public static int run(String[] args, PrintStream out, PrintStream err) {
+        if (args.length == 0) {
+            err.print(USAGE);
+            return 2;
+        }
+        
+        try {
+            switch (args[0]) {
+                case "batch":
+                    return runBatch(args, out, err);
+                case "stream":
+                    return runStream(args, out, err);
+                case "serve":
+                    return runServer(args, out, err);
+                case "diff":
+                    return runDiff(args, out, err);
+                case "simulate":
+                    return runSimulate(args, out, err);
+                case "index":
+                    return runIndex(args, out, err);
+                default:
+                    err.println("Unknown command: " + args[0]);
+                    err.print(USAGE);
+                    return 2;
+            }
+        } catch (IllegalArgumentException e) {
+            err.println(e.getMessage());
+            err.print(USAGE);
+            return 2;
+        } catch (IOException e) {
+            err.println("Error: " + e.getMessage());
+            return 1;
+        }
+    }
+    
+    private static int runBatch(String[] args, PrintStream out, PrintStream err) throws IOException {
+        Path sourceRoot = null;
+        Path outputRoot = null;
+        int threads = Runtime.getRuntime().availableProcessors();
+        boolean structured = false;
+        boolean project = false;
+        
+        for (int i = 1; i < args.length; i++) {
+            switch (args[i]) {
+                case "--out":
+                    outputRoot = Paths.get(optionValue(args, ++i, "--out"));
+                    break;
+                case "--threads":
+                    threads = parsePositive(optionValue(args, ++i, "--threads"), "--threads");
+                    break;
+                case "--structured":
+                    structured = true;
+                    break;
+                case "--project":
+                    project = true;
+                    break;
+                default:
+                    if (sourceRoot != null) {
+                        throw new IllegalArgumentException("Unexpected argument: " + args[i]);
+                    }
+                    sourceRoot = Paths.get(args[i]);
+            }
+        }
+        
+        if (sourceRoot == null) {
+            throw new IllegalArgumentException("Missing source directory");
+        }
+        if (!Files.isDirectory(sourceRoot)) {
+            throw new IllegalArgumentException("Not a directory: " + sourceRoot);
+        }
+        
+        BatchConverter batch = new BatchConverter(createConverter(false, err), threads, err, structured, project);
+        BatchReport report = batch.convertTree(sourceRoot, outputRoot != null ? outputRoot : sourceRoot);
+        out.println(report);
+        if (project) {
+            IngredientTable ingredients = batch.getIngredients();
+            out.println("   - Project ingredients: " + ingredients.size() + " (" + ingredients.getConflicts()
+                + " redeclared with another value)");
+        }
+        return report.getFailures() == 0 ? 0 : 1;
+    }
+    
+    private static int runStream(String[] args, PrintStream out, PrintStream err) throws IOException {
+        boolean structured = false;
+        boolean guarded = false;
+        int threads = 1;
+        List<String> paths = new ArrayList<>();
+        for (int i = 1; i < args.length; i++) {
+            if (args[i].equals("--structured")) {
+                structured = true;
+            } else if (args[i].equals("--guarded")) {
+                guarded = true;
+            } else if (args[i].equals("--threads")) {
+                threads = parsePositive(optionValue(args, ++i, "--threads"), "--threads");
+            } else if (paths.size() < 2) {
+                paths.add(args[i]);
+            } else {
+                throw new IllegalArgumentException("Unexpected argument: " + args[i]);
+            }
+        }
+        String input = paths.size() > 0 ? paths.get(0) : "-";
+        String output = paths.size() > 1 ? paths.get(1) : "-";
+        
+        RecipeConverter converter = createConverter(false, err);
+        if (guarded) {
+            converter.setLimits(ConversionLimits.SERVICE);
+        }
+        if (!structured && threads == 1 && !input.equals("-")) {
+            // A named file is memory-mapped rather than read through a Reader
+            if (output.equals("-")) {
+                Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8));
+                converter.convert(Paths.get(input), writer);
+            } else {
+                try (Writer writer = Files.newBufferedWriter(Paths.get(output), StandardCharsets.UTF_8)) {
+                    converter.convert(Paths.get(input), writer);
+                }
+            }
+            return 0;
+        }
+        try (Reader reader = input.equals("-")
+                ? new InputStreamReader(System.in, StandardCharsets.UTF_8)
+                : Files.newBufferedReader(Paths.get(input), StandardCharsets.UTF_8)) {
+            if (output.equals("-")) {
+                Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8));
+                convert(converter, reader, writer, structured, threads);
+            } else {
+                try (Writer writer = Files.newBufferedWriter(Paths.get(output), StandardCharsets.UTF_8)) {
+                    convert(converter, reader, writer, structured, threads);
+                }
+            }
+        }
+        return 0;
+    }
+    
+    private static int runDiff(String[] args, PrintStream out, PrintStream err) throws IOException {
+        if (args.length != 3) {
+            throw new IllegalArgumentException("diff needs the old and the new source file");
+        }
+        String oldCode = Files.readString(Paths.get(args[1]), StandardCharsets.UTF_8);
+        String newCode = Files.readString(Paths.get(args[2]), StandardCharsets.UTF_8);
+        out.print(RecipeDiff.compare(createConverter(false, err), oldCode, newCode));
+        return 0;
+    }
+    
+    private static int runSimulate(String[] args, PrintStream out, PrintStream err) throws IOException {
+        if (args.length != 2) {
+            throw new IllegalArgumentException("simulate needs one source file");
+        }
+        String code = Files.readString(Paths.get(args[1]), StandardCharsets.UTF_8);
+        out.print(RecipeSimulation.simulate(createConverter(false, err), code));
+        return 0;
+    }
+    
+    private static int runIndex(String[] args, PrintStream out, PrintStream err) throws IOException {
+        Path sourceRoot = null;
+        Path indexFile = null;
+        int threads = Runtime.getRuntime().availableProcessors();
+        List<String[]> queries = new ArrayList<>();
+        
+        for (int i = 1; i < args.length; i++) {
+            switch (args[i]) {
+                case "--file":
+                    indexFile = Paths.get(optionValue(args, ++i, "--file"));
+                    break;
+                case "--threads":
+                    threads = parsePositive(optionValue(args, ++i, "--threads"), "--threads");
+                    break;
+                case "--total":
+                    queries.add(new String[] {"total", optionValue(args, ++i, "--total"),
+                        optionValue(args, ++i, "--total")});
+                    break;
+                case "--more-than":
+                    queries.add(new String[] {"more-than", optionValue(args, ++i, "--more-than"),
+                        optionValue(args, ++i, "--more-than")});
+                    break;
+                case "--shopping-list":
+                    queries.add(new String[] {"shopping-list"});
+                    break;
+                default:
+                    if (sourceRoot != null) {
+                        throw new IllegalArgumentException("Unexpected argument: " + args[i]);
+                    }
+                    sourceRoot = Paths.get(args[i]);
+            }
+        }
+        
+        if (sourceRoot == null) {
+            throw new IllegalArgumentException("Missing source directory");
+        }
+        if (!Files.isDirectory(sourceRoot)) {
+            throw new IllegalArgumentException("Not a directory: " + sourceRoot);
+        }
+        if (indexFile == null) {
+            indexFile = sourceRoot.resolve(".codecola-index");
+        }
+        
+        // A stored index only re-reads the files that changed since it was saved
+        RecipeConverter converter = createConverter(false, err);
+        IngredientIndex index = Files.isRegularFile(indexFile)
+            ? IngredientIndex.load(converter, indexFile)
+            : new IngredientIndex(converter);
+        int reread = index.refresh(sourceRoot, threads, err);
+        if (reread > 0 || !Files.isRegularFile(indexFile)) {
+            index.save(indexFile);
+        }
+        out.println("Indexed " + index.getRecipeCount() + " recipes (" + reread + " re-read), "
+            + index.getRowCount() + " ingredient rows");
+        
+        for (String[] query : queries) {
+            switch (query[0]) {
+                case "total":
+                    out.println("Total " + query[1] + ": " + IngredientIndex.format(index.total(query[1], query[2])) + " "
+                        + query[2]);
+                    break;
+                case "more-than": {
+                    double amount;
+                    try {
+                        amount = Double.parseDouble(query[2]);
+                    } catch (NumberFormatException e) {
+                        throw new IllegalArgumentException("Expected a number for --more-than: " + query[2]);
+                    }
+                    List<String> recipes = index.recipesUsingMoreThan(query[1], amount, null);
+                    out.println("Recipes using more than " + query[2] + " " + query[1] + ": " + recipes.size());
+                    for (String recipe : recipes) {
+                        out.println("   - " + recipe);
+                    }
+                    break;
+                }
+                default:
+                    out.println("Shopping list:");
+                    for (IngredientIndex.Amount amount : index.shoppingList(null)) {
+                        out.println("   - " + amount);
+                    }
+            }
+        }
+        return 0;
+    }
+    
+    // The structured backend and the parallel one need the whole source, so
+    // they give up constant memory
+    private static void convert(RecipeConverter converter, Reader reader, Writer writer, boolean structured,
+            int threads) throws IOException {
+        if (!structured && threads == 1) {
+            converter.convert(reader, writer);
+            return;
+        }
+        StringBuilder code = new StringBuilder();
+        char[] buffer = new char[8192];
+        int read;
+        while ((read = reader.read(buffer)) != -1) {
+            code.append(buffer, 0, read);
+        }
+        ConversionResult result = structured
+            ? converter.convertStructured(code.toString())
+            : new ParallelConverter(converter, threads).convert(code.toString());
+        writer.write(result.getText());
+        writer.flush();
+    }
+    
+    private static int runServer(String[] args, PrintStream out, PrintStream err) throws IOException {
+        String host = null;
+        int port = 8080;
+        int maxConcurrent = Runtime.getRuntime().availableProcessors() * 2;
+        int maxBody = 4 * 1024 * 1024;
+        Path cacheDirectory = null;
+        ConversionLimits limits = ConversionLimits.SERVICE;
+        int maxLineLength = limits.getMaxLineLength();
+        int maxDepth = limits.getMaxDepth();
+        long timeLimit = limits.getTimeLimitMillis();
+        
+        for (int i = 1; i < args.length; i++) {
+            switch (args[i]) {
+                case "--host":
+                    host = optionValue(args, ++i, "--host");
+                    break;
+                case "--port":
+                    port = parsePositive(optionValue(args, ++i, "--port"), "--port");
+                    break;
+                case "--max-concurrent":
+                    maxConcurrent = parsePositive(optionValue(args, ++i, "--max-concurrent"), "--max-concurrent");
+                    break;
+                case "--max-body":
+                    maxBody = parsePositive(optionValue(args, ++i, "--max-body"), "--max-body");
+                    break;
+                case "--cache-dir":
+                    cacheDirectory = Paths.get(optionValue(args, ++i, "--cache-dir"));
+                    break;
+                case "--max-line-length":
+                    maxLineLength = parsePositive(optionValue(args, ++i, "--max-line-length"), "--max-line-length");
+                    break;
+                case "--max-depth":
+                    maxDepth = parsePositive(optionValue(args, ++i, "--max-depth"), "--max-depth");
+                    if (maxDepth > ConversionLimits.MAX_DEPTH) {
+                        throw new IllegalArgumentException("--max-depth cannot be more than "
+                            + ConversionLimits.MAX_DEPTH);
+                    }
+                    break;
+                case "--time-limit":
+                    timeLimit = parsePositive(optionValue(args, ++i, "--time-limit"), "--time-limit");
+                    break;
+                default:
+                    throw new IllegalArgumentException("Unexpected argument: " + args[i]);
+            }
+        }
+        
+        // Requests are untrusted input, so every conversion is guarded
+        RecipeConverter converter = createConverter(true, err);
+        converter.setLimits(new ConversionLimits(maxLineLength, maxDepth, timeLimit));
+        ConversionCache cache = cacheDirectory != null
+            ? new ConversionCache(converter, 256, cacheDirectory)
+            : new ConversionCache(converter, 256);
+        InetSocketAddress address = host != null
+            ? new InetSocketAddress(host, port)
+            : new InetSocketAddress(InetAddress.getLoopbackAddress(), port);
+        enableNoDelay();
+        ConversionServer server = new ConversionServer(cache, converter, address, maxConcurrent, maxBody);
+        server.start();
+        out.println("Serving on http://localhost:" + server.getPort() + "/convert");
+        return 0;
+    }
+    
+    // The JDK HTTP server writes headers and body separately; with Nagle on,
+    // the body waits for the client's delayed ACK, about 40 ms per request.
+    // The property is read once per JVM, when the first server is created,
+    // so only the serve command sets it, and only unless given on the
+    // command line.
+    static void enableNoDelay() {
+        if (System.getProperty("sun.net.httpserver.nodelay") == null) {
+            System.setProperty("sun.net.httpserver.nodelay", "true");
+        }
+    }
+    
+    // Uses the vocabulary file named by -Dcodecola.vocabulary, if any, and
+    // keeps it up to date when watch is set
+    private static RecipeConverter createConverter(boolean watch, PrintStream log) throws IOException {
+        RecipeConverter converter = new RecipeConverter();
+        String file = System.getProperty("codecola.vocabulary");
+        if (file != null) {
+            if (watch) {
+                VocabularyWatcher.start(Paths.get(file), converter, log);
+            } else {
+                converter.setVocabulary(Vocabulary.load(Paths.get(file)));
+            }
+        }
+        return converter;
+    }
+    
+    static String optionValue(String[] args, int index, String option) {
+        if (index >= args.length) {
+            throw new IllegalArgumentException("Missing value for " + option);
+        }
+        return args[index];
+    }
+    
+    static int parsePositive(String value, String option) {
+        try {
+            int parsed = Integer.parseInt(value);
+            if (parsed > 0) {
+                return parsed;
+            }
+        } catch (NumberFormatException e) {
+            // Reported below
+        }
+        throw new IllegalArgumentException("Expected a positive number for " + option + ": " + value);
+    }
+}
@@ -0,0 +1,205 @@
+package codecola;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+// Remembers conversions by a SHA-256 hash of the converter version, the
+// vocabulary, the conversion limits and the input text. A bounded LRU map
+// sits in front of an optional directory that keeps results across
+// restarts. A hit returns the stored result without parsing anything. Safe
+// to share between threads.
+public class ConversionCache {
+    private static final String FILE_HEADER = "CodeCola cache " + RecipeConverter.VERSION;
+    
+    private final RecipeConverter converter;
+    private final Path directory;
+    private final Map<String, ConversionResult> memory;
+    
+    private long hits;
+    private long diskHits;
+    private long misses;
+    private long evictions;
+    
+    public ConversionCache(RecipeConverter converter, int maxEntries) {
+        this.converter = converter;
+        this.directory = null;
+        this.memory = createMemoryTier(maxEntries);
+    }
+    
+    public ConversionCache(RecipeConverter converter, int maxEntries, Path directory) throws IOException {
+        this.converter = converter;
+        this.directory = directory;
+        this.memory = createMemoryTier(maxEntries);
+        Files.createDirectories(directory);
+    }
+    
+    private Map<String, ConversionResult> createMemoryTier(int maxEntries) {
+        return new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, ConversionResult> eldest) {
+                if (size() > maxEntries) {
+                    evictions++;
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+    
+    public ConversionResult convert(String code) {
+        return convert(code, null);
+    }
+    
+    // A miss is converted with the listener attached; a hit returns at once
+    // without calling it. A cancelled conversion stores nothing.
+    public ConversionResult convert(String code, ConversionListener listener) {
+        // Read once, so the key names the vocabulary and limits the conversion used
+        Vocabulary vocabulary = converter.getVocabulary();
+        ConversionLimits limits = converter.getLimits();
+        String key = key(code, vocabulary, limits);
+        synchronized (this) {
+            ConversionResult cached = memory.get(key);
+            if (cached != null) {
+                hits++;
+                return cached;
+            }
+        }
+        
+        ConversionResult stored = directory != null ? readFromDisk(key) : null;
+        ConversionResult result = stored != null ? stored
+            : listener != null ? converter.convert(code, vocabulary, limits, listener)
+            : converter.convert(code, vocabulary, limits);
+        if (result.isTimedOut()) {
+            // Where the time limit cut it off depends on the load, not the input
+            synchronized (this) {
+                misses++;
+            }
+            return result;
+        }
+        synchronized (this) {
+            if (stored != null) {
+                hits++;
+                diskHits++;
+            } else {
+                misses++;
+            }
+            memory.put(key, result);
+        }
+        if (directory != null && stored == null) {
+            writeToDisk(key, result);
+        }
+        return result;
+    }
+    
+    public synchronized void clear() {
+        memory.clear();
+    }
+    
+    public synchronized long getHits() {
+        return hits;
+    }
+    
+    public synchronized long getDiskHits() {
+        return diskHits;
+    }
+    
+    public synchronized long getMisses() {
+        return misses;
+    }
+    
+    public synchronized long getEvictions() {
+        return evictions;
+    }
+    
+    @Override
+    public synchronized String toString() {
+        return String.format("Cache: %d hits (%d from disk), %d misses, %d evictions", hits, diskHits, misses, evictions);
+    }
+    
+    // Limits are null for unguarded conversions
+    static String key(String code, Vocabulary vocabulary, ConversionLimits limits) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            digest.update((byte) RecipeConverter.VERSION);
+            digest.update(vocabulary.getFingerprint().getBytes(StandardCharsets.UTF_8));
+            if (limits != null) {
+                digest.update(limits.getFingerprint().getBytes(StandardCharsets.UTF_8));
+            }
+            byte[] hash = digest.digest(code.getBytes(StandardCharsets.UTF_8));
+            StringBuilder hex = new StringBuilder(hash.length * 2);
+            for (byte b : hash) {
+                hex.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+            }
+            return hex.toString();
+        } catch (NoSuchAlgorithmException e) {
+            // Every JDK ships SHA-256
+            throw new IllegalStateException(e);
+        }
+    }
+    
+    // File layout: header line, ingredient count, then one step per line.
+    // Steps come from single source lines, so they never contain a newline.
+    private ConversionResult readFromDisk(String key) {
+        Path file = directory.resolve(key + ".recipe");
+        if (!Files.isRegularFile(file)) {
+            return null;
+        }
+        try {
+            List<String> lines = Files.readAllLines(file, StandardCharsets.UTF_8);
+            if (lines.size() < 2 || !lines.get(0).equals(FILE_HEADER)) {
+                Files.deleteIfExists(file);
+                return null;
+            }
+            int ingredientCount = Integer.parseInt(lines.get(1));
+            List<String> steps = new ArrayList<>(lines.subList(2, lines.size()));
+            return new ConversionResult(RecipeConverter.render(steps, ingredientCount), steps, ingredientCount);
+        } catch (IOException | NumberFormatException e) {
+            // A damaged entry is just a miss
+            return null;
+        }
+    }
+    
+    private void writeToDisk(String key, ConversionResult result) {
+        for (String step : result.getSteps()) {
+            if (step.indexOf('\r') >= 0) {
+                // Would not survive the line-based file format
+                return;
+            }
+        }
+        
+        Path file = directory.resolve(key + ".recipe");
+        Path temp = null;
+        try {
+            temp = Files.createTempFile(directory, key, ".tmp");
+            List<String> lines = new ArrayList<>(result.getSteps().size() + 2);
+            lines.add(FILE_HEADER);
+            lines.add(String.valueOf(result.getIngredientCount()));
+            lines.addAll(result.getSteps());
+            Files.write(temp, lines, StandardCharsets.UTF_8);
+            try {
+                Files.move(temp, file, StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING);
+            }
+        } catch (IOException e) {
+            // The disk tier is best effort; the result is still cached in memory
+            if (temp != null) {
+                try {
+                    Files.deleteIfExists(temp);
+                } catch (IOException ignored) {
+                    // Nothing more to do
+                }
+            }
+        }
+    }
+}
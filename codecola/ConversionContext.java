@@ -0,0 +1,116 @@
+package codecola;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Matcher;
+
+// State of a single conversion run, never shared between threads
+final class ConversionContext {
+    // Read once per run, so a reload never changes a conversion halfway
+    final Vocabulary vocabulary;
+    final Map<String, String> variables = new HashMap<>();
+    final IngredientTrie ingredients = new IngredientTrie();
+    // Declarations from the other files of a project; null for a single file
+    IngredientTable project;
+    // Null when streaming, where only the count is kept
+    final List<String> recipeSteps;
+    int stepCount;
+    
+    // Filled only by the incremental and parallel converters, which need to
+    // know what a line declared and which ingredients it looked up (name,
+    // value pairs)
+    String declaredName;
+    String declaredValue;
+    List<String> references;
+    
+    // Set by the parse* methods: the kind of the last step and the parts of
+    // its text. Read only when a typed Recipe is built, where model and units
+    // (unit of every numeric ingredient) are not null.
+    RecipeStep.Action action;
+    String target;
+    String detail;
+    String unit;
+    List<RecipeStep> model;
+    Map<String, String> units;
+    
+    // Null for an unguarded conversion. The deadline is a System.nanoTime
+    // value; timedOut is set once it has passed and the rest is skipped.
+    ConversionLimits limits;
+    long deadline;
+    boolean timedOut;
+    
+    // Errors are always counted, the rest only when ConversionMetrics.ENABLED
+    int commentLines;
+    int errors;
+    long startNanos;
+    ConversionEvent event;
+    
+    // Reused for every step of the run: the text the last parse* call
+    // rendered, and the numbered line RecipeConverter.appendStep writes
+    final StringBuilder step = new StringBuilder(128);
+    final StringBuilder line = new StringBuilder(128);
+    char[] chars = new char[256];
+    
+    // Reused for every line of the run instead of allocating new matchers
+    final Matcher statementMatcher = RecipeConverter.STATEMENT.matcher("");
+    final Matcher classNameMatcher = RecipeConverter.CLASS_NAME.matcher("");
+    final Matcher methodDefinitionMatcher = RecipeConverter.METHOD_DEFINITION.matcher("");
+    
+    ConversionContext() {
+        this(Vocabulary.DEFAULT, true);
+    }
+    
+    ConversionContext(Vocabulary vocabulary, boolean keepSteps) {
+        this.vocabulary = vocabulary;
+        recipeSteps = keepSteps ? new ArrayList<>() : null;
+        if (ConversionMetrics.ENABLED) {
+            startNanos = System.nanoTime();
+            event = new ConversionEvent();
+            event.begin();
+        }
+    }
+    
+    // Starts the time limit; null limits leave the conversion unguarded
+    void guard(ConversionLimits limits) {
+        this.limits = limits;
+        if (limits != null) {
+            deadline = System.nanoTime() + limits.getTimeLimitMillis() * 1_000_000;
+        }
+    }
+    
+    boolean pastDeadline() {
+        return System.nanoTime() - deadline > 0;
+    }
+    
+    // A blank line or comment the line-based parser stepped over
+    void skipped(String line) {
+        if (!line.isEmpty()) {
+            commentLines++;
+        }
+    }
+    
+    void startModel() {
+        model = new ArrayList<>();
+        units = new HashMap<>();
+        references = new ArrayList<>(4);
+    }
+    
+    // Records the step the last parse* call produced
+    void addModelStep(int line, int depth) {
+        model.add(RecipeStep.fromContext(this, line, depth));
+    }
+    
+    StringBuilder startStep() {
+        step.setLength(0);
+        return step;
+    }
+    
+    void declare(String name, String value) {
+        variables.put(name, value);
+        ingredients.put(name, value);
+        declaredName = name;
+        declaredValue = value;
+    }
+}
@@ -0,0 +1,32 @@
+package codecola;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+// Flight Recorder event for one conversion, from its context being created
+// to its last step
+@Name("codecola.Conversion")
+@Label("Conversion")
+@Category("CodeCola")
+@Description("One Java source converted to a recipe")
+final class ConversionEvent extends jdk.jfr.Event {
+    @Label("Backend")
+    String backend;
+    
+    @Label("Lines")
+    int lines;
+    
+    @Label("Comment Lines")
+    int commentLines;
+    
+    @Label("Steps")
+    int steps;
+    
+    @Label("Ingredients")
+    int ingredients;
+    
+    @Label("Errors")
+    int errors;
+}
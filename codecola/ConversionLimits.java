@@ -0,0 +1,54 @@
+package codecola;
+
+// Bounds for converting untrusted input, as the conversion service does. The
+// line-based backends neither parse a line longer than maxLineLength nor keep
+// more than that much of it in memory. The structured backend does not
+// descend into blocks nested deeper than maxDepth, which is at most MAX_DEPTH
+// so that no input overflows the stack. Either backend stops once a
+// conversion has run for timeLimitMillis. Each of these leaves a "Skipped
+// line N" step in the recipe instead of failing the whole conversion.
+public final class ConversionLimits {
+    // Deepest maxDepth allowed, the most any structured conversion parses
+    public static final int MAX_DEPTH = SyntaxTree.MAX_DEPTH;
+    // What ConversionServer uses unless told otherwise
+    public static final ConversionLimits SERVICE = new ConversionLimits(10_000, 256, 2_000);
+    
+    private final int maxLineLength;
+    private final int maxDepth;
+    private final long timeLimitMillis;
+    
+    public ConversionLimits(int maxLineLength, int maxDepth, long timeLimitMillis) {
+        if (maxLineLength <= 0 || maxDepth <= 0 || timeLimitMillis <= 0) {
+            throw new IllegalArgumentException("Conversion limits must be positive");
+        }
+        if (maxDepth > MAX_DEPTH) {
+            throw new IllegalArgumentException("Blocks cannot be converted deeper than " + MAX_DEPTH + " levels");
+        }
+        this.maxLineLength = maxLineLength;
+        this.maxDepth = maxDepth;
+        this.timeLimitMillis = timeLimitMillis;
+    }
+    
+    public int getMaxLineLength() {
+        return maxLineLength;
+    }
+    
+    public int getMaxDepth() {
+        return maxDepth;
+    }
+    
+    public long getTimeLimitMillis() {
+        return timeLimitMillis;
+    }
+    
+    // Part of the cache key, since the limits change the recipe text
+    String getFingerprint() {
+        return maxLineLength + "/" + maxDepth + "/" + timeLimitMillis;
+    }
+    
+    @Override
+    public String toString() {
+        return "lines up to " + maxLineLength + " characters, blocks up to " + maxDepth + " deep, "
+            + timeLimitMillis + " ms per conversion";
+    }
+}
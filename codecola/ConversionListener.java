@@ -0,0 +1,9 @@
+package codecola;
+
+// Follows a running conversion. Called on the converting thread every few
+// hundred lines with the recipe text added since the previous call; joined
+// together the chunks are exactly the finished recipe. Throwing
+// CancellationException stops the conversion.
+public interface ConversionListener {
+    void converted(String chunk, long charsRead, long totalChars);
+}
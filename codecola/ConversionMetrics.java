@@ -0,0 +1,178 @@
+package codecola;
+
+import java.lang.management.ManagementFactory;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+import javax.management.JMException;
+import javax.management.ObjectName;
+
+// Counters and latency histograms for every conversion in this JVM. They are
+// off unless it runs with -Dcodecola.metrics=true; ENABLED is then a constant
+// false, and the JIT drops each recording call together with the check in
+// front of it. When on, the totals are published over JMX and each
+// conversion also emits a codecola.Conversion Flight Recorder event.
+public final class ConversionMetrics implements ConversionMetricsMXBean {
+    public static final boolean ENABLED = Boolean.getBoolean("codecola.metrics");
+    
+    private static final RecipeStep.Action[] ACTIONS = RecipeStep.Action.values();
+    private static final ConversionMetrics INSTANCE = new ConversionMetrics();
+    
+    static {
+        if (ENABLED) {
+            // Starting the platform MBean server takes long enough to delay
+            // the first conversion, so it happens on the side
+            Thread registration = new Thread(ConversionMetrics::register, "codecola-jmx");
+            registration.setDaemon(true);
+            registration.start();
+        }
+    }
+    
+    private final LongAdder conversions = new LongAdder();
+    private final LongAdder lines = new LongAdder();
+    private final LongAdder commentLines = new LongAdder();
+    private final LongAdder steps = new LongAdder();
+    private final LongAdder errors = new LongAdder();
+    private final LatencyHistogram conversionTimes = new LatencyHistogram();
+    private final LatencyHistogram formatArgumentsTimes = new LatencyHistogram();
+    // One per step kind, plus a last one for lines that gave no step
+    private final LatencyHistogram[] constructTimes = new LatencyHistogram[ACTIONS.length + 1];
+    
+    private ConversionMetrics() {
+        for (int i = 0; i < constructTimes.length; i++) {
+            constructTimes[i] = new LatencyHistogram();
+        }
+    }
+    
+    private static void register() {
+        try {
+            ManagementFactory.getPlatformMBeanServer().registerMBean(INSTANCE,
+                new ObjectName("codecola:type=ConversionMetrics"));
+        } catch (JMException e) {
+            // Counting still works; only the JMX view is missing
+        }
+    }
+    
+    public static ConversionMetrics get() {
+        return INSTANCE;
+    }
+    
+    // One line through parseLine; action is null when it gave no step
+    static void line(RecipeStep.Action action, long nanos) {
+        INSTANCE.constructTimes[action != null ? action.ordinal() : ACTIONS.length].record(nanos);
+    }
+    
+    static void formatArguments(long nanos) {
+        INSTANCE.formatArgumentsTimes.record(nanos);
+    }
+    
+    // Called once a conversion has produced its last step
+    static void finish(ConversionContext context, String backend, int lineCount) {
+        ConversionMetrics metrics = INSTANCE;
+        metrics.conversions.increment();
+        metrics.lines.add(lineCount);
+        metrics.commentLines.add(context.commentLines);
+        metrics.steps.add(context.stepCount);
+        metrics.errors.add(context.errors);
+        metrics.conversionTimes.record(System.nanoTime() - context.startNanos);
+        
+        ConversionEvent event = context.event;
+        if (event.shouldCommit()) {
+            event.backend = backend;
+            event.lines = lineCount;
+            event.commentLines = context.commentLines;
+            event.steps = context.stepCount;
+            event.ingredients = context.variables.size();
+            event.errors = context.errors;
+            event.commit();
+        }
+    }
+    
+    @Override
+    public long getConversions() {
+        return conversions.sum();
+    }
+    
+    @Override
+    public long getLines() {
+        return lines.sum();
+    }
+    
+    @Override
+    public long getCommentLines() {
+        return commentLines.sum();
+    }
+    
+    @Override
+    public long getSteps() {
+        return steps.sum();
+    }
+    
+    @Override
+    public long getErrors() {
+        return errors.sum();
+    }
+    
+    @Override
+    public double getConversionMeanMillis() {
+        return conversionTimes.getMeanNanos() / 1e6;
+    }
+    
+    @Override
+    public double getConversionP99Millis() {
+        return conversionTimes.getPercentileNanos(0.99) / 1e6;
+    }
+    
+    @Override
+    public double getFormatArgumentsMeanNanos() {
+        return formatArgumentsTimes.getMeanNanos();
+    }
+    
+    @Override
+    public Map<String, Long> getConstructCounts() {
+        Map<String, Long> counts = new LinkedHashMap<>();
+        for (int i = 0; i < constructTimes.length; i++) {
+            long count = constructTimes[i].getCount();
+            if (count > 0) {
+                counts.put(constructName(i), count);
+            }
+        }
+        return counts;
+    }
+    
+    @Override
+    public Map<String, Double> getConstructMeanNanos() {
+        Map<String, Double> means = new LinkedHashMap<>();
+        for (int i = 0; i < constructTimes.length; i++) {
+            if (constructTimes[i].getCount() > 0) {
+                means.put(constructName(i), constructTimes[i].getMeanNanos());
+            }
+        }
+        return means;
+    }
+    
+    @Override
+    public void reset() {
+        conversions.reset();
+        lines.reset();
+        commentLines.reset();
+        steps.reset();
+        errors.reset();
+        conversionTimes.reset();
+        formatArgumentsTimes.reset();
+        for (LatencyHistogram histogram : constructTimes) {
+            histogram.reset();
+        }
+    }
+    
+    private static String constructName(int index) {
+        return index < ACTIONS.length ? ACTIONS[index].name() : "NONE";
+    }
+    
+    @Override
+    public String toString() {
+        return String.format("%d conversions, %d lines (%d comments), %d steps, %d errors, mean %.2f ms, p99 %.2f ms",
+            getConversions(), getLines(), getCommentLines(), getSteps(), getErrors(),
+            getConversionMeanMillis(), getConversionP99Millis());
+    }
+}
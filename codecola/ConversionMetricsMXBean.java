@@ -0,0 +1,29 @@
+package codecola;
+
+import java.util.Map;
+
+// Management view of ConversionMetrics, registered as codecola:type=ConversionMetrics
+public interface ConversionMetricsMXBean {
+    long getConversions();
+    
+    long getLines();
+    
+    long getCommentLines();
+    
+    long getSteps();
+    
+    long getErrors();
+    
+    double getConversionMeanMillis();
+    
+    double getConversionP99Millis();
+    
+    double getFormatArgumentsMeanNanos();
+    
+    // Lines per step kind of the line-based parser, NONE for lines without a step
+    Map<String, Long> getConstructCounts();
+    
+    Map<String, Double> getConstructMeanNanos();
+    
+    void reset();
+}
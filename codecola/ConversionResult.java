@@ -0,0 +1,45 @@
+package codecola;
+
+import java.util.Collections;
+import java.util.List;
+
+// Immutable outcome of converting one piece of Java code
+public final class ConversionResult {
+    private final String text;
+    private final List<String> steps;
+    private final int ingredientCount;
+    private final boolean timedOut;
+    
+    ConversionResult(String text, List<String> steps, int ingredientCount) {
+        this(text, steps, ingredientCount, false);
+    }
+    
+    ConversionResult(String text, List<String> steps, int ingredientCount, boolean timedOut) {
+        this.text = text;
+        this.steps = Collections.unmodifiableList(steps);
+        this.ingredientCount = ingredientCount;
+        this.timedOut = timedOut;
+    }
+    
+    public String getText() {
+        return text;
+    }
+    
+    public List<String> getSteps() {
+        return steps;
+    }
+    
+    public int getIngredientCount() {
+        return ingredientCount;
+    }
+    
+    // True when ConversionLimits stopped the conversion before the end of the
+    // input; the text then ends with a "Skipped line N" step
+    public boolean isTimedOut() {
+        return timedOut;
+    }
+    
+    public RecipeStatistics getStatistics() {
+        return new RecipeStatistics(ingredientCount, steps.size());
+    }
+}
@@ -0,0 +1,179 @@
+package codecola;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.lang.reflect.Method;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+// Serves conversions over HTTP. POST /convert takes Java source as the body
+// and answers with the recipe text, or with JSON when the client accepts
+// application/json or asks for ?format=json. ?mode=structured selects the
+// structured backend. At most maxConcurrent conversions run at once; a
+// request takes a slot only after its body is read and gives it back before
+// the response is written. A request that finds no free slot gets 503 right
+// away. Without virtual threads requests run on four platform threads per
+// slot, so bodies still being uploaded do not hold up conversions; past
+// that, extra requests wait in the pool's queue. Conversions are bounded by
+// the converter's ConversionLimits; the serve command sets them.
+public class ConversionServer {
+    private final ConversionCache cache;
+    private final RecipeConverter converter;
+    private final Semaphore permits;
+    private final int maxBodyBytes;
+    private final HttpServer server;
+    private final ExecutorService executor;
+    
+    public ConversionServer(ConversionCache cache, RecipeConverter converter, InetSocketAddress address,
+            int maxConcurrent, int maxBodyBytes) throws IOException {
+        this.cache = cache;
+        this.converter = converter;
+        this.permits = new Semaphore(maxConcurrent);
+        this.maxBodyBytes = maxBodyBytes;
+        this.executor = createExecutor(maxConcurrent);
+        this.server = HttpServer.create(address, 0);
+        server.setExecutor(executor);
+        server.createContext("/convert", this::handleConvert);
+        server.createContext("/health", exchange -> respond(exchange, 200, "text/plain", "ok\n"));
+    }
+    
+    // One virtual thread per request when the runtime has them (Java 21+),
+    // otherwise a fixed pool of four threads per conversion slot
+    private static ExecutorService createExecutor(int maxConcurrent) {
+        try {
+            Method factory = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+            return (ExecutorService) factory.invoke(null);
+        } catch (ReflectiveOperationException e) {
+            return Executors.newFixedThreadPool(maxConcurrent * 4, runnable -> {
+                Thread thread = new Thread(runnable, "codecola-http");
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+    }
+    
+    public void start() {
+        server.start();
+    }
+    
+    public void stop() {
+        server.stop(0);
+        executor.shutdown();
+        try {
+            executor.awaitTermination(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+    
+    public int getPort() {
+        return server.getAddress().getPort();
+    }
+    
+    private void handleConvert(HttpExchange exchange) throws IOException {
+        try (exchange) {
+            if (!exchange.getRequestMethod().equals("POST")) {
+                exchange.getResponseHeaders().set("Allow", "POST");
+                respond(exchange, 405, "text/plain", "Use POST with Java source as the body\n");
+                return;
+            }
+            // A slow upload holds only its own connection, not a conversion slot
+            String code = readBody(exchange.getRequestBody());
+            if (code == null) {
+                respond(exchange, 413, "text/plain", "Request body exceeds " + maxBodyBytes + " bytes\n");
+                return;
+            }
+            if (!permits.tryAcquire()) {
+                exchange.getResponseHeaders().set("Retry-After", "1");
+                respond(exchange, 503, "text/plain", "Too many conversions in progress\n");
+                return;
+            }
+            
+            String query = exchange.getRequestURI().getRawQuery();
+            String accept = exchange.getRequestHeaders().getFirst("Accept");
+            boolean json = hasParameter(query, "format=json") || accept != null && accept.contains("application/json");
+            String response;
+            try {
+                ConversionResult result = hasParameter(query, "mode=structured")
+                    ? converter.convertStructured(code)
+                    : cache.convert(code);
+                response = json ? toJson(result) : result.getText();
+            } catch (RuntimeException e) {
+                // A bug hit by one input fails that request, not the connection
+                response = null;
+            } finally {
+                permits.release();
+            }
+            if (response == null) {
+                respond(exchange, 500, "text/plain", "Conversion failed\n");
+                return;
+            }
+            respond(exchange, 200, json ? "application/json" : "text/plain", response);
+        }
+    }
+    
+    // Returns null when the body is larger than maxBodyBytes
+    private String readBody(InputStream body) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        byte[] buffer = new byte[8192];
+        int read;
+        while ((read = body.read(buffer)) != -1) {
+            if (bytes.size() + read > maxBodyBytes) {
+                return null;
+            }
+            bytes.write(buffer, 0, read);
+        }
+        return bytes.toString(StandardCharsets.UTF_8);
+    }
+    
+    private static boolean hasParameter(String query, String parameter) {
+        if (query == null) {
+            return false;
+        }
+        for (String part : query.split("&")) {
+            if (part.equals(parameter)) {
+                return true;
+            }
+        }
+        return false;
+    }
+    
+    private static void respond(HttpExchange exchange, int status, String contentType, String body)
+            throws IOException {
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", contentType + "; charset=utf-8");
+        exchange.sendResponseHeaders(status, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+    
+    static String toJson(ConversionResult result) {
+        RecipeStatistics statistics = result.getStatistics();
+        StringBuilder json = new StringBuilder(result.getText().length() * 2 + 64);
+        json.append("{\"recipe\":");
+        JsonText.appendString(json, result.getText());
+        json.append(",\"steps\":[");
+        List<String> steps = result.getSteps();
+        for (int i = 0; i < steps.size(); i++) {
+            if (i > 0) {
+                json.append(',');
+            }
+            JsonText.appendString(json, steps.get(i));
+        }
+        json.append("],\"ingredientCount\":").append(statistics.getIngredientCount())
+            .append(",\"stepCount\":").append(statistics.getStepCount())
+            .append(",\"estimatedMinutes\":").append(statistics.getEstimatedMinutes())
+            .append("}\n");
+        return json.toString();
+    }
+}
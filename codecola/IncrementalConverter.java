@@ -0,0 +1,178 @@
+package codecola;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+
+// Keeps the parse result of every line so that an edited document can be
+// converted again by parsing only the lines that changed. A cached method
+// call stays valid only while every ingredient it looked up still has the
+// value it saw, so editing a declaration re-parses exactly the calls that
+// depend on it. Not thread-safe; the GUI drives it from the EDT.
+public class IncrementalConverter {
+    private final RecipeConverter converter;
+    private final List<LineState> lines = new ArrayList<>();
+    private int stepCount;
+    private int ingredientCount;
+    private int parsedLines;
+    private Vocabulary vocabulary;
+    
+    public IncrementalConverter(RecipeConverter converter) {
+        this.converter = converter;
+    }
+    
+    public void reset(String code) {
+        lines.clear();
+        for (String line : splitLines(code)) {
+            lines.add(new LineState(line));
+        }
+    }
+    
+    // The lines convert sees, split on '\n' only
+    static List<String> splitLines(String code) {
+        List<String> split = new ArrayList<>();
+        LineReader reader = new LineReader(new StringReader(code));
+        try {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                split.add(line);
+            }
+        } catch (IOException e) {
+            // Cannot happen for in-memory input
+            throw new UncheckedIOException(e);
+        }
+        return split;
+    }
+    
+    // Replaces removedCount lines starting at index with the given lines
+    public void replaceLines(int index, int removedCount, List<String> addedLines) {
+        List<LineState> range = lines.subList(index, index + removedCount);
+        range.clear();
+        List<LineState> added = new ArrayList<>(addedLines.size());
+        for (String line : addedLines) {
+            added.add(new LineState(line));
+        }
+        range.addAll(added);
+    }
+    
+    // Produces the same text as RecipeConverter.convert for the current lines
+    public String refresh() {
+        ConversionContext context = new ConversionContext(converter.getVocabulary(), false);
+        if (context.vocabulary != vocabulary) {
+            // Every cached step may read differently under the new vocabulary
+            for (LineState state : lines) {
+                state.step = null;
+            }
+            vocabulary = context.vocabulary;
+        }
+        StringBuilder recipe = new StringBuilder();
+        parsedLines = 0;
+        
+        for (int i = 0; i < lines.size(); i++) {
+            LineState state = lines.get(i);
+            if (state.needsParse(context)) {
+                state.parse(converter, i + 1, context);
+                parsedLines++;
+            } else if (state.declaredName != null) {
+                context.declare(state.declaredName, state.declaredValue);
+            }
+            
+            if (!state.step.isEmpty()) {
+                recipe.append(++context.stepCount).append(". ").append(state.step).append('\n');
+            }
+        }
+        
+        stepCount = context.stepCount;
+        ingredientCount = context.variables.size();
+        StringBuilder text = new StringBuilder(recipe.length() + 256);
+        try {
+            RecipeConverter.appendHeader(text);
+            text.append(recipe);
+            RecipeConverter.appendFooter(text, ingredientCount, stepCount);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        if (ConversionMetrics.ENABLED) {
+            ConversionMetrics.finish(context, "incremental", lines.size());
+        }
+        return text.toString();
+    }
+    
+    public int getLineCount() {
+        return lines.size();
+    }
+    
+    public int getStepCount() {
+        return stepCount;
+    }
+    
+    public int getIngredientCount() {
+        return ingredientCount;
+    }
+    
+    // The step each line gave in the last refresh, "" for none
+    List<String> getLineSteps() {
+        List<String> steps = new ArrayList<>(lines.size());
+        for (LineState state : lines) {
+            steps.add(state.step);
+        }
+        return steps;
+    }
+    
+    // Number of lines the last refresh had to parse
+    public int getParsedLineCount() {
+        return parsedLines;
+    }
+    
+    private static final class LineState {
+        private static final String ERROR_PREFIX = "Error in line ";
+        
+        private final String text;
+        private String step;
+        private String declaredName;
+        private String declaredValue;
+        private List<String> references;
+        
+        LineState(String text) {
+            this.text = text;
+        }
+        
+        boolean needsParse(ConversionContext context) {
+            if (step == null || step.startsWith(ERROR_PREFIX)) {
+                return true;
+            }
+            if (references != null) {
+                for (int i = 0; i < references.size(); i += 2) {
+                    String current = context.variables.get(references.get(i));
+                    if (!Objects.equals(current, references.get(i + 1))) {
+                        return true;
+                    }
+                }
+            }
+            return false;
+        }
+        
+        void parse(RecipeConverter converter, int lineNumber, ConversionContext context) {
+            String line = text.trim();
+            if (RecipeConverter.isIgnored(line)) {
+                step = "";
+                declaredName = null;
+                declaredValue = null;
+                references = null;
+                return;
+            }
+            
+            context.declaredName = null;
+            context.declaredValue = null;
+            context.references = new ArrayList<>(4);
+            step = converter.parseLine(line, lineNumber, context).toString();
+            declaredName = context.declaredName;
+            declaredValue = context.declaredValue;
+            references = context.references.isEmpty() ? null : context.references;
+            context.references = null;
+        }
+    }
+}
@@ -0,0 +1,590 @@
+package codecola;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+// Columnar index of the ingredients a corpus of recipes declares, for
+// questions across recipes like "which use more than 100 g sugar" or "how
+// much water do they need together". Every Prepare step with a plain amount
+// is one row. Rows live in four parallel primitive columns: recipe,
+// ingredient and unit as dictionary ids, and the amount as a double. A query
+// is one scan over int and double arrays.
+//
+// Indexing a recipe again marks its old rows dead (recipe id -1) and appends
+// the new ones. Dead rows are dropped once they make up half the table, and
+// before saving. refresh re-reads only the files whose size or modification
+// time changed. Not thread-safe.
+//
+// The file written by save holds the dictionaries followed by the columns.
+// Each column is an array of little-endian ints or doubles starting at a
+// multiple of 8 bytes, so load maps the file and copies each column with one
+// bulk get, and other tools can map the columns in place.
+public final class IngredientIndex {
+    private static final byte[] MAGIC = {'C', 'C', 'I'};
+    private static final int FORMAT_VERSION = 1;
+    
+    // One ingredient total of a shopping list
+    public static final class Amount {
+        private final String ingredient;
+        private final String unit;
+        private final double amount;
+        
+        Amount(String ingredient, String unit, double amount) {
+            this.ingredient = ingredient;
+            this.unit = unit;
+            this.amount = amount;
+        }
+        
+        public String getIngredient() {
+            return ingredient;
+        }
+        
+        public String getUnit() {
+            return unit;
+        }
+        
+        public double getAmount() {
+            return amount;
+        }
+        
+        @Override
+        public String toString() {
+            return ingredient + ": " + format(amount) + (unit.isEmpty() ? "" : " " + unit);
+        }
+    }
+    
+    private final RecipeConverter converter;
+    
+    // Recipes by id: key (path below the corpus root, or any name given to
+    // update), and the size and modification time of the file when indexed.
+    // A removed recipe keeps its id with a null key until compaction.
+    private final List<String> recipeKeys = new ArrayList<>();
+    private final Map<String, Integer> recipeIds = new HashMap<>();
+    private long[] recipeSizes = new long[16];
+    private long[] recipeModified = new long[16];
+    private final Dictionary names = new Dictionary();
+    private final Dictionary units = new Dictionary();
+    
+    private int[] rowRecipes = new int[64];
+    private int[] rowNames = new int[64];
+    private int[] rowUnits = new int[64];
+    private double[] rowAmounts = new double[64];
+    private int rowCount;
+    private int deadRows;
+    
+    public IngredientIndex(RecipeConverter converter) {
+        this.converter = converter;
+    }
+    
+    // Indexes the source of one recipe, replacing what was indexed under key
+    public void update(String key, String code) {
+        Rows rows = rowsOf(code);
+        Integer existing = recipeIds.get(key);
+        if (existing != null) {
+            killRows(Set.of(existing));
+        }
+        apply(key, rows, -1, -1);
+    }
+    
+    public void remove(String key) {
+        Integer recipe = recipeIds.remove(key);
+        if (recipe != null) {
+            recipeKeys.set(recipe, null);
+            killRows(Set.of(recipe));
+        }
+    }
+    
+    // Brings the index up to date with the .java files below root: new and
+    // changed files are converted on threads, files that are gone are
+    // removed. A file that cannot be read is reported to log and keeps its
+    // old rows. Returns how many files were indexed again.
+    public int refresh(Path root, int threads, PrintStream log) throws IOException {
+        List<Path> files;
+        try (Stream<Path> walk = Files.walk(root)) {
+            files = walk.filter(Files::isRegularFile)
+                .filter(path -> path.toString().endsWith(".java"))
+                .collect(Collectors.toList());
+        }
+        
+        Set<String> present = new HashSet<>();
+        List<Callable<Parsed>> changed = new ArrayList<>();
+        for (Path file : files) {
+            String key = root.relativize(file).toString().replace('\\', '/');
+            present.add(key);
+            long size = Files.size(file);
+            long modified = Files.getLastModifiedTime(file).toMillis();
+            Integer recipe = recipeIds.get(key);
+            if (recipe == null || recipeSizes[recipe] != size || recipeModified[recipe] != modified) {
+                changed.add(() -> parse(file, key, size, modified, log));
+            }
+        }
+        
+        List<Parsed> parsed = new ArrayList<>(changed.size());
+        ForkJoinPool pool = new ForkJoinPool(threads);
+        try {
+            for (Future<Parsed> future : pool.invokeAll(changed)) {
+                Parsed file = future.get();
+                if (file != null) {
+                    parsed.add(file);
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while indexing", e);
+        } catch (ExecutionException e) {
+            // Reading failures are handled per file; anything else is a bug
+            if (e.getCause() instanceof Error) {
+                throw (Error) e.getCause();
+            }
+            throw new IllegalStateException(e.getCause());
+        } finally {
+            pool.shutdown();
+        }
+        
+        // Rows of re-read and deleted files are killed in one pass, once
+        // every replacement is at hand
+        Set<Integer> stale = new HashSet<>();
+        for (Parsed file : parsed) {
+            Integer recipe = recipeIds.get(file.key);
+            if (recipe != null) {
+                stale.add(recipe);
+            }
+        }
+        for (String key : new ArrayList<>(recipeIds.keySet())) {
+            if (!present.contains(key)) {
+                int recipe = recipeIds.remove(key);
+                recipeKeys.set(recipe, null);
+                stale.add(recipe);
+            }
+        }
+        killRows(stale);
+        for (Parsed file : parsed) {
+            apply(file.key, file.rows, file.size, file.modified);
+        }
+        return parsed.size();
+    }
+    
+    public int getRecipeCount() {
+        return recipeIds.size();
+    }
+    
+    // Live rows, one per Prepare step with a plain amount
+    public int getRowCount() {
+        return rowCount - deadRows;
+    }
+    
+    // Sum of an ingredient over all recipes in the given unit
+    public double total(String ingredient, String unit) {
+        int name = names.find(ingredient);
+        int unitId = units.find(unit);
+        if (name < 0 || unitId < 0) {
+            return 0;
+        }
+        double total = 0;
+        for (int row = 0; row < rowCount; row++) {
+            if (rowNames[row] == name && rowUnits[row] == unitId && rowRecipes[row] >= 0) {
+                total += rowAmounts[row];
+            }
+        }
+        return total;
+    }
+    
+    // Recipes that declare the ingredient with more than amount, in any unit
+    // when unit is null, sorted by key
+    public List<String> recipesUsingMoreThan(String ingredient, double amount, String unit) {
+        int name = names.find(ingredient);
+        int unitId = unit == null ? -1 : units.find(unit);
+        if (name < 0 || unit != null && unitId < 0) {
+            return List.of();
+        }
+        boolean[] matches = new boolean[recipeKeys.size()];
+        for (int row = 0; row < rowCount; row++) {
+            if (rowNames[row] == name && rowAmounts[row] > amount && rowRecipes[row] >= 0
+                    && (unitId < 0 || rowUnits[row] == unitId)) {
+                matches[rowRecipes[row]] = true;
+            }
+        }
+        List<String> recipes = new ArrayList<>();
+        for (int recipe = 0; recipe < matches.length; recipe++) {
+            if (matches[recipe]) {
+                recipes.add(recipeKeys.get(recipe));
+            }
+        }
+        recipes.sort(null);
+        return recipes;
+    }
+    
+    // Total of every ingredient and unit over the given recipes, or over all
+    // of them for null, sorted by ingredient and unit
+    public List<Amount> shoppingList(Collection<String> recipes) {
+        boolean[] selected = null;
+        if (recipes != null) {
+            selected = new boolean[recipeKeys.size()];
+            for (String key : recipes) {
+                Integer recipe = recipeIds.get(key);
+                if (recipe != null) {
+                    selected[recipe] = true;
+                }
+            }
+        }
+        
+        // Sums per (ingredient, unit) pair, keyed by name id * unit count + unit id
+        int unitCount = Math.max(1, units.size());
+        Map<Long, double[]> sums = new HashMap<>();
+        for (int row = 0; row < rowCount; row++) {
+            int recipe = rowRecipes[row];
+            if (recipe >= 0 && (selected == null || selected[recipe])) {
+                long pair = (long) rowNames[row] * unitCount + rowUnits[row];
+                sums.computeIfAbsent(pair, key -> new double[1])[0] += rowAmounts[row];
+            }
+        }
+        List<Amount> list = new ArrayList<>(sums.size());
+        for (Map.Entry<Long, double[]> sum : sums.entrySet()) {
+            long pair = sum.getKey();
+            list.add(new Amount(names.get((int) (pair / unitCount)), units.get((int) (pair % unitCount)),
+                sum.getValue()[0]));
+        }
+        list.sort((a, b) -> a.ingredient.equals(b.ingredient)
+            ? a.unit.compareTo(b.unit) : a.ingredient.compareTo(b.ingredient));
+        return list;
+    }
+    
+    public void save(Path file) throws IOException {
+        compact();
+        ByteBuffer header = ByteBuffer.allocate(headerSize()).order(ByteOrder.LITTLE_ENDIAN);
+        header.put(MAGIC).put((byte) FORMAT_VERSION);
+        header.putInt(recipeKeys.size()).putInt(names.size()).putInt(units.size()).putInt(rowCount);
+        for (int recipe = 0; recipe < recipeKeys.size(); recipe++) {
+            putString(header, recipeKeys.get(recipe));
+            header.putLong(recipeSizes[recipe]).putLong(recipeModified[recipe]);
+        }
+        for (int i = 0; i < names.size(); i++) {
+            putString(header, names.get(i));
+        }
+        for (int i = 0; i < units.size(); i++) {
+            putString(header, units.get(i));
+        }
+        
+        ByteBuffer ints = ByteBuffer.allocate(align(rowCount * 4)).order(ByteOrder.LITTLE_ENDIAN);
+        ByteBuffer doubles = ByteBuffer.allocate(rowCount * 8).order(ByteOrder.LITTLE_ENDIAN);
+        doubles.asDoubleBuffer().put(rowAmounts, 0, rowCount);
+        
+        Path directory = file.toAbsolutePath().getParent();
+        Path temp = Files.createTempFile(directory, file.getFileName().toString(), ".tmp");
+        try {
+            try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.WRITE)) {
+                writeFully(channel, header);
+                for (int[] column : new int[][] {rowRecipes, rowNames, rowUnits}) {
+                    ints.clear();
+                    ints.asIntBuffer().put(column, 0, rowCount);
+                    writeFully(channel, ints);
+                }
+                writeFully(channel, doubles);
+            }
+            try {
+                Files.move(temp, file, StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING);
+            }
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+    
+    public static IngredientIndex load(RecipeConverter converter, Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            MappedByteBuffer mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            ByteBuffer data = mapped.order(ByteOrder.LITTLE_ENDIAN);
+            for (byte expected : MAGIC) {
+                if (data.remaining() == 0 || data.get() != expected) {
+                    throw new IOException("Not a CodeCola ingredient index");
+                }
+            }
+            int version = data.get();
+            if (version != FORMAT_VERSION) {
+                throw new IOException("Unsupported ingredient index version " + version);
+            }
+            
+            IngredientIndex index = new IngredientIndex(converter);
+            int recipeCount = data.getInt();
+            int nameCount = data.getInt();
+            int unitCount = data.getInt();
+            int rowCount = data.getInt();
+            index.recipeSizes = new long[Math.max(16, recipeCount)];
+            index.recipeModified = new long[Math.max(16, recipeCount)];
+            for (int recipe = 0; recipe < recipeCount; recipe++) {
+                String key = getString(data);
+                index.recipeIds.put(key, recipe);
+                index.recipeKeys.add(key);
+                index.recipeSizes[recipe] = data.getLong();
+                index.recipeModified[recipe] = data.getLong();
+            }
+            for (int i = 0; i < nameCount; i++) {
+                index.names.id(getString(data));
+            }
+            for (int i = 0; i < unitCount; i++) {
+                index.units.id(getString(data));
+            }
+            
+            int columns = align(data.position());
+            if (columns + 3L * align(rowCount * 4) + rowCount * 8L != data.limit()) {
+                throw new IOException("Ingredient index is truncated");
+            }
+            index.rowRecipes = readInts(data, columns, rowCount);
+            index.rowNames = readInts(data, columns + align(rowCount * 4), rowCount);
+            index.rowUnits = readInts(data, columns + 2 * align(rowCount * 4), rowCount);
+            index.rowAmounts = new double[Math.max(64, rowCount)];
+            data.position(columns + 3 * align(rowCount * 4));
+            data.slice().order(ByteOrder.LITTLE_ENDIAN).asDoubleBuffer().get(index.rowAmounts, 0, rowCount);
+            index.rowCount = rowCount;
+            return index;
+        } catch (BufferUnderflowException | IllegalArgumentException e) {
+            throw new IOException("Ingredient index is corrupt", e);
+        }
+    }
+    
+    // The rows of one file, or null after reporting why it cannot be read
+    private Parsed parse(Path file, String key, long size, long modified, PrintStream log) {
+        try {
+            return new Parsed(key, rowsOf(Files.readString(file, StandardCharsets.UTF_8)), size, modified);
+        } catch (IOException | UncheckedIOException e) {
+            log.println("Failed: " + file + ": " + e.getMessage());
+            return null;
+        }
+    }
+    
+    // Ingredient rows of one source: names, units and amounts, in step order
+    private Rows rowsOf(String code) {
+        Rows rows = new Rows();
+        for (RecipeStep step : converter.convertToRecipe(code).getSteps()) {
+            if (step.getAction() == RecipeStep.Action.PREPARE && step.getAmount() != null) {
+                rows.add(step.getIngredient(), step.getUnit(), step.getAmount().doubleValue());
+            }
+        }
+        return rows;
+    }
+    
+    // Adds the rows of a recipe whose old rows, if any, are already dead
+    private void apply(String key, Rows rows, long size, long modified) {
+        Integer existing = recipeIds.get(key);
+        int recipe;
+        if (existing != null) {
+            recipe = existing;
+        } else {
+            recipe = recipeKeys.size();
+            recipeKeys.add(key);
+            recipeIds.put(key, recipe);
+            if (recipe == recipeSizes.length) {
+                recipeSizes = Arrays.copyOf(recipeSizes, recipe * 2);
+                recipeModified = Arrays.copyOf(recipeModified, recipe * 2);
+            }
+        }
+        recipeSizes[recipe] = size;
+        recipeModified[recipe] = modified;
+        
+        ensureRows(rowCount + rows.count);
+        for (int i = 0; i < rows.count; i++) {
+            rowRecipes[rowCount] = recipe;
+            rowNames[rowCount] = names.id(rows.names.get(i));
+            rowUnits[rowCount] = units.id(rows.units.get(i));
+            rowAmounts[rowCount] = rows.amounts[i];
+            rowCount++;
+        }
+        if (deadRows * 2 > rowCount) {
+            compact();
+        }
+    }
+    
+    private void killRows(Set<Integer> recipes) {
+        if (recipes.isEmpty()) {
+            return;
+        }
+        boolean[] stale = new boolean[recipeKeys.size()];
+        for (int recipe : recipes) {
+            stale[recipe] = true;
+        }
+        for (int row = 0; row < rowCount; row++) {
+            if (rowRecipes[row] >= 0 && stale[rowRecipes[row]]) {
+                rowRecipes[row] = -1;
+                deadRows++;
+            }
+        }
+    }
+    
+    // Drops dead rows and removed recipes; recipe ids are renumbered
+    private void compact() {
+        int[] newIds = new int[recipeKeys.size()];
+        int recipes = 0;
+        for (int recipe = 0; recipe < recipeKeys.size(); recipe++) {
+            String key = recipeKeys.get(recipe);
+            newIds[recipe] = key == null ? -1 : recipes;
+            if (key != null) {
+                recipeKeys.set(recipes, key);
+                recipeIds.put(key, recipes);
+                recipeSizes[recipes] = recipeSizes[recipe];
+                recipeModified[recipes] = recipeModified[recipe];
+                recipes++;
+            }
+        }
+        recipeKeys.subList(recipes, recipeKeys.size()).clear();
+        
+        int live = 0;
+        for (int row = 0; row < rowCount; row++) {
+            if (rowRecipes[row] >= 0) {
+                rowRecipes[live] = newIds[rowRecipes[row]];
+                rowNames[live] = rowNames[row];
+                rowUnits[live] = rowUnits[row];
+                rowAmounts[live] = rowAmounts[row];
+                live++;
+            }
+        }
+        rowCount = live;
+        deadRows = 0;
+    }
+    
+    private void ensureRows(int capacity) {
+        if (capacity > rowRecipes.length) {
+            int grown = Math.max(capacity, rowRecipes.length * 2);
+            rowRecipes = Arrays.copyOf(rowRecipes, grown);
+            rowNames = Arrays.copyOf(rowNames, grown);
+            rowUnits = Arrays.copyOf(rowUnits, grown);
+            rowAmounts = Arrays.copyOf(rowAmounts, grown);
+        }
+    }
+    
+    private int headerSize() {
+        int size = MAGIC.length + 1 + 16;
+        for (String key : recipeKeys) {
+            size += 4 + key.getBytes(StandardCharsets.UTF_8).length + 16;
+        }
+        for (int i = 0; i < names.size(); i++) {
+            size += 4 + names.get(i).getBytes(StandardCharsets.UTF_8).length;
+        }
+        for (int i = 0; i < units.size(); i++) {
+            size += 4 + units.get(i).getBytes(StandardCharsets.UTF_8).length;
+        }
+        return align(size);
+    }
+    
+    private static int align(int size) {
+        return (size + 7) & ~7;
+    }
+    
+    private static void putString(ByteBuffer buffer, String value) {
+        byte[] utf8 = value.getBytes(StandardCharsets.UTF_8);
+        buffer.putInt(utf8.length).put(utf8);
+    }
+    
+    private static String getString(ByteBuffer buffer) {
+        byte[] utf8 = new byte[buffer.getInt()];
+        buffer.get(utf8);
+        return new String(utf8, StandardCharsets.UTF_8);
+    }
+    
+    private static int[] readInts(ByteBuffer data, int offset, int count) {
+        int[] column = new int[Math.max(64, count)];
+        data.position(offset);
+        data.slice().order(ByteOrder.LITTLE_ENDIAN).asIntBuffer().get(column, 0, count);
+        return column;
+    }
+    
+    // Writes the whole buffer up to its limit, which includes the padding
+    private static void writeFully(FileChannel channel, ByteBuffer buffer) throws IOException {
+        buffer.rewind();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+    }
+    
+    // Shortest plain form of an amount: 500 rather than 500.0
+    static String format(double amount) {
+        return BigDecimal.valueOf(amount).stripTrailingZeros().toPlainString();
+    }
+    
+    // Strings by dense int id, in the order they were first seen
+    private static final class Dictionary {
+        private final List<String> values = new ArrayList<>();
+        private final Map<String, Integer> ids = new HashMap<>();
+        
+        int id(String value) {
+            Integer id = ids.get(value);
+            if (id == null) {
+                id = values.size();
+                values.add(value);
+                ids.put(value, id);
+            }
+            return id;
+        }
+        
+        // The id of value, or -1 when it was never seen
+        int find(String value) {
+            Integer id = value == null ? null : ids.get(value);
+            return id == null ? -1 : id;
+        }
+        
+        String get(int id) {
+            return values.get(id);
+        }
+        
+        int size() {
+            return values.size();
+        }
+    }
+    
+    private static final class Rows {
+        final List<String> names = new ArrayList<>();
+        final List<String> units = new ArrayList<>();
+        double[] amounts = new double[8];
+        int count;
+        
+        void add(String name, String unit, double amount) {
+            if (count == amounts.length) {
+                amounts = Arrays.copyOf(amounts, count * 2);
+            }
+            names.add(name);
+            units.add(unit);
+            amounts[count++] = amount;
+        }
+    }
+    
+    private static final class Parsed {
+        final String key;
+        final Rows rows;
+        final long size;
+        final long modified;
+        
+        Parsed(String key, Rows rows, long size, long modified) {
+            this.key = key;
+            this.rows = rows;
+            this.size = size;
+            this.modified = modified;
+        }
+    }
+}
@@ -0,0 +1,82 @@
+package codecola;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+// Ingredients declared anywhere in a project, so a file can use ingredients
+// another file declares. The first pass of a project conversion fills it from
+// many threads at once; the second pass only reads it. ConcurrentHashMap reads
+// take no lock and writes lock a single bin, so neither pass funnels through
+// one monitor. When several files declare the same name, the declaration from
+// the first file in path order wins, whatever order the threads ran in.
+public final class IngredientTable {
+    private final ConcurrentHashMap<String, Declaration> declarations = new ConcurrentHashMap<>();
+    
+    // The winning declaration of a name. Only changed inside compute, under
+    // the lock of the name's bin; the second pass reads it after the first
+    // has finished.
+    private static final class Declaration {
+        String value;
+        String source;
+        // Last value of every other file declaring the name, created when a
+        // second file does. Kept so conflicts are counted once collection is
+        // done, not by the order the threads merged in.
+        Map<String, String> others;
+        
+        Declaration(String value, String source) {
+            this.value = value;
+            this.source = source;
+        }
+    }
+    
+    void declare(String name, String value, String source) {
+        declarations.compute(name, (key, declaration) -> {
+            if (declaration == null) {
+                return new Declaration(value, source);
+            }
+            if (declaration.source.equals(source)) {
+                // Later in the same file, as in a single-file conversion
+                declaration.value = value;
+                return declaration;
+            }
+            if (declaration.others == null) {
+                declaration.others = new HashMap<>();
+            }
+            if (source.compareTo(declaration.source) < 0) {
+                declaration.others.put(declaration.source, declaration.value);
+                declaration.value = value;
+                declaration.source = source;
+            } else {
+                declaration.others.put(source, value);
+            }
+            return declaration;
+        });
+    }
+    
+    // Value of the ingredient, or null when no file declares it
+    public String valueOf(String name) {
+        Declaration declaration = declarations.get(name);
+        return declaration != null ? declaration.value : null;
+    }
+    
+    public int size() {
+        return declarations.size();
+    }
+    
+    // Files that declare a name with another value than the one that wins;
+    // only meaningful once every file is collected
+    public long getConflicts() {
+        long conflicts = 0;
+        for (Declaration declaration : declarations.values()) {
+            if (declaration.others != null) {
+                for (String value : declaration.others.values()) {
+                    if (!value.equals(declaration.value)) {
+                        conflicts++;
+                    }
+                }
+            }
+        }
+        return conflicts;
+    }
+}
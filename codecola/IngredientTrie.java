@@ -0,0 +1,100 @@
+package codecola;
+
+import java.util.Arrays;
+
+// Trie over the declared ingredient names, grown one name at a time as the
+// converter meets declarations. formatArguments walks it while scanning an
+// identifier, so a lookup costs one step per character no matter how many
+// ingredients exist, and no substring has to be cut out of the arguments.
+final class IngredientTrie {
+    static final int ROOT = 0;
+    
+    // Edges live in one open-addressing table keyed by (parent node, char)
+    private long[] edgeKeys = new long[64];
+    private int[] edgeTargets = new int[64];
+    private int edgeCount;
+    
+    private String[] values = new String[32];
+    private int nodeCount = 1;
+    
+    void put(String name, String value) {
+        int node = ROOT;
+        for (int i = 0; i < name.length(); i++) {
+            char c = name.charAt(i);
+            int next = child(node, c);
+            if (next < 0) {
+                next = addNode();
+                addEdge(node, c, next);
+            }
+            node = next;
+        }
+        values[node] = value;
+    }
+    
+    // Returns the child of node for c, or -1 when there is none
+    int child(int node, char c) {
+        long key = edgeKey(node, c);
+        int mask = edgeKeys.length - 1;
+        for (int slot = hash(key) & mask; ; slot = (slot + 1) & mask) {
+            long stored = edgeKeys[slot];
+            if (stored == key) {
+                return edgeTargets[slot];
+            }
+            if (stored == 0) {
+                return -1;
+            }
+        }
+    }
+    
+    // The value stored for the name ending at node, or null
+    String valueAt(int node) {
+        return values[node];
+    }
+    
+    private int addNode() {
+        if (nodeCount == values.length) {
+            values = Arrays.copyOf(values, values.length * 2);
+        }
+        return nodeCount++;
+    }
+    
+    private void addEdge(int parent, char c, int target) {
+        if ((edgeCount + 1) * 2 > edgeKeys.length) {
+            rehash(edgeKeys.length * 2);
+        }
+        insert(edgeKey(parent, c), target);
+        edgeCount++;
+    }
+    
+    private void insert(long key, int target) {
+        int mask = edgeKeys.length - 1;
+        int slot = hash(key) & mask;
+        while (edgeKeys[slot] != 0) {
+            slot = (slot + 1) & mask;
+        }
+        edgeKeys[slot] = key;
+        edgeTargets[slot] = target;
+    }
+    
+    private void rehash(int capacity) {
+        long[] oldKeys = edgeKeys;
+        int[] oldTargets = edgeTargets;
+        edgeKeys = new long[capacity];
+        edgeTargets = new int[capacity];
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldKeys[i] != 0) {
+                insert(oldKeys[i], oldTargets[i]);
+            }
+        }
+    }
+    
+    // Never 0, which marks an empty slot
+    private static long edgeKey(int node, char c) {
+        return (long) (node + 1) << 16 | c;
+    }
+    
+    private static int hash(long key) {
+        long h = key * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32));
+    }
+}
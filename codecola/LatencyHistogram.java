@@ -0,0 +1,57 @@
+package codecola;
+
+import java.util.concurrent.atomic.LongAdder;
+
+// Counts durations in power-of-two nanosecond buckets. Bucket b holds
+// durations below 2^b ns, so percentiles are exact to within a factor of two,
+// which is enough to see where time goes. Safe to update from any thread.
+final class LatencyHistogram {
+    private static final int BUCKETS = 48;
+    
+    private final LongAdder[] buckets = new LongAdder[BUCKETS];
+    private final LongAdder count = new LongAdder();
+    private final LongAdder totalNanos = new LongAdder();
+    
+    LatencyHistogram() {
+        for (int i = 0; i < BUCKETS; i++) {
+            buckets[i] = new LongAdder();
+        }
+    }
+    
+    void record(long nanos) {
+        int bucket = Math.min(BUCKETS - 1, 64 - Long.numberOfLeadingZeros(Math.max(0, nanos)));
+        buckets[bucket].increment();
+        count.increment();
+        totalNanos.add(nanos);
+    }
+    
+    long getCount() {
+        return count.sum();
+    }
+    
+    double getMeanNanos() {
+        long n = count.sum();
+        return n == 0 ? 0 : (double) totalNanos.sum() / n;
+    }
+    
+    // Upper bound of the bucket holding the given fraction of all samples
+    long getPercentileNanos(double fraction) {
+        long target = (long) Math.ceil(count.sum() * fraction);
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += buckets[i].sum();
+            if (seen >= target && seen > 0) {
+                return 1L << i;
+            }
+        }
+        return 0;
+    }
+    
+    void reset() {
+        for (LongAdder bucket : buckets) {
+            bucket.reset();
+        }
+        count.reset();
+        totalNanos.reset();
+    }
+}
@@ -0,0 +1,197 @@
+package codecola;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+// Finds the lines two versions of a text have in common with Myers' O((N+M)D)
+// algorithm, D being the number of inserted and deleted lines, in its linear
+// space form. Equal lines at the start and end are matched first, so a
+// typical edit costs one pass over the text plus a search over the few lines
+// around it. Past MAX_EDITS the remaining middle is reported as replaced
+// wholesale instead.
+final class LineDiff {
+    static final int MAX_EDITS = 4096;
+    
+    // Each hunk is {oldFrom, oldCount, newFrom, newCount}, in text order
+    static List<int[]> hunks(List<String> oldLines, List<String> newLines) {
+        int n = oldLines.size();
+        int m = newLines.size();
+        int prefix = 0;
+        while (prefix < n && prefix < m && oldLines.get(prefix).equals(newLines.get(prefix))) {
+            prefix++;
+        }
+        int suffix = 0;
+        while (suffix < n - prefix && suffix < m - prefix
+                && oldLines.get(n - 1 - suffix).equals(newLines.get(m - 1 - suffix))) {
+            suffix++;
+        }
+        
+        // Lines become small ints so the search compares numbers, not strings
+        Map<String, Integer> ids = new HashMap<>();
+        int[] a = new int[n - prefix - suffix];
+        int[] b = new int[m - prefix - suffix];
+        for (int i = 0; i < a.length; i++) {
+            a[i] = ids.computeIfAbsent(oldLines.get(prefix + i), line -> ids.size());
+        }
+        for (int i = 0; i < b.length; i++) {
+            b[i] = ids.computeIfAbsent(newLines.get(prefix + i), line -> ids.size());
+        }
+        
+        List<int[]> hunks = new ArrayList<>();
+        boolean[] oldMatched = new boolean[a.length];
+        boolean[] newMatched = new boolean[b.length];
+        if (!match(a, b, oldMatched, newMatched)) {
+            if (a.length > 0 || b.length > 0) {
+                hunks.add(new int[] {prefix, a.length, prefix, b.length});
+            }
+            return hunks;
+        }
+        
+        int i = 0;
+        int j = 0;
+        while (i < a.length || j < b.length) {
+            if (i < a.length && j < b.length && oldMatched[i] && newMatched[j]) {
+                i++;
+                j++;
+                continue;
+            }
+            int oldFrom = i;
+            int newFrom = j;
+            while (i < a.length && !oldMatched[i]) {
+                i++;
+            }
+            while (j < b.length && !newMatched[j]) {
+                j++;
+            }
+            hunks.add(new int[] {prefix + oldFrom, i - oldFrom, prefix + newFrom, j - newFrom});
+        }
+        return hunks;
+    }
+    
+    // Marks the lines of a longest common subsequence; false when it would
+    // take more than MAX_EDITS edits
+    private static boolean match(int[] a, int[] b, boolean[] oldMatched, boolean[] newMatched) {
+        return new Matcher(a, b, oldMatched, newMatched).match(0, a.length, 0, b.length, MAX_EDITS);
+    }
+    
+    // Myers' linear space refinement: the middle snake of the shortest edit
+    // script is found by searching from both ends at once, and the parts
+    // before and after it are matched the same way. Two arrays of N+M ints
+    // serve every part, instead of one array per round of a single search.
+    private static final class Matcher {
+        private final int[] a;
+        private final int[] b;
+        private final boolean[] oldMatched;
+        private final boolean[] newMatched;
+        // Furthest x per diagonal k at index offset + k, from the start and
+        // from the end
+        private final int[] forward;
+        private final int[] backward;
+        private final int offset;
+        // The middle snake the last search found, from (x, y) to (u, v)
+        private int snakeX;
+        private int snakeY;
+        private int snakeU;
+        private int snakeV;
+        
+        Matcher(int[] a, int[] b, boolean[] oldMatched, boolean[] newMatched) {
+            this.a = a;
+            this.b = b;
+            this.oldMatched = oldMatched;
+            this.newMatched = newMatched;
+            this.offset = (a.length + b.length + 1) / 2 + 1;
+            this.forward = new int[2 * offset + 1];
+            this.backward = new int[2 * offset + 1];
+        }
+        
+        // Matches a[aFrom, aTo) against b[bFrom, bTo); false when that takes
+        // more than maxEdits edits
+        boolean match(int aFrom, int aTo, int bFrom, int bTo, int maxEdits) {
+            while (aFrom < aTo && bFrom < bTo && a[aFrom] == b[bFrom]) {
+                oldMatched[aFrom++] = true;
+                newMatched[bFrom++] = true;
+            }
+            while (aFrom < aTo && bFrom < bTo && a[aTo - 1] == b[bTo - 1]) {
+                oldMatched[--aTo] = true;
+                newMatched[--bTo] = true;
+            }
+            if (aFrom == aTo || bFrom == bTo) {
+                return aTo - aFrom + bTo - bFrom <= maxEdits;
+            }
+            
+            // Both ends differ, so there are at least two edits and each side
+            // of the snake has fewer than the whole
+            if (middleSnake(aFrom, aTo, bFrom, bTo, maxEdits) < 0) {
+                return false;
+            }
+            int x = snakeX;
+            int y = snakeY;
+            int u = snakeU;
+            int v = snakeV;
+            match(aFrom, x, bFrom, y, Integer.MAX_VALUE);
+            for (int i = x, j = y; i < u; i++, j++) {
+                oldMatched[i] = true;
+                newMatched[j] = true;
+            }
+            match(u, aTo, v, bTo, Integer.MAX_VALUE);
+            return true;
+        }
+        
+        // The number of edits between the two ranges, with the middle snake
+        // of their edit script stored, or -1 past maxEdits
+        private int middleSnake(int aFrom, int aTo, int bFrom, int bTo, int maxEdits) {
+            int n = aTo - aFrom;
+            int m = bTo - bFrom;
+            int delta = n - m;
+            boolean odd = (delta & 1) != 0;
+            forward[offset + 1] = 0;
+            backward[offset + 1] = 0;
+            for (int d = 0; 2 * d - 1 <= maxEdits; d++) {
+                for (int k = -d; k <= d; k += 2) {
+                    int x = k == -d || (k != d && forward[offset + k - 1] < forward[offset + k + 1])
+                        ? forward[offset + k + 1]
+                        : forward[offset + k - 1] + 1;
+                    int y = x - k;
+                    int startX = x;
+                    int startY = y;
+                    while (x < n && y < m && a[aFrom + x] == b[bFrom + y]) {
+                        x++;
+                        y++;
+                    }
+                    forward[offset + k] = x;
+                    if (odd && Math.abs(delta - k) <= d - 1 && x + backward[offset + delta - k] >= n) {
+                        snake(aFrom + startX, bFrom + startY, aFrom + x, bFrom + y);
+                        return 2 * d - 1;
+                    }
+                }
+                for (int k = -d; k <= d; k += 2) {
+                    int x = k == -d || (k != d && backward[offset + k - 1] < backward[offset + k + 1])
+                        ? backward[offset + k + 1]
+                        : backward[offset + k - 1] + 1;
+                    int y = x - k;
+                    int startX = x;
+                    int startY = y;
+                    while (x < n && y < m && a[aTo - 1 - x] == b[bTo - 1 - y]) {
+                        x++;
+                        y++;
+                    }
+                    backward[offset + k] = x;
+                    if (!odd && Math.abs(delta - k) <= d && x + forward[offset + delta - k] >= n) {
+                        snake(aTo - x, bTo - y, aTo - startX, bTo - startY);
+                        return 2 * d <= maxEdits ? 2 * d : -1;
+                    }
+                }
+            }
+            return -1;
+        }
+        
+        private void snake(int x, int y, int u, int v) {
+            snakeX = x;
+            snakeY = y;
+            snakeU = u;
+            snakeV = v;
+        }
+    }
+}
@@ -0,0 +1,167 @@
+package codecola;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+
+// Splits a character stream on '\n' only, exactly like String.split("\n") did,
+// so line numbers and a stray '\r' come out the same as before.
+//
+// Given a FileChannel it reads UTF-8 straight from a memory-mapped window of
+// the file instead. '\n' never occurs inside a multi-byte UTF-8 sequence, so
+// lines are found on the bytes and only each line is decoded. The window
+// moves along the file, so any file size works with lines up to its size.
+//
+// With a maximum line length, only that many characters of a longer line are
+// kept (bytes for a mapped file, which may then end mid-character), however
+// long it is; getLineLength still tells its full length.
+final class LineReader {
+    private static final int WINDOW_SIZE = 64 << 20;
+    
+    private final Reader reader;
+    private final char[] buffer;
+    private final StringBuilder line;
+    private int position;
+    private int limit;
+    private int lineNumber;
+    private long lineLength;
+    private int maxLineLength = Integer.MAX_VALUE;
+    private long charsBefore;
+    private boolean eof;
+    
+    private final FileChannel channel;
+    private final long fileSize;
+    private MappedByteBuffer mapped;
+    private long windowStart;
+    private byte[] bytes;
+    
+    LineReader(Reader reader) {
+        this.reader = reader;
+        this.buffer = new char[8192];
+        this.line = new StringBuilder();
+        this.channel = null;
+        this.fileSize = 0;
+    }
+    
+    // The caller keeps the channel open while reading and closes it
+    LineReader(FileChannel channel) throws IOException {
+        this.reader = null;
+        this.buffer = null;
+        this.line = null;
+        this.channel = channel;
+        this.fileSize = channel.size();
+        this.bytes = new byte[256];
+        map(0);
+    }
+    
+    String readLine() throws IOException {
+        if (eof) {
+            return null;
+        }
+        if (channel != null) {
+            return readMappedLine();
+        }
+        line.setLength(0);
+        lineLength = 0;
+        while (true) {
+            if (position == limit) {
+                charsBefore += limit;
+                limit = reader.read(buffer, 0, buffer.length);
+                position = 0;
+                if (limit <= 0) {
+                    limit = 0;
+                    eof = true;
+                    lineNumber++;
+                    return line.toString();
+                }
+            }
+            int start = position;
+            while (position < limit && buffer[position] != '\n') {
+                position++;
+            }
+            int room = maxLineLength - line.length();
+            line.append(buffer, start, Math.min(position - start, room));
+            lineLength += position - start;
+            if (position < limit) {
+                position++;
+                lineNumber++;
+                return line.toString();
+            }
+        }
+    }
+    
+    private String readMappedLine() throws IOException {
+        // Bytes of an over-long line that lay in earlier windows
+        long passed = 0;
+        int kept = 0;
+        while (true) {
+            int start = mapped.position();
+            int limit = mapped.limit();
+            int end = start;
+            while (end < limit && mapped.get(end) != '\n') {
+                end++;
+            }
+            boolean lastLine = end == limit && windowStart + limit == fileSize;
+            if (end < limit || lastLine) {
+                if (passed == 0) {
+                    kept = keep(start, end - start);
+                }
+                lineLength = passed + end - start;
+                mapped.position(lastLine ? end : end + 1);
+                eof = lastLine;
+                lineNumber++;
+                return new String(bytes, 0, kept, StandardCharsets.UTF_8);
+            }
+            if (start == 0) {
+                if (maxLineLength >= WINDOW_SIZE) {
+                    throw new IOException("Line " + (lineNumber + 1) + " is longer than " + WINDOW_SIZE + " bytes");
+                }
+                // Too long either way; keep its start and look for its end in the next window
+                if (passed == 0) {
+                    kept = keep(0, limit);
+                }
+                passed += limit;
+                map(windowStart + limit);
+                continue;
+            }
+            // The line runs past the window; map again from where it starts
+            map(windowStart + start);
+        }
+    }
+    
+    // Copies the start of a line, up to the maximum length, into bytes
+    private int keep(int start, int length) {
+        int kept = Math.min(length, maxLineLength);
+        if (kept > bytes.length) {
+            bytes = new byte[Math.max(kept, bytes.length * 2)];
+        }
+        mapped.get(start, bytes, 0, kept);
+        return kept;
+    }
+    
+    private void map(long offset) throws IOException {
+        windowStart = offset;
+        mapped = channel.map(FileChannel.MapMode.READ_ONLY, offset, Math.min(WINDOW_SIZE, fileSize - offset));
+    }
+    
+    int getLineNumber() {
+        return lineNumber;
+    }
+    
+    void setMaxLineLength(int maxLineLength) {
+        this.maxLineLength = maxLineLength;
+    }
+    
+    // Full length of the last line read, even when it was cut to the maximum
+    long getLineLength() {
+        return lineLength;
+    }
+    
+    // Characters consumed so far, including the line breaks; bytes for a
+    // mapped file
+    long getCharsRead() {
+        return channel != null ? windowStart + mapped.position() : charsBefore + position;
+    }
+}
@@ -0,0 +1,195 @@
+package codecola;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.regex.Matcher;
+
+// Converts one large file on several threads, with output identical to
+// RecipeConverter.convert. The file is cut into chunks at class and method
+// headers, and each chunk is parsed in parallel as if it started the file,
+// noting for every call which ingredients it looked up and what values it
+// saw. A sequential pass then replays the declarations in file order and
+// parses again only the calls that saw a different value than the full
+// file gives them, typically those using ingredients from earlier chunks.
+// Steps are numbered in that last pass, so numbering cannot differ either.
+public class ParallelConverter {
+    // Smaller inputs are not worth the coordination
+    static final int MIN_PARALLEL_LINES = 4096;
+    // How far past the ideal cut a chunk may run to end at a header
+    private static final int BOUNDARY_SEARCH_LINES = 256;
+    private static final String ERROR_PREFIX = "Error in line ";
+    
+    private final RecipeConverter converter;
+    private final int parallelism;
+    
+    public ParallelConverter(RecipeConverter converter, int parallelism) {
+        this.converter = converter;
+        this.parallelism = parallelism;
+    }
+    
+    public ConversionResult convert(String code) {
+        Vocabulary vocabulary = converter.getVocabulary();
+        ConversionLimits limits = converter.getLimits();
+        List<String> lines = IncrementalConverter.splitLines(code);
+        // The time limit is for the whole conversion, so guarded ones stay on one thread
+        if (parallelism <= 1 || lines.size() < MIN_PARALLEL_LINES || limits != null) {
+            return converter.convert(code, vocabulary, limits);
+        }
+        
+        ParsedLines parsed = new ParsedLines(lines.size());
+        List<int[]> chunks = chunks(lines);
+        ForkJoinPool pool = new ForkJoinPool(parallelism);
+        try {
+            pool.invoke(new ParseTask(lines, chunks, 0, chunks.size(), parsed, vocabulary));
+        } finally {
+            pool.shutdown();
+        }
+        return replay(lines, parsed, vocabulary);
+    }
+    
+    // Chunks of about equal size, each extended to the next class or method
+    // header when one is near, so most ingredients are used in the chunk
+    // that declares them
+    List<int[]> chunks(List<String> lines) {
+        int target = Math.max(MIN_PARALLEL_LINES / 4, lines.size() / (parallelism * 4));
+        Matcher methodDefinition = RecipeConverter.METHOD_DEFINITION.matcher("");
+        List<int[]> chunks = new ArrayList<>();
+        int from = 0;
+        while (from < lines.size()) {
+            int to = Math.min(lines.size(), from + target);
+            int limit = Math.min(lines.size(), to + BOUNDARY_SEARCH_LINES);
+            for (int i = to; i < limit; i++) {
+                String line = lines.get(i).trim();
+                if (line.contains("class ") || methodDefinition.reset(line).matches()) {
+                    to = i;
+                    break;
+                }
+            }
+            chunks.add(new int[] {from, to});
+            from = to;
+        }
+        return chunks;
+    }
+    
+    private void parseChunk(List<String> lines, int from, int to, ParsedLines parsed, Vocabulary vocabulary) {
+        ConversionContext context = new ConversionContext(vocabulary, false);
+        List<String> references = new ArrayList<>(4);
+        for (int i = from; i < to; i++) {
+            String line = lines.get(i).trim();
+            if (RecipeConverter.isIgnored(line)) {
+                continue;
+            }
+            context.declaredName = null;
+            context.declaredValue = null;
+            references.clear();
+            context.references = references;
+            parsed.steps[i] = converter.parseLine(line, i + 1, context).toString();
+            parsed.declaredNames[i] = context.declaredName;
+            parsed.declaredValues[i] = context.declaredValue;
+            if (!references.isEmpty()) {
+                parsed.references[i] = new ArrayList<>(references);
+            }
+        }
+    }
+    
+    private ConversionResult replay(List<String> lines, ParsedLines parsed, Vocabulary vocabulary) {
+        ConversionContext context = new ConversionContext(vocabulary, true);
+        StringBuilder recipe = new StringBuilder();
+        try {
+            RecipeConverter.appendHeader(recipe);
+            for (int i = 0; i < lines.size(); i++) {
+                String step = parsed.steps[i];
+                if (step == null) {
+                    continue;
+                }
+                if (needsParse(step, parsed.references[i], context)) {
+                    step = converter.reparseLine(lines.get(i).trim(), i + 1, context).toString();
+                } else if (parsed.declaredNames[i] != null) {
+                    context.declare(parsed.declaredNames[i], parsed.declaredValues[i]);
+                }
+                if (!step.isEmpty()) {
+                    recipe.append(++context.stepCount).append(". ").append(step).append('\n');
+                    context.recipeSteps.add(step);
+                }
+            }
+            RecipeConverter.appendFooter(recipe, context.variables.size(), context.stepCount);
+        } catch (IOException e) {
+            // Cannot happen for in-memory output
+            throw new UncheckedIOException(e);
+        }
+        if (ConversionMetrics.ENABLED) {
+            ConversionMetrics.finish(context, "parallel", lines.size());
+        }
+        return new ConversionResult(recipe.toString(), context.recipeSteps, context.variables.size());
+    }
+    
+    // Pairs of (name, value seen) must match the ingredients declared so far
+    private static boolean needsParse(String step, List<String> references, ConversionContext context) {
+        if (step.startsWith(ERROR_PREFIX)) {
+            return true;
+        }
+        if (references != null) {
+            for (int i = 0; i < references.size(); i += 2) {
+                if (!Objects.equals(context.variables.get(references.get(i)), references.get(i + 1))) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+    
+    // What the parallel pass found, one slot per line; a null step means the
+    // line is blank or a comment
+    private static final class ParsedLines {
+        final String[] steps;
+        final String[] declaredNames;
+        final String[] declaredValues;
+        final List<String>[] references;
+        
+        @SuppressWarnings("unchecked")
+        ParsedLines(int lineCount) {
+            steps = new String[lineCount];
+            declaredNames = new String[lineCount];
+            declaredValues = new String[lineCount];
+            references = (List<String>[]) new List<?>[lineCount];
+        }
+    }
+    
+    @SuppressWarnings("serial")
+    private class ParseTask extends RecursiveAction {
+        private final List<String> lines;
+        private final List<int[]> chunks;
+        private final int from;
+        private final int to;
+        private final ParsedLines parsed;
+        private final Vocabulary vocabulary;
+        
+        ParseTask(List<String> lines, List<int[]> chunks, int from, int to, ParsedLines parsed,
+                Vocabulary vocabulary) {
+            this.lines = lines;
+            this.chunks = chunks;
+            this.from = from;
+            this.to = to;
+            this.parsed = parsed;
+            this.vocabulary = vocabulary;
+        }
+        
+        @Override
+        protected void compute() {
+            if (to - from == 1) {
+                int[] chunk = chunks.get(from);
+                parseChunk(lines, chunk[0], chunk[1], parsed, vocabulary);
+                return;
+            }
+            
+            int middle = (from + to) >>> 1;
+            invokeAll(new ParseTask(lines, chunks, from, middle, parsed, vocabulary),
+                new ParseTask(lines, chunks, middle, to, parsed, vocabulary));
+        }
+    }
+}
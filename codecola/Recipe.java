@@ -0,0 +1,50 @@
+package codecola;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Collections;
+import java.util.List;
+
+// A converted recipe as typed steps. toText gives the exact text the
+// converter prints for the same input, so a stored Recipe is enough to
+// show the recipe again.
+public final class Recipe {
+    private final List<RecipeStep> steps;
+    private final int ingredientCount;
+    
+    public Recipe(List<RecipeStep> steps, int ingredientCount) {
+        this.steps = Collections.unmodifiableList(steps);
+        this.ingredientCount = ingredientCount;
+    }
+    
+    public List<RecipeStep> getSteps() {
+        return steps;
+    }
+    
+    public int getIngredientCount() {
+        return ingredientCount;
+    }
+    
+    public RecipeStatistics getStatistics() {
+        return new RecipeStatistics(ingredientCount, steps.size());
+    }
+    
+    public String toText() {
+        StringBuilder recipe = new StringBuilder(steps.size() * 32 + 256);
+        try {
+            RecipeConverter.appendHeader(recipe);
+            for (int i = 0; i < steps.size(); i++) {
+                RecipeStep step = steps.get(i);
+                for (int d = 0; d < step.getDepth(); d++) {
+                    recipe.append("  ");
+                }
+                recipe.append(i + 1).append(". ").append(step.getText()).append('\n');
+            }
+            RecipeConverter.appendFooter(recipe, ingredientCount, steps.size());
+        } catch (IOException e) {
+            // Cannot happen for in-memory output
+            throw new UncheckedIOException(e);
+        }
+        return recipe.toString();
+    }
+}
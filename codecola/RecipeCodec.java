@@ -0,0 +1,329 @@
+package codecola;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+// Binary and JSON encodings of a Recipe.
+//
+// The binary form starts with "CCR" and a format version, then holds the
+// ingredient count and a table of every distinct string (ingredient names,
+// units, arguments, conditions). Each step is then an action byte, a flag
+// byte saying which fields follow, the line as a delta to the previous
+// step, the depth, and string table indexes. Numbers are unsigned LEB128
+// varints, signed ones zigzag encoded first. Amounts are the unscaled
+// value and the scale of the decimal.
+//
+// Reading trusts no count or length in the data: arrays grow with the bytes
+// actually read, and a depth or scale no converter produces is rejected, so
+// corrupt input fails with an IOException rather than a huge allocation.
+public final class RecipeCodec {
+    private static final byte[] MAGIC = {'C', 'C', 'R'};
+    private static final int FORMAT_VERSION = 1;
+    
+    private static final int HAS_INGREDIENT = 1;
+    private static final int HAS_AMOUNT = 2;
+    private static final int HAS_UNIT = 4;
+    private static final int HAS_DETAIL = 8;
+    private static final int HAS_TARGET = 16;
+    
+    private static final RecipeStep.Action[] ACTIONS = RecipeStep.Action.values();
+    // Deepest step the structured backend gives, a skipped block one level
+    // below the deepest parsed one
+    private static final int MAX_DEPTH = SyntaxTree.MAX_DEPTH + 1;
+    // Amounts are parsed from literals of at most 18 characters
+    private static final int MAX_SCALE = 18;
+    
+    private RecipeCodec() {
+    }
+    
+    public static byte[] toBinary(Recipe recipe) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(recipe.getSteps().size() * 6 + 64);
+        try {
+            write(recipe, bytes);
+        } catch (IOException e) {
+            // Cannot happen for in-memory output
+            throw new UncheckedIOException(e);
+        }
+        return bytes.toByteArray();
+    }
+    
+    public static Recipe fromBinary(byte[] data) throws IOException {
+        return read(new ByteArrayInputStream(data));
+    }
+    
+    public static void write(Recipe recipe, OutputStream output) throws IOException {
+        List<RecipeStep> steps = recipe.getSteps();
+        Map<String, Integer> indexes = new HashMap<>();
+        List<String> strings = new ArrayList<>();
+        for (RecipeStep step : steps) {
+            intern(step.getIngredient(), indexes, strings);
+            intern(step.getUnit(), indexes, strings);
+            intern(step.getDetail(), indexes, strings);
+            intern(step.getTarget(), indexes, strings);
+        }
+        
+        Encoder out = new Encoder(output);
+        out.bytes(MAGIC, MAGIC.length);
+        out.varint(FORMAT_VERSION);
+        out.varint(recipe.getIngredientCount());
+        out.varint(strings.size());
+        for (String string : strings) {
+            byte[] utf8 = string.getBytes(StandardCharsets.UTF_8);
+            out.varint(utf8.length);
+            out.bytes(utf8, utf8.length);
+        }
+        
+        out.varint(steps.size());
+        int previousLine = 0;
+        for (RecipeStep step : steps) {
+            int flags = (step.getIngredient() != null ? HAS_INGREDIENT : 0)
+                | (step.getAmount() != null ? HAS_AMOUNT : 0)
+                | (step.getUnit() != null ? HAS_UNIT : 0)
+                | (step.getDetail() != null ? HAS_DETAIL : 0)
+                | (step.getTarget() != null ? HAS_TARGET : 0);
+            out.varint(step.getAction().ordinal());
+            out.varint(flags);
+            out.signed(step.getLine() - previousLine);
+            out.varint(step.getDepth());
+            previousLine = step.getLine();
+            
+            if (step.getIngredient() != null) {
+                out.varint(indexes.get(step.getIngredient()));
+            }
+            if (step.getAmount() != null) {
+                out.signed(step.getAmount().unscaledValue().longValueExact());
+                out.varint(step.getAmount().scale());
+            }
+            if (step.getUnit() != null) {
+                out.varint(indexes.get(step.getUnit()));
+            }
+            if (step.getDetail() != null) {
+                out.varint(indexes.get(step.getDetail()));
+            }
+            if (step.getTarget() != null) {
+                out.varint(indexes.get(step.getTarget()));
+            }
+        }
+        out.flush();
+    }
+    
+    public static Recipe read(InputStream input) throws IOException {
+        Decoder in = new Decoder(input);
+        for (byte expected : MAGIC) {
+            if (in.next() != expected) {
+                throw new IOException("Not a CodeCola recipe");
+            }
+        }
+        int version = in.varint();
+        if (version != FORMAT_VERSION) {
+            throw new IOException("Unsupported recipe format version " + version);
+        }
+        
+        int ingredientCount = in.varint();
+        int stringCount = in.varint();
+        List<String> table = new ArrayList<>(Math.min(stringCount, 1 << 16));
+        for (int i = 0; i < stringCount; i++) {
+            table.add(new String(in.bytes(in.varint()), StandardCharsets.UTF_8));
+        }
+        String[] strings = table.toArray(new String[0]);
+        
+        int stepCount = in.varint();
+        List<RecipeStep> steps = new ArrayList<>(Math.min(stepCount, 1 << 16));
+        int line = 0;
+        for (int i = 0; i < stepCount; i++) {
+            int action = in.varint();
+            if (action >= ACTIONS.length) {
+                throw new IOException("Unknown step action " + action);
+            }
+            int flags = in.varint();
+            line += (int) in.signed();
+            int depth = in.varint();
+            if (depth > MAX_DEPTH) {
+                throw new IOException("Step depth " + depth + " out of range");
+            }
+            
+            String ingredient = (flags & HAS_INGREDIENT) != 0 ? string(strings, in.varint()) : null;
+            BigDecimal amount = null;
+            if ((flags & HAS_AMOUNT) != 0) {
+                long unscaled = in.signed();
+                int scale = in.varint();
+                if (scale > MAX_SCALE) {
+                    throw new IOException("Amount scale " + scale + " out of range");
+                }
+                amount = new BigDecimal(BigInteger.valueOf(unscaled), scale);
+            }
+            String unit = (flags & HAS_UNIT) != 0 ? string(strings, in.varint()) : null;
+            String detail = (flags & HAS_DETAIL) != 0 ? string(strings, in.varint()) : null;
+            String target = (flags & HAS_TARGET) != 0 ? string(strings, in.varint()) : null;
+            steps.add(new RecipeStep(ACTIONS[action], ingredient, amount, unit, detail, target, line, depth));
+        }
+        return new Recipe(steps, ingredientCount);
+    }
+    
+    // Readable form for debugging; fields that are not set are left out
+    public static String toJson(Recipe recipe) {
+        StringBuilder json = new StringBuilder(recipe.getSteps().size() * 96 + 64);
+        json.append("{\"ingredientCount\":").append(recipe.getIngredientCount()).append(",\"steps\":[");
+        List<RecipeStep> steps = recipe.getSteps();
+        for (int i = 0; i < steps.size(); i++) {
+            RecipeStep step = steps.get(i);
+            json.append(i > 0 ? ",\n" : "\n").append("{\"line\":").append(step.getLine())
+                .append(",\"depth\":").append(step.getDepth())
+                .append(",\"action\":\"").append(step.getAction()).append('"');
+            appendField(json, "ingredient", step.getIngredient());
+            if (step.getAmount() != null) {
+                json.append(",\"amount\":").append(step.getAmount().toPlainString());
+            }
+            appendField(json, "unit", step.getUnit());
+            appendField(json, "detail", step.getDetail());
+            appendField(json, "target", step.getTarget());
+            appendField(json, "text", step.getText());
+            json.append('}');
+        }
+        json.append("\n]}\n");
+        return json.toString();
+    }
+    
+    private static void appendField(StringBuilder json, String name, String value) {
+        if (value != null) {
+            json.append(",\"").append(name).append("\":");
+            JsonText.appendString(json, value);
+        }
+    }
+    
+    private static void intern(String value, Map<String, Integer> indexes, List<String> strings) {
+        if (value != null && !indexes.containsKey(value)) {
+            indexes.put(value, strings.size());
+            strings.add(value);
+        }
+    }
+    
+    private static String string(String[] strings, int index) throws IOException {
+        if (index >= strings.length) {
+            throw new IOException("String index " + index + " out of range");
+        }
+        return strings[index];
+    }
+    
+    private static final class Encoder {
+        private final OutputStream output;
+        private final byte[] buffer = new byte[8192];
+        private int position;
+        
+        Encoder(OutputStream output) {
+            this.output = output;
+        }
+        
+        void varint(long value) throws IOException {
+            if (position + 10 > buffer.length) {
+                flush();
+            }
+            while ((value & ~0x7FL) != 0) {
+                buffer[position++] = (byte) ((value & 0x7F) | 0x80);
+                value >>>= 7;
+            }
+            buffer[position++] = (byte) value;
+        }
+        
+        void signed(long value) throws IOException {
+            varint((value << 1) ^ (value >> 63));
+        }
+        
+        void bytes(byte[] bytes, int length) throws IOException {
+            if (position + length > buffer.length) {
+                flush();
+            }
+            if (length > buffer.length) {
+                output.write(bytes, 0, length);
+                return;
+            }
+            System.arraycopy(bytes, 0, buffer, position, length);
+            position += length;
+        }
+        
+        void flush() throws IOException {
+            output.write(buffer, 0, position);
+            position = 0;
+        }
+    }
+    
+    private static final class Decoder {
+        private final InputStream input;
+        private final byte[] buffer = new byte[8192];
+        private int position;
+        private int limit;
+        
+        Decoder(InputStream input) {
+            this.input = input;
+        }
+        
+        byte next() throws IOException {
+            if (position == limit) {
+                limit = input.read(buffer);
+                position = 0;
+                if (limit <= 0) {
+                    limit = 0;
+                    throw new EOFException("Recipe data ends early");
+                }
+            }
+            return buffer[position++];
+        }
+        
+        long unsigned() throws IOException {
+            long value = 0;
+            for (int shift = 0; shift < 64; shift += 7) {
+                byte b = next();
+                value |= (long) (b & 0x7F) << shift;
+                if (b >= 0) {
+                    return value;
+                }
+            }
+            throw new IOException("Malformed varint");
+        }
+        
+        int varint() throws IOException {
+            long value = unsigned();
+            if (value > Integer.MAX_VALUE) {
+                throw new IOException("Value out of range: " + value);
+            }
+            return (int) value;
+        }
+        
+        long signed() throws IOException {
+            long value = unsigned();
+            return (value >>> 1) ^ -(value & 1);
+        }
+        
+        // A length past the end of the input fails once the input runs out;
+        // beyond the buffer size, memory grows only with what was read
+        byte[] bytes(int length) throws IOException {
+            int buffered = Math.min(length, limit - position);
+            byte[] rest = length - buffered > buffer.length ? input.readNBytes(length - buffered) : null;
+            if (rest != null && rest.length != length - buffered) {
+                throw new EOFException("Recipe data ends early");
+            }
+            byte[] bytes = new byte[length];
+            System.arraycopy(buffer, position, bytes, 0, buffered);
+            position += buffered;
+            if (rest != null) {
+                System.arraycopy(rest, 0, bytes, buffered, rest.length);
+            } else if (buffered < length
+                    && input.readNBytes(bytes, buffered, length - buffered) != length - buffered) {
+                throw new EOFException("Recipe data ends early");
+            }
+            return bytes;
+        }
+    }
+}
@@ -0,0 +1,619 @@
+package codecola;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+// Turns Java code into recipe text. Holds no state between calls apart from
+// the vocabulary, so a single instance can be shared by the GUI, the batch
+// runner and any number of threads. Each conversion reads the vocabulary once
+// at its start; setVocabulary swaps it without waiting for running ones.
+public class RecipeConverter {
+    // Bump whenever the recipe text for a given input changes, so that
+    // conversions cached by earlier versions are no longer used
+    public static final int VERSION = 2;
+    
+    // Input lines between two ConversionListener calls
+    static final int REPORT_INTERVAL = 500;
+    
+    // Every statement form the converter understands, tried in order like an
+    // if/else chain. Matching and capturing happen in the same pass, and the
+    // compiled pattern is shared by all conversions.
+    static final Pattern STATEMENT = Pattern.compile(
+        "(?<numType>int|double|float|long)\\s+(?<numName>\\w+)\\s*=\\s*(?<numValue>[\\d.]+);"
+        + "|String\\s+(?<strName>\\w+)\\s*=\\s*\"(?<strValue>[^\"]*)\";"
+        + "|boolean\\s+(?<boolName>\\w+)\\s*=\\s*(?<boolValue>true|false);"
+        + "|(?<callName>\\w+)\\((?<callArgs>[^)]*)\\);"
+        + "|if\\s*\\((?<ifCond>[^)]+)\\)\\s*\\{?"
+        + "|(?<forLoop>for)\\s*\\([^)]+\\)\\s*\\{?"
+        + "|while\\s*\\((?<whileCond>[^)]+)\\)\\s*\\{?");
+    static final Pattern CLASS_NAME = Pattern.compile("class\\s+(\\w+)");
+    // The spaces after the modifiers are matched possessively. Giving some
+    // back can never help the rest match, and trying every split of them
+    // between the two \s* took quadratic time on a modifier followed by a
+    // long run of spaces.
+    static final Pattern METHOD_DEFINITION = Pattern.compile(
+        "(public|private|protected)?\\s*+(static)?\\s*+\\w+\\s+(?<defName>\\w+)\\([^)]*\\)\\s*\\{?");
+    
+    private volatile Vocabulary vocabulary;
+    // Null unless setLimits guards the conversions
+    private volatile ConversionLimits limits;
+    
+    public RecipeConverter() {
+        this(Vocabulary.DEFAULT);
+    }
+    
+    public RecipeConverter(Vocabulary vocabulary) {
+        this.vocabulary = vocabulary;
+    }
+    
+    public Vocabulary getVocabulary() {
+        return vocabulary;
+    }
+    
+    public void setVocabulary(Vocabulary vocabulary) {
+        this.vocabulary = vocabulary;
+    }
+    
+    public ConversionLimits getLimits() {
+        return limits;
+    }
+    
+    // Guards the conversions that start from now on, or stops guarding them
+    // when limits is null. The parallel backend runs sequentially while
+    // guarded.
+    public void setLimits(ConversionLimits limits) {
+        this.limits = limits;
+    }
+    
+    public ConversionResult convert(String code) {
+        return convert(code, vocabulary, limits);
+    }
+    
+    // With a vocabulary and limits the caller already read, so it knows which
+    // ones were used
+    ConversionResult convert(String code, Vocabulary vocabulary, ConversionLimits limits) {
+        ConversionContext context = new ConversionContext(vocabulary, true);
+        StringBuilder recipe = new StringBuilder();
+        try {
+            convert(guard(new LineReader(new StringReader(code)), context, limits), recipe, context, null);
+        } catch (IOException e) {
+            // Cannot happen for in-memory input and output
+            throw new UncheckedIOException(e);
+        }
+        return new ConversionResult(recipe.toString(), context.recipeSteps, context.variables.size(),
+            context.timedOut);
+    }
+    
+    // Runs the parser once over a built-in sample without producing a recipe
+    // or counting it in ConversionMetrics. This compiles the statement
+    // patterns and loads the vocabulary tables and every parser class, so the
+    // first real conversion does not pay for them.
+    public void warmUp() {
+        ConversionContext context = new ConversionContext(vocabulary, false);
+        for (String line : IncrementalConverter.splitLines(RecipeSamples.getAdvancedColaCode())) {
+            String trimmed = line.trim();
+            if (!isIgnored(trimmed)) {
+                parseStatement(trimmed, 0, context);
+            }
+        }
+    }
+    
+    // Same result as convert(code), handing the text to the listener in
+    // chunks as it is produced
+    public ConversionResult convert(String code, ConversionListener listener) {
+        return convert(code, vocabulary, limits, listener);
+    }
+    
+    ConversionResult convert(String code, Vocabulary vocabulary, ConversionLimits limits,
+            ConversionListener listener) {
+        ConversionContext context = new ConversionContext(vocabulary, true);
+        StringBuilder recipe = new StringBuilder();
+        Progress progress = new Progress(listener, recipe, code.length());
+        try {
+            convert(guard(new LineReader(new StringReader(code)), context, limits), recipe, context, progress);
+        } catch (IOException e) {
+            // Cannot happen for in-memory input and output
+            throw new UncheckedIOException(e);
+        }
+        progress.report(code.length());
+        return new ConversionResult(recipe.toString(), context.recipeSteps, context.variables.size(),
+            context.timedOut);
+    }
+    
+    // Streams the recipe to the writer step by step. Only the current line and
+    // the declared ingredients are held in memory, whatever the input size.
+    public RecipeStatistics convert(Reader input, Writer output) throws IOException {
+        ConversionContext context = new ConversionContext(vocabulary, false);
+        convert(guard(new LineReader(input), context), output, context, null);
+        output.flush();
+        return new RecipeStatistics(context.variables.size(), context.stepCount);
+    }
+    
+    // Streams a UTF-8 file to the writer like convert(Reader, Writer), but
+    // reads it through a memory mapping, so the file's bytes are never
+    // copied onto the heap as a whole
+    public RecipeStatistics convert(Path input, Writer output) throws IOException {
+        return convert(input, output, null);
+    }
+    
+    // Also resolves ingredients the file uses but another file of the
+    // project declares; a null project means the file stands alone
+    public RecipeStatistics convert(Path input, Writer output, IngredientTable project) throws IOException {
+        try (FileChannel channel = FileChannel.open(input, StandardOpenOption.READ)) {
+            ConversionContext context = new ConversionContext(vocabulary, false);
+            context.project = project;
+            convert(guard(new LineReader(channel), context), output, context, null);
+            output.flush();
+            return new RecipeStatistics(context.variables.size(), context.stepCount);
+        }
+    }
+    
+    // Alternative backend that reads the whole source as one token stream and
+    // follows its block structure. Statements spanning several lines and
+    // comments anywhere are handled, and steps inside an if, loop, class or
+    // method are indented under the step that opens them.
+    public ConversionResult convertStructured(String code) {
+        return convertStructured(code, null);
+    }
+    
+    public ConversionResult convertStructured(String code, IngredientTable project) {
+        return new StructuredConverter(this, SourceTokens.tokenize(code), false, project).convert();
+    }
+    
+    // First pass of a project conversion: enters every ingredient the file
+    // declares into the table, without building any steps. source orders
+    // declarations of the same name from different files.
+    public void collectIngredients(Path input, IngredientTable project, String source) throws IOException {
+        try (FileChannel channel = FileChannel.open(input, StandardOpenOption.READ)) {
+            LineReader lines = new LineReader(channel);
+            ConversionLimits limits = this.limits;
+            int maxLineLength = limits != null ? limits.getMaxLineLength() : Integer.MAX_VALUE;
+            lines.setMaxLineLength(maxLineLength);
+            Matcher statement = STATEMENT.matcher("");
+            String rawLine;
+            while ((rawLine = lines.readLine()) != null) {
+                String line = rawLine.trim();
+                if (lines.getLineLength() > maxLineLength || isIgnored(line) || !statement.reset(line).matches()) {
+                    continue;
+                }
+                if (statement.start("numName") != -1) {
+                    project.declare(statement.group("numName"), statement.group("numValue"), source);
+                } else if (statement.start("strName") != -1) {
+                    project.declare(statement.group("strName"), statement.group("strValue"), source);
+                } else if (statement.start("boolName") != -1) {
+                    project.declare(statement.group("boolName"), statement.group("boolValue"), source);
+                }
+            }
+        }
+    }
+    
+    // Same steps as convert, as typed RecipeSteps instead of text
+    public Recipe convertToRecipe(String code) {
+        ConversionContext context = new ConversionContext(vocabulary, false);
+        context.startModel();
+        LineReader lines = guard(new LineReader(new StringReader(code)), context);
+        try {
+            String rawLine;
+            while ((rawLine = lines.readLine()) != null) {
+                String line = rawLine.trim();
+                if (isIgnored(line)) {
+                    if (ConversionMetrics.ENABLED) {
+                        context.skipped(line);
+                    }
+                    continue;
+                }
+                
+                context.references.clear();
+                CharSequence result = parseGuarded(line, lines, context);
+                if (result.length() > 0) {
+                    context.stepCount++;
+                    context.addModelStep(lines.getLineNumber(), 0);
+                }
+                if (context.timedOut) {
+                    break;
+                }
+            }
+        } catch (IOException e) {
+            // Cannot happen for in-memory input
+            throw new UncheckedIOException(e);
+        }
+        if (ConversionMetrics.ENABLED) {
+            ConversionMetrics.finish(context, "lines", lines.getLineNumber());
+        }
+        return new Recipe(context.model, context.variables.size());
+    }
+    
+    // Same steps as convertStructured, as typed RecipeSteps with their depth
+    public Recipe convertStructuredToRecipe(String code) {
+        StructuredConverter structured = new StructuredConverter(this, SourceTokens.tokenize(code), true, null);
+        structured.convert();
+        return structured.getRecipe();
+    }
+    
+    // The line-based conversion every convert above runs; progress is null
+    // unless a listener follows it
+    private void convert(LineReader lines, Appendable recipe, ConversionContext context, Progress progress)
+            throws IOException {
+        appendHeader(recipe);
+        
+        String rawLine;
+        while ((rawLine = lines.readLine()) != null) {
+            if (progress != null && lines.getLineNumber() % REPORT_INTERVAL == 0) {
+                progress.report(lines.getCharsRead());
+            }
+            String line = rawLine.trim();
+            if (isIgnored(line)) {
+                if (ConversionMetrics.ENABLED) {
+                    context.skipped(line);
+                }
+                continue;
+            }
+            
+            CharSequence result = parseGuarded(line, lines, context);
+            if (result.length() > 0) {
+                appendStep(recipe, ++context.stepCount, result, context);
+                if (context.recipeSteps != null) {
+                    context.recipeSteps.add(result.toString());
+                }
+            }
+            if (context.timedOut) {
+                break;
+            }
+        }
+        
+        appendFooter(recipe, context.variables.size(), context.stepCount);
+        if (ConversionMetrics.ENABLED) {
+            ConversionMetrics.finish(context, "lines", lines.getLineNumber());
+        }
+    }
+    
+    // Hands a listener the recipe text added since its previous report
+    private static final class Progress {
+        private final ConversionListener listener;
+        private final StringBuilder recipe;
+        private final long totalChars;
+        private int reported;
+        
+        Progress(ConversionListener listener, StringBuilder recipe, long totalChars) {
+            this.listener = listener;
+            this.recipe = recipe;
+            this.totalChars = totalChars;
+        }
+        
+        void report(long charsRead) {
+            listener.converted(recipe.substring(reported), charsRead, totalChars);
+            reported = recipe.length();
+        }
+    }
+    
+    // Rebuilds the full recipe text from its steps, as convert would print it
+    static String render(List<String> steps, int ingredientCount) {
+        StringBuilder recipe = new StringBuilder();
+        try {
+            appendHeader(recipe);
+            for (int i = 0; i < steps.size(); i++) {
+                recipe.append(i + 1).append(". ").append(steps.get(i)).append('\n');
+            }
+            appendFooter(recipe, ingredientCount, steps.size());
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return recipe.toString();
+    }
+    
+    // Writes "n. step" and a line break without building a String for it.
+    // Writer.append would copy the step into a new String first, so a Writer
+    // gets the line as chars from the context's scratch buffers.
+    static void appendStep(Appendable recipe, int number, CharSequence step, ConversionContext context)
+            throws IOException {
+        if (recipe instanceof StringBuilder) {
+            ((StringBuilder) recipe).append(number).append(". ").append(step).append('\n');
+            return;
+        }
+        StringBuilder line = context.line;
+        line.setLength(0);
+        line.append(number).append(". ").append(step).append('\n');
+        if (recipe instanceof Writer) {
+            if (context.chars.length < line.length()) {
+                context.chars = new char[line.length() * 2];
+            }
+            line.getChars(0, line.length(), context.chars, 0);
+            ((Writer) recipe).write(context.chars, 0, line.length());
+        } else {
+            recipe.append(line);
+        }
+    }
+    
+    static boolean isIgnored(String line) {
+        return line.isEmpty() || line.startsWith("//") || line.startsWith("/*") || line.startsWith("*");
+    }
+    
+    static void appendHeader(Appendable recipe) throws IOException {
+        recipe.append("Recipe Generated from Code\n");
+        recipe.append("=".repeat(35)).append("\n\n");
+    }
+    
+    static void appendFooter(Appendable recipe, int ingredientCount, int stepCount) throws IOException {
+        if (stepCount == 0) {
+            recipe.append("No convertible instructions found!\n");
+            recipe.append("Make sure your code uses Java syntax.\n");
+        } else {
+            recipe.append("\nRecipe completed!\n");
+            recipe.append("=".repeat(35)).append("\n");
+            recipe.append("Statistics:\n");
+            recipe.append("   - Ingredients found: ").append(String.valueOf(ingredientCount)).append("\n");
+            recipe.append("   - Processing steps: ").append(String.valueOf(stepCount)).append("\n");
+            recipe.append("   - Estimated time: ").append(String.valueOf(stepCount * 2)).append(" minutes\n");
+        }
+    }
+    
+    // Applies the converter's limits to one conversion, read once at its
+    // start like the vocabulary
+    private LineReader guard(LineReader lines, ConversionContext context) {
+        return guard(lines, context, limits);
+    }
+    
+    private static LineReader guard(LineReader lines, ConversionContext context, ConversionLimits limits) {
+        context.guard(limits);
+        if (limits != null) {
+            lines.setMaxLineLength(limits.getMaxLineLength());
+        }
+        return lines;
+    }
+    
+    // parseLine for the line the reader just returned, unless the context's
+    // limits rule it out. A line over the length limit becomes a skipped
+    // step. So does the current line once the time is up, which also sets
+    // timedOut to end the conversion there.
+    private CharSequence parseGuarded(String line, LineReader lines, ConversionContext context) {
+        ConversionLimits limits = context.limits;
+        if (limits == null) {
+            return parseLine(line, lines.getLineNumber(), context);
+        }
+        if (context.pastDeadline()) {
+            context.timedOut = true;
+            return skipped(lines.getLineNumber(), "time limit of " + limits.getTimeLimitMillis()
+                + " ms reached, the rest was not converted", context);
+        }
+        if (lines.getLineLength() > limits.getMaxLineLength()) {
+            return skipped(lines.getLineNumber(), lines.getLineLength() + " characters, the limit is "
+                + limits.getMaxLineLength(), context);
+        }
+        return parseLine(line, lines.getLineNumber(), context);
+    }
+    
+    // The step that stands in for input the limits kept from being converted.
+    // Skipped lines count as errors in ConversionMetrics.
+    static CharSequence skipped(int lineNumber, String reason, ConversionContext context) {
+        context.errors++;
+        context.action = RecipeStep.Action.SKIPPED;
+        context.detail = reason;
+        return context.startStep().append("Skipped line ").append(lineNumber).append(": ").append(reason);
+    }
+    
+    // The step for one trimmed line, empty when the line gives none. It is
+    // only valid until the next parse on the same context.
+    CharSequence parseLine(String line, int lineNumber, ConversionContext context) {
+        if (!ConversionMetrics.ENABLED) {
+            return parseStatement(line, lineNumber, context);
+        }
+        long start = System.nanoTime();
+        CharSequence result = parseStatement(line, lineNumber, context);
+        ConversionMetrics.line(result.length() == 0 ? null : context.action, System.nanoTime() - start);
+        return result;
+    }
+    
+    // parseLine for a line this conversion already parsed once, which
+    // ConversionMetrics counted then
+    CharSequence reparseLine(String line, int lineNumber, ConversionContext context) {
+        return parseStatement(line, lineNumber, context);
+    }
+    
+    private CharSequence parseStatement(String line, int lineNumber, ConversionContext context) {
+        try {
+            Matcher statement = context.statementMatcher.reset(line);
+            if (statement.matches()) {
+                if (statement.start("numName") != -1) {
+                    return parseNumericVariable(statement.group("numType"), statement.group("numName"),
+                        statement.group("numValue"), context);
+                } else if (statement.start("strName") != -1) {
+                    return parseStringVariable(statement.group("strName"), statement.group("strValue"), context);
+                } else if (statement.start("boolName") != -1) {
+                    return parseBooleanVariable(statement.group("boolName"), statement.group("boolValue"), context);
+                } else if (statement.start("callName") != -1) {
+                    return parseMethodCall(statement.group("callName"), statement.group("callArgs"), context);
+                } else if (statement.start("ifCond") != -1) {
+                    return parseIfStatement(statement.group("ifCond"), context);
+                } else if (statement.start("forLoop") != -1) {
+                    return parseForLoop(context);
+                } else {
+                    return parseWhileLoop(statement.group("whileCond"), context);
+                }
+            } else if (line.contains("class ")) {
+                Matcher className = context.classNameMatcher.reset(line);
+                return className.find() ? parseClassDefinition(className.group(1), context) : "";
+            } else if (context.methodDefinitionMatcher.reset(line).matches()) {
+                return parseMethodDefinition(context.methodDefinitionMatcher.group("defName"), context);
+            }
+        } catch (Exception e) {
+            context.errors++;
+            context.action = RecipeStep.Action.ERROR;
+            context.detail = String.valueOf(e.getMessage());
+            return context.startStep().append("Error in line ").append(lineNumber).append(": ")
+                .append(e.getMessage());
+        }
+        return "";
+    }
+    
+    // The parse* methods turn the parts of a recognised statement into a step.
+    // Both the line-based and the structured backend end up here. Each also
+    // leaves the kind of step and its parts in the context for RecipeStep.
+    // The text is written into the context's step buffer and returned from
+    // there, so no String is made for it unless the caller keeps the step.
+    CharSequence parseNumericVariable(String type, String name, String value, ConversionContext context) {
+        context.declare(name, value);
+        
+        String unit = unitFor(name, type, context.vocabulary);
+        context.action = RecipeStep.Action.PREPARE;
+        context.detail = value;
+        context.unit = unit;
+        if (context.units != null) {
+            context.units.put(name, unit);
+        }
+        return context.startStep().append("Prepare ").append(value).append(' ').append(unit).append(' ')
+            .append(name);
+    }
+    
+    CharSequence parseStringVariable(String name, String value, ConversionContext context) {
+        context.declare(name, value);
+        context.action = RecipeStep.Action.SELECT;
+        context.detail = value;
+        if (context.units != null) {
+            context.units.remove(name);
+        }
+        return context.startStep().append("Select \"").append(value).append("\" as ").append(name);
+    }
+    
+    CharSequence parseBooleanVariable(String name, String value, ConversionContext context) {
+        context.declare(name, value);
+        context.action = RecipeStep.Action.SET;
+        context.detail = value.equals("true") ? "on" : "off";
+        if (context.units != null) {
+            context.units.remove(name);
+        }
+        return context.startStep().append("Set ").append(name).append(" to ").append(context.detail);
+    }
+    
+    CharSequence parseMethodCall(String method, String args, ConversionContext context) {
+        StringBuilder step = context.startStep();
+        Vocabulary.Verb verb = context.vocabulary.verb(method);
+        if (verb == null) {
+            context.action = RecipeStep.Action.EXECUTE;
+            context.target = method;
+            step.append("Execute ").append(method).append(" with ");
+        } else {
+            context.action = verb.action;
+            context.target = verb.label;
+            step.append(verb.label).append(' ');
+        }
+        int arguments = step.length();
+        formatArguments(args, context, step);
+        if (context.model != null) {
+            context.detail = step.substring(arguments);
+        }
+        return step;
+    }
+    
+    CharSequence parseIfStatement(String condition, ConversionContext context) {
+        context.action = RecipeStep.Action.IF;
+        context.detail = condition;
+        return context.startStep().append("If ").append(condition).append(", then:");
+    }
+    
+    CharSequence parseForLoop(ConversionContext context) {
+        context.action = RecipeStep.Action.REPEAT;
+        return "Repeat the following steps:";
+    }
+    
+    CharSequence parseWhileLoop(String condition, ConversionContext context) {
+        context.action = RecipeStep.Action.WHILE;
+        context.detail = condition;
+        return context.startStep().append("While ").append(condition).append(", repeat:");
+    }
+    
+    CharSequence parseClassDefinition(String className, ConversionContext context) {
+        context.action = RecipeStep.Action.START_RECIPE;
+        context.target = className;
+        return context.startStep().append("Start recipe: ").append(className);
+    }
+    
+    CharSequence parseMethodDefinition(String methodName, ConversionContext context) {
+        if (!methodName.equals("main")) {
+            context.action = RecipeStep.Action.DEFINE_PROCESS;
+            context.target = methodName;
+            return context.startStep().append("Define process: ").append(methodName);
+        }
+        return "";
+    }
+    
+    // Replaces every identifier that names a declared ingredient with its value
+    // and drops the quotes around string literals, in one pass over the
+    // arguments. Only whole identifiers match, so "water" never touches
+    // "waterTemp", and text inside string literals or after a '.' is kept.
+    // The result is appended to formatted.
+    void formatArguments(String args, ConversionContext context, StringBuilder formatted) {
+        if (!ConversionMetrics.ENABLED) {
+            substituteArguments(args, context, formatted);
+            return;
+        }
+        long start = System.nanoTime();
+        substituteArguments(args, context, formatted);
+        ConversionMetrics.formatArguments(System.nanoTime() - start);
+    }
+    
+    private void substituteArguments(String args, ConversionContext context, StringBuilder formatted) {
+        if (args.trim().isEmpty()) {
+            formatted.append("everything");
+            return;
+        }
+        
+        IngredientTrie ingredients = context.ingredients;
+        boolean inString = false;
+        int i = 0;
+        while (i < args.length()) {
+            char c = args.charAt(i);
+            if (c == '"') {
+                inString = !inString;
+                i++;
+            } else if (Character.isJavaIdentifierPart(c)) {
+                int start = i;
+                boolean reference = !inString && Character.isJavaIdentifierStart(c)
+                    && (start == 0 || args.charAt(start - 1) != '.');
+                int node = reference ? IngredientTrie.ROOT : -1;
+                while (i < args.length() && Character.isJavaIdentifierPart(args.charAt(i))) {
+                    if (node >= 0) {
+                        node = ingredients.child(node, args.charAt(i));
+                    }
+                    i++;
+                }
+                String value = node >= 0 ? ingredients.valueAt(node) : null;
+                if (value == null && reference && context.project != null) {
+                    value = context.project.valueOf(args.substring(start, i));
+                }
+                if (reference && context.references != null) {
+                    context.references.add(args.substring(start, i));
+                    context.references.add(value);
+                }
+                if (value != null) {
+                    formatted.append(value);
+                } else {
+                    formatted.append(args, start, i);
+                }
+            } else {
+                formatted.append(c);
+                i++;
+            }
+        }
+    }
+    
+    String getUnitForVariable(String name, String type) {
+        return unitFor(name, type, vocabulary);
+    }
+    
+    private static String unitFor(String name, String type, Vocabulary vocabulary) {
+        String unit = vocabulary.unitFor(name);
+        if (unit != null) {
+            return unit;
+        }
+        return type.equals("int") || type.equals("double") ? "units" : "";
+    }
+}
@@ -0,0 +1,230 @@
+package codecola;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+// Recipe steps added, removed and changed between two versions of a source.
+// The old version is converted once; the new one reuses its parsed lines and
+// parses only the lines the edit touched, plus calls whose ingredients it
+// redeclared. A step counts as changed when its source line is unchanged but
+// reads differently, or when it sits in an edited region opposite a step of
+// the old version.
+public final class RecipeDiff {
+    public static final class Change {
+        public enum Kind {
+            ADDED,
+            REMOVED,
+            CHANGED
+        }
+        
+        private final Kind kind;
+        private final int oldStep;
+        private final int oldLine;
+        private final String oldText;
+        private final int newStep;
+        private final int newLine;
+        private final String newText;
+        
+        Change(Kind kind, int oldStep, int oldLine, String oldText, int newStep, int newLine, String newText) {
+            this.kind = kind;
+            this.oldStep = oldStep;
+            this.oldLine = oldLine;
+            this.oldText = oldText;
+            this.newStep = newStep;
+            this.newLine = newLine;
+            this.newText = newText;
+        }
+        
+        public Kind getKind() {
+            return kind;
+        }
+        
+        // Step number and source line in the old version; 0 for an added step
+        public int getOldStep() {
+            return oldStep;
+        }
+        
+        public int getOldLine() {
+            return oldLine;
+        }
+        
+        public String getOldText() {
+            return oldText;
+        }
+        
+        // Step number and source line in the new version; 0 for a removed step
+        public int getNewStep() {
+            return newStep;
+        }
+        
+        public int getNewLine() {
+            return newLine;
+        }
+        
+        public String getNewText() {
+            return newText;
+        }
+        
+        @Override
+        public String toString() {
+            switch (kind) {
+                case ADDED:
+                    return "+ step " + newStep + " (line " + newLine + "): " + newText;
+                case REMOVED:
+                    return "- step " + oldStep + " (line " + oldLine + "): " + oldText;
+                default:
+                    return "~ step " + oldStep + " -> " + newStep + " (line " + oldLine + " -> " + newLine + "): "
+                        + oldText + " -> " + newText;
+            }
+        }
+    }
+    
+    private final List<Change> changes;
+    private final int parsedLines;
+    private final int lineCount;
+    
+    private RecipeDiff(List<Change> changes, int parsedLines, int lineCount) {
+        this.changes = Collections.unmodifiableList(changes);
+        this.parsedLines = parsedLines;
+        this.lineCount = lineCount;
+    }
+    
+    public static RecipeDiff compare(RecipeConverter converter, String oldCode, String newCode) {
+        List<String> oldLines = IncrementalConverter.splitLines(oldCode);
+        List<String> newLines = IncrementalConverter.splitLines(newCode);
+        List<int[]> hunks = LineDiff.hunks(oldLines, newLines);
+        
+        IncrementalConverter incremental = new IncrementalConverter(converter);
+        incremental.reset(oldCode);
+        incremental.refresh();
+        List<String> oldSteps = incremental.getLineSteps();
+        // From the last hunk back, so the old line indexes stay valid
+        for (int h = hunks.size() - 1; h >= 0; h--) {
+            int[] hunk = hunks.get(h);
+            incremental.replaceLines(hunk[0], hunk[1], newLines.subList(hunk[2], hunk[2] + hunk[3]));
+        }
+        incremental.refresh();
+        List<String> newSteps = incremental.getLineSteps();
+        
+        List<Change> changes = new ArrayList<>();
+        Cursor before = new Cursor(oldSteps);
+        Cursor after = new Cursor(newSteps);
+        for (int[] hunk : hunks) {
+            // Unchanged lines up to the hunk may still read differently
+            while (before.line < hunk[0]) {
+                String oldText = before.next();
+                String newText = after.next();
+                if (!oldText.equals(newText)) {
+                    changes.add(new Change(Change.Kind.CHANGED, before.step, before.line, oldText,
+                        after.step, after.line, newText));
+                }
+            }
+            compareRegion(before, hunk[0] + hunk[1], after, hunk[2] + hunk[3], changes);
+        }
+        while (before.line < oldSteps.size()) {
+            String oldText = before.next();
+            String newText = after.next();
+            if (!oldText.equals(newText)) {
+                changes.add(new Change(Change.Kind.CHANGED, before.step, before.line, oldText,
+                    after.step, after.line, newText));
+            }
+        }
+        return new RecipeDiff(changes, incremental.getParsedLineCount(), newSteps.size());
+    }
+    
+    // Pairs the steps of an edited region in order; the rest were added or removed
+    private static void compareRegion(Cursor before, int oldEnd, Cursor after, int newEnd, List<Change> changes) {
+        List<Change> removed = new ArrayList<>();
+        while (before.line < oldEnd) {
+            String text = before.next();
+            if (!text.isEmpty()) {
+                removed.add(new Change(Change.Kind.REMOVED, before.step, before.line, text, 0, 0, null));
+            }
+        }
+        int paired = 0;
+        while (after.line < newEnd) {
+            String text = after.next();
+            if (text.isEmpty()) {
+                continue;
+            }
+            if (paired < removed.size()) {
+                Change old = removed.get(paired++);
+                if (!old.oldText.equals(text)) {
+                    changes.add(new Change(Change.Kind.CHANGED, old.oldStep, old.oldLine, old.oldText,
+                        after.step, after.line, text));
+                }
+            } else {
+                changes.add(new Change(Change.Kind.ADDED, 0, 0, null, after.step, after.line, text));
+            }
+        }
+        changes.addAll(removed.subList(paired, removed.size()));
+    }
+    
+    public List<Change> getChanges() {
+        return changes;
+    }
+    
+    public boolean isEmpty() {
+        return changes.isEmpty();
+    }
+    
+    public int count(Change.Kind kind) {
+        int count = 0;
+        for (Change change : changes) {
+            if (change.kind == kind) {
+                count++;
+            }
+        }
+        return count;
+    }
+    
+    // Lines of the new version that had to be parsed
+    public int getParsedLines() {
+        return parsedLines;
+    }
+    
+    public int getLineCount() {
+        return lineCount;
+    }
+    
+    public String getSummary() {
+        return count(Change.Kind.CHANGED) + " changed, " + count(Change.Kind.ADDED) + " added, "
+            + count(Change.Kind.REMOVED) + " removed (" + parsedLines + " of " + lineCount + " lines parsed)";
+    }
+    
+    @Override
+    public String toString() {
+        StringBuilder text = new StringBuilder();
+        text.append("Recipe changes\n");
+        text.append("=".repeat(35)).append("\n\n");
+        if (changes.isEmpty()) {
+            text.append("No steps changed.\n");
+        }
+        for (Change change : changes) {
+            text.append(change).append('\n');
+        }
+        text.append('\n').append(getSummary()).append('\n');
+        return text.toString();
+    }
+    
+    // Walks the per-line steps of one version, numbering steps as it goes
+    private static final class Cursor {
+        private final List<String> steps;
+        // 1-based line just read and the number of the last step seen
+        int line;
+        int step;
+        
+        Cursor(List<String> steps) {
+            this.steps = steps;
+        }
+        
+        String next() {
+            String text = steps.get(line++);
+            if (!text.isEmpty()) {
+                step++;
+            }
+            return text;
+        }
+    }
+}
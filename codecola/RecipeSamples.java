@@ -0,0 +1,108 @@
+package codecola;
+
+// The built-in example programs offered by the GUI and used by the benchmarks
+public final class RecipeSamples {
+    
+    private RecipeSamples() {
+    }
+    
+    public static String getDefaultCode() {
+        return """
+            public class Main {
+                public static void main(String[] args) {
+                    int water = 200;
+                    int sugar = 50;
+                    String flavor = "lime";
+                    boolean carbonated = true;
+
+                    boil(water);
+                    add(sugar);
+                    addFlavor(flavor);
+                    if (carbonated) {
+                        mix();
+                    }
+                    serve();
+                }
+
+                public static void boil(int ml) {}
+                public static void add(int grams) {}
+                public static void addFlavor(String flavor) {}
+                public static void mix() {}
+                public static void serve() {}
+            }""";
+    }
+    
+    public static String getAdvancedColaCode() {
+        return """
+            public class ColaRecipe {
+                public static void main(String[] args) {
+                    int water = 500;
+                    int sugar = 100;
+                    int caramel = 20;
+                    String spices = "vanilla and cinnamon";
+                    int temperature = 80;
+
+                    boil(water, temperature);
+                    add(sugar);
+                    stir();
+                    add(caramel);
+                    addFlavor(spices);
+
+                    for (int i = 0; i < 5; i++) {
+                        stir();
+                    }
+
+                    wait(10);
+                    serve();
+                }
+            }""";
+    }
+    
+    public static String getCocktailCode() {
+        return """
+            public class CocktailMixer {
+                public static void main(String[] args) {
+                    int rum = 50;
+                    int lime = 30;
+                    int sugar = 20;
+                    int ice = 100;
+                    boolean garnish = true;
+
+                    add(rum);
+                    add(lime);
+                    add(sugar);
+                    mix();
+                    add(ice);
+
+                    if (garnish) {
+                        addFlavor("mint leaves");
+                    }
+
+                    serve();
+                }
+            }""";
+    }
+    
+    public static String getCoffeeCode() {
+        return """
+            public class CoffeeMaker {
+                public static void main(String[] args) {
+                    int water = 200;
+                    int coffee = 15;
+                    int temperature = 95;
+                    String milk = "oat milk";
+
+                    boil(water, temperature);
+                    add(coffee);
+                    wait(4);
+
+                    if (milk != null) {
+                        add(milk);
+                    }
+
+                    stir();
+                    serve();
+                }
+            }""";
+    }
+}
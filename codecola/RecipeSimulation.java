@@ -0,0 +1,1053 @@
+package codecola;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+
+// Runs a recipe instead of only listing it. The source is walked as the same
+// syntax tree the structured backend uses, with the ingredients declared so
+// far as the state. Conditions of if and while built from literals, declared
+// ingredients, comparisons, +, -, *, !, && and || are decided, for loops of
+// the form for (int i = a; i < b; i++) get their iteration count, and every
+// step is listed once with how often it runs, like "5× Stir everything".
+//
+// A loop body is run only until an iteration leaves the ingredients as it
+// found them; every later iteration would do exactly the same, so those are
+// counted, not run. Counts multiply through nested loops, and a loop over a
+// million iterations costs about as much as two passes over its body.
+// Counts that cannot be known, from an undecided condition, a loop bound
+// that is not a constant or a body that keeps changing its ingredients,
+// show as "?". Assignments such as k = k + 1 or k++ are not simulated; the
+// variable they change becomes undecided from there on.
+//
+// A break, continue or return that certainly runs ends the loop, iteration
+// or method there. One that only might run, under an undecided condition,
+// makes the count of the loops it could leave unknown.
+//
+// The totals add up the amounts of quantities such as ml or g; temperatures
+// and durations are settings, not amounts used, and are left out.
+public final class RecipeSimulation {
+    public static final long UNKNOWN = -1;
+    
+    // Iterations run one by one before a loop whose body keeps changing the
+    // ingredients is given up as unknown
+    private static final int MAX_UNROLLED = 64;
+    // Loop count of a while loop whose condition stays true once its body
+    // stops changing anything
+    private static final long ENDLESS = -2;
+    // Value of an expression or ingredient the simulation cannot decide
+    private static final Object UNDECIDED = new Object();
+    // Numbers are kept to about the range of a double; past that, a sum of two
+    // numbers with very different exponents would need millions of digits
+    private static final int MAX_DIGITS = 400;
+    // Units of temperatures and durations, which are not summed
+    private static final Set<String> MEASURES = Set.of("°C", "°F", "K", "h", "hours", "min", "minutes", "s",
+        "seconds");
+    
+    private final String text;
+    private final long stepsPerformed;
+    private final Map<String, BigDecimal> ingredientTotals;
+    
+    private RecipeSimulation(String text, long stepsPerformed, Map<String, BigDecimal> ingredientTotals) {
+        this.text = text;
+        this.stepsPerformed = stepsPerformed;
+        this.ingredientTotals = Collections.unmodifiableMap(ingredientTotals);
+    }
+    
+    public static RecipeSimulation simulate(RecipeConverter converter, String code) {
+        Simulator simulator = new Simulator(converter, SourceTokens.tokenize(code));
+        List<SyntaxTree.Node> nodes = SyntaxTree.parse(simulator.tokens);
+        Tally tally = new Tally();
+        simulator.run(nodes, tally);
+        return render(nodes, tally);
+    }
+    
+    public String getText() {
+        return text;
+    }
+    
+    // Steps performed over the whole run, or UNKNOWN
+    public long getStepsPerformed() {
+        return stepsPerformed;
+    }
+    
+    // Amount of each numeric ingredient the calls used, in the order the
+    // ingredients were first used; null where a count is unknown. Ingredients
+    // measured in degrees or time are not included.
+    public Map<String, BigDecimal> getIngredientTotals() {
+        return ingredientTotals;
+    }
+    
+    @Override
+    public String toString() {
+        return text;
+    }
+    
+    private static RecipeSimulation render(List<SyntaxTree.Node> nodes, Tally tally) {
+        Totals totals = new Totals();
+        StringBuilder recipe = new StringBuilder();
+        recipe.append("Recipe Simulation\n");
+        recipe.append("=".repeat(35)).append("\n\n");
+        renderNodes(nodes, 0, tally, recipe, totals);
+        
+        if (totals.lines == 0) {
+            recipe.append("No convertible instructions found!\n");
+            recipe.append("Make sure your code uses Java syntax.\n");
+        } else {
+            long minutes = times(totals.steps, 2);
+            recipe.append("\nSimulation completed!\n");
+            recipe.append("=".repeat(35)).append("\n");
+            recipe.append("Totals:\n");
+            recipe.append("   - Steps performed: ")
+                .append(totals.steps == UNKNOWN ? "unknown" : String.valueOf(totals.steps)).append("\n");
+            recipe.append("   - Estimated time: ")
+                .append(minutes == UNKNOWN ? "unknown" : minutes + " minutes").append("\n");
+            for (Map.Entry<String, BigDecimal> used : totals.amounts.entrySet()) {
+                BigDecimal amount = used.getValue();
+                recipe.append("   - Used ").append(used.getKey()).append(": ")
+                    .append(amount == null ? "unknown amount" : amount.toPlainString());
+                String unit = totals.units.get(used.getKey());
+                if (amount != null && !unit.isEmpty()) {
+                    recipe.append(' ').append(unit);
+                }
+                recipe.append("\n");
+            }
+        }
+        return new RecipeSimulation(recipe.toString(), totals.steps, totals.amounts);
+    }
+    
+    private static void renderNodes(List<SyntaxTree.Node> nodes, int depth, Tally tally, StringBuilder recipe,
+            Totals totals) {
+        for (SyntaxTree.Node node : nodes) {
+            Map<String, Entry> entries = tally.entries.get(node);
+            int bodyDepth = depth;
+            if (entries != null) {
+                for (Entry entry : entries.values()) {
+                    if (entry.count == 0) {
+                        continue;
+                    }
+                    for (int i = 0; i < depth; i++) {
+                        recipe.append("  ");
+                    }
+                    recipe.append(++totals.lines).append(". ");
+                    if (entry.count == UNKNOWN) {
+                        recipe.append("?× ");
+                    } else if (entry.count != 1) {
+                        recipe.append(entry.count).append("× ");
+                    }
+                    recipe.append(entry.text).append('\n');
+                    totals.add(entry);
+                    bodyDepth = depth + 1;
+                }
+            }
+            if (node.body != null) {
+                renderNodes(node.body, bodyDepth, tally, recipe, totals);
+            }
+            if (node.elseBranch != null) {
+                renderNodes(List.of(node.elseBranch), depth, tally, recipe, totals);
+            }
+        }
+    }
+    
+    static long times(long a, long b) {
+        if (a == 0 || b == 0) {
+            return 0;
+        }
+        if (a < 0 || b < 0) {
+            return UNKNOWN;
+        }
+        long high = Math.multiplyHigh(a, b);
+        long product = a * b;
+        return high != 0 || product < 0 ? UNKNOWN : product;
+    }
+    
+    static long plus(long a, long b) {
+        if (a < 0 || b < 0) {
+            return UNKNOWN;
+        }
+        long sum = a + b;
+        return sum < 0 ? UNKNOWN : sum;
+    }
+    
+    // One step text of a node and how often it ran, with the numeric
+    // ingredients it used per run
+    private static final class Entry {
+        final String text;
+        final String[] names;
+        final BigDecimal[] amounts;
+        final String[] units;
+        long count;
+        
+        Entry(String text, String[] names, BigDecimal[] amounts, String[] units) {
+            this.text = text;
+            this.names = names;
+            this.amounts = amounts;
+            this.units = units;
+        }
+        
+        Entry(String text) {
+            this(text, null, null, null);
+        }
+    }
+    
+    // Step counts per node, kept per text because a step can read differently
+    // from one run to the next
+    private static final class Tally {
+        final Map<SyntaxTree.Node, Map<String, Entry>> entries = new IdentityHashMap<>();
+        
+        void add(SyntaxTree.Node node, Entry step, long count) {
+            Entry entry = entries.computeIfAbsent(node, key -> new LinkedHashMap<>()).get(step.text);
+            if (entry == null) {
+                entry = new Entry(step.text, step.names, step.amounts, step.units);
+                entries.get(node).put(step.text, entry);
+            }
+            entry.count = plus(entry.count, count);
+        }
+        
+        // Adds the counts of other, each multiplied by scale
+        void merge(Tally other, long scale) {
+            for (Map.Entry<SyntaxTree.Node, Map<String, Entry>> node : other.entries.entrySet()) {
+                for (Entry entry : node.getValue().values()) {
+                    add(node.getKey(), entry, times(entry.count, scale));
+                }
+            }
+        }
+    }
+    
+    private static final class Totals {
+        final Map<String, BigDecimal> amounts = new LinkedHashMap<>();
+        final Map<String, String> units = new HashMap<>();
+        int lines;
+        long steps;
+        
+        void add(Entry entry) {
+            steps = plus(steps, entry.count);
+            if (entry.names == null) {
+                return;
+            }
+            for (int i = 0; i < entry.names.length; i++) {
+                String name = entry.names[i];
+                BigDecimal before = amounts.containsKey(name) ? amounts.get(name) : BigDecimal.ZERO;
+                BigDecimal used = entry.count == UNKNOWN || before == null
+                    ? null
+                    : before.add(entry.amounts[i].multiply(BigDecimal.valueOf(entry.count)));
+                amounts.put(name, used);
+                units.putIfAbsent(name, entry.units[i]);
+            }
+        }
+    }
+    
+    private static final class Simulator {
+        final SourceTokens tokens;
+        private final StructuredConverter structured;
+        private final ConversionContext context;
+        // The state: declared ingredients as BigDecimal, String or Boolean, or
+        // UNDECIDED when declared where the simulation could not tell whether
+        // the declaration runs
+        private final Map<String, Object> values = new HashMap<>();
+        // Names and previous values of every change to values, so a loop can
+        // tell whether an iteration changed the state
+        private final List<String> changedNames = new ArrayList<>();
+        private final List<Object> changedValues = new ArrayList<>();
+        private int undecidedDepth;
+        // Statements run so far that write a variable or jump without being
+        // simulated
+        private int uninterpreted;
+        // The break, continue or return that certainly ran and skips the rest
+        // of its block, or null
+        private String jump;
+        // Jumps run so far that might leave the innermost loop, and ones that
+        // might leave the method
+        private int possibleBreaks;
+        private int possibleReturns;
+        // undecidedDepth where the innermost loop and method bodies started;
+        // a jump at that depth certainly runs once its block does
+        private int loopDepth;
+        private int methodDepth;
+        
+        // Expression parser state
+        private int position;
+        private int end;
+        private boolean failed;
+        
+        Simulator(RecipeConverter converter, SourceTokens tokens) {
+            this.tokens = tokens;
+            this.structured = new StructuredConverter(converter, tokens, true, null);
+            this.context = structured.context;
+        }
+        
+        void run(List<SyntaxTree.Node> nodes, Tally tally) {
+            for (SyntaxTree.Node node : nodes) {
+                boolean control = node.body != null && !node.otherwise && tokens.is(node.from + 1, '(');
+                if (control && tokens.is(node.from, "if")) {
+                    runIf(node, tally);
+                } else if (control && tokens.is(node.from, "for")) {
+                    runFor(node, tally);
+                } else if (control && tokens.is(node.from, "while")) {
+                    runWhile(node, tally);
+                } else {
+                    Entry step = step(node);
+                    if (step != null) {
+                        tally.add(node, step, 1);
+                    }
+                    if (context.declaredName == null) {
+                        assignments(node);
+                    }
+                    if (node.body != null) {
+                        runBlock(node, tally);
+                    } else {
+                        jumped(node);
+                    }
+                }
+                if (jump != null) {
+                    return;
+                }
+            }
+        }
+        
+        // Blocks, else, try and the like pass jumps on to the statement
+        // around them; a switch or do ends a break, and a method, class or
+        // lambda body ends every jump
+        private void runBlock(SyntaxTree.Node node, Tally tally) {
+            if (node.from == node.to || node.otherwise || tokens.is(node.from, "try")
+                    || tokens.is(node.from, "catch") || tokens.is(node.from, "finally")
+                    || tokens.is(node.from, "synchronized")) {
+                run(node.body, tally);
+                return;
+            }
+            if (tokens.is(node.from, "switch") || tokens.is(node.from, "do")) {
+                run(node.body, tally);
+                if ("break".equals(jump) || tokens.is(node.from, "do") && "continue".equals(jump)) {
+                    jump = null;
+                }
+                return;
+            }
+            int outerLoopDepth = loopDepth;
+            int outerMethodDepth = methodDepth;
+            int breaks = possibleBreaks;
+            int returns = possibleReturns;
+            loopDepth = undecidedDepth;
+            methodDepth = undecidedDepth;
+            run(node.body, tally);
+            jump = null;
+            loopDepth = outerLoopDepth;
+            methodDepth = outerMethodDepth;
+            possibleBreaks = breaks;
+            possibleReturns = returns;
+        }
+        
+        // Records a break, continue, return or throw, also one after a case
+        // label. One that certainly runs becomes the jump; a labelled one,
+        // which can leave several loops, is only counted as possible.
+        private void jumped(SyntaxTree.Node node) {
+            int at = node.from;
+            if (tokens.is(at, "case") || tokens.is(at, "default")) {
+                while (at < node.to && !tokens.is(at, ':')) {
+                    at++;
+                }
+                at++;
+            }
+            boolean loop = tokens.is(at, "break") || tokens.is(at, "continue");
+            if (!loop && !tokens.is(at, "return") && !tokens.is(at, "throw")) {
+                return;
+            }
+            if (loop && !tokens.is(at + 1, ';')) {
+                uninterpreted++;
+                possibleReturns++;
+            } else if (undecidedDepth == (loop ? loopDepth : methodDepth)) {
+                jump = loop ? token(at) : "return";
+            } else {
+                uninterpreted++;
+                if (loop) {
+                    possibleBreaks++;
+                } else {
+                    possibleReturns++;
+                }
+            }
+        }
+        
+        // Ends a jump at the loop it leaves; returns whether the loop stops
+        private boolean landed() {
+            if (jump == null || jump.equals("continue")) {
+                jump = null;
+                return false;
+            }
+            if (jump.equals("break")) {
+                jump = null;
+            }
+            return true;
+        }
+        
+        private void runIf(SyntaxTree.Node node, Tally tally) {
+            Object condition = evaluate(node.from + 2, conditionEnd(node));
+            Entry step = step(node);
+            if (Boolean.TRUE.equals(condition)) {
+                tally.add(node, step, 1);
+                run(node.body, tally);
+                return;
+            }
+            if (Boolean.FALSE.equals(condition)) {
+                tally.add(node, new Entry("If " + context.detail + ": not met, skipped"), 1);
+                if (node.elseBranch != null) {
+                    run(List.of(node.elseBranch), tally);
+                }
+                return;
+            }
+            
+            // Either branch may run; both are listed with unknown counts
+            Tally branches = new Tally();
+            undecidedDepth++;
+            run(node.body, branches);
+            if (node.elseBranch != null) {
+                run(List.of(node.elseBranch), branches);
+            }
+            undecidedDepth--;
+            tally.add(node, step, 1);
+            tally.merge(branches, UNKNOWN);
+        }
+        
+        private void runFor(SyntaxTree.Node node, Tally tally) {
+            Entry step = step(node);
+            String variable = loopVariable(node);
+            long count = loopCount(node, variable);
+            
+            // The loop variable changes every iteration, so conditions on it
+            // stay undecided inside the body
+            boolean declared = variable != null && values.containsKey(variable);
+            Object outer = declared ? values.get(variable) : null;
+            if (variable != null) {
+                assign(variable, UNDECIDED);
+            }
+            int mark = changedNames.size();
+            int outerLoopDepth = loopDepth;
+            int breaks = possibleBreaks;
+            loopDepth = undecidedDepth;
+            count = repeat(node.body, count, tally);
+            loopDepth = outerLoopDepth;
+            possibleBreaks = breaks;
+            if (variable != null) {
+                assign(variable, declared ? outer : null);
+            }
+            compact(mark);
+            
+            if (count == UNKNOWN) {
+                tally.add(node, step, 1);
+            } else {
+                tally.add(node, new Entry("Repeat " + count + (count == 1 ? " time:" : " times:")), 1);
+            }
+        }
+        
+        // Runs the body count times, or until a jump leaves the loop, and
+        // returns how often it ran
+        private long repeat(List<SyntaxTree.Node> body, long count, Tally tally) {
+            int jumps = possibleBreaks + possibleReturns;
+            if (count == UNKNOWN) {
+                runUndecided(body, tally);
+                return UNKNOWN;
+            }
+            for (long i = 0; i < count; i++) {
+                int mark = changedNames.size();
+                Tally once = new Tally();
+                run(body, once);
+                if (possibleBreaks + possibleReturns != jumps) {
+                    tally.merge(once, UNKNOWN);
+                    return UNKNOWN;
+                }
+                if (landed()) {
+                    tally.merge(once, 1);
+                    return i + 1;
+                }
+                if (!changedSince(mark)) {
+                    tally.merge(once, count - i);
+                    return count;
+                }
+                tally.merge(once, 1);
+                if (i + 1 == MAX_UNROLLED && i + 1 < count) {
+                    runUndecided(body, tally);
+                    return possibleBreaks + possibleReturns != jumps ? UNKNOWN : count;
+                }
+            }
+            return count;
+        }
+        
+        private void runWhile(SyntaxTree.Node node, Tally tally) {
+            Entry step = step(node);
+            String condition = context.detail;
+            int from = node.from + 2;
+            int to = conditionEnd(node);
+            int loopMark = changedNames.size();
+            int outerLoopDepth = loopDepth;
+            int breaks = possibleBreaks;
+            int jumps = possibleBreaks + possibleReturns;
+            loopDepth = undecidedDepth;
+            Tally iterations = new Tally();
+            long count = 0;
+            while (true) {
+                Object holds = evaluate(from, to);
+                if (Boolean.FALSE.equals(holds)) {
+                    break;
+                }
+                if (!Boolean.TRUE.equals(holds) || count == MAX_UNROLLED) {
+                    count = UNKNOWN;
+                    runUndecided(node.body, iterations);
+                    break;
+                }
+                int mark = changedNames.size();
+                int skipped = uninterpreted;
+                Tally once = new Tally();
+                run(node.body, once);
+                if (possibleBreaks + possibleReturns != jumps) {
+                    count = UNKNOWN;
+                    iterations.merge(once, UNKNOWN);
+                    break;
+                }
+                if (landed()) {
+                    iterations.merge(once, 1);
+                    count++;
+                    break;
+                }
+                if (!changedSince(mark)) {
+                    // Endless only when the whole body was simulated
+                    count = uninterpreted == skipped ? ENDLESS : UNKNOWN;
+                    iterations.merge(once, UNKNOWN);
+                    break;
+                }
+                iterations.merge(once, 1);
+                count++;
+            }
+            loopDepth = outerLoopDepth;
+            possibleBreaks = breaks;
+            compact(loopMark);
+            
+            if (count == UNKNOWN) {
+                tally.add(node, step, 1);
+            } else if (count == ENDLESS) {
+                tally.add(node, new Entry("While " + condition + ", repeat without end:"), 1);
+            } else {
+                tally.add(node, new Entry("While " + condition + ", repeat " + count
+                    + (count == 1 ? " time:" : " times:")), 1);
+            }
+            tally.merge(iterations, 1);
+        }
+        
+        private void runUndecided(List<SyntaxTree.Node> body, Tally tally) {
+            Tally once = new Tally();
+            undecidedDepth++;
+            run(body, once);
+            undecidedDepth--;
+            tally.merge(once, UNKNOWN);
+        }
+        
+        // The step of one node with the ingredients a call used, or null when
+        // the node gives no step. Declarations update the state.
+        private Entry step(SyntaxTree.Node node) {
+            context.references.clear();
+            context.declaredName = null;
+            String text;
+            try {
+                CharSequence result = structured.step(node);
+                if (result.length() == 0) {
+                    return null;
+                }
+                text = result.toString();
+            } catch (Exception e) {
+                context.errors++;
+                return new Entry("Error in line " + tokens.lines[node.from] + ": " + e.getMessage());
+            }
+            
+            RecipeStep.Action action = context.action;
+            if (context.declaredName != null) {
+                declared(context.declaredName, action, context.declaredValue);
+                return new Entry(text);
+            }
+            if (action == RecipeStep.Action.IF || action == RecipeStep.Action.WHILE
+                    || action == RecipeStep.Action.REPEAT || action == RecipeStep.Action.START_RECIPE
+                    || action == RecipeStep.Action.DEFINE_PROCESS || action == RecipeStep.Action.OTHERWISE) {
+                return new Entry(text);
+            }
+            
+            List<String> references = context.references;
+            List<String> names = new ArrayList<>();
+            List<BigDecimal> amounts = new ArrayList<>();
+            List<String> units = new ArrayList<>();
+            for (int i = 0; i < references.size(); i += 2) {
+                String name = references.get(i);
+                String unit = context.units.get(name);
+                BigDecimal amount = RecipeStep.parseAmount(references.get(i + 1));
+                if (unit != null && amount != null && !MEASURES.contains(unit)) {
+                    names.add(name);
+                    amounts.add(amount);
+                    units.add(unit);
+                }
+            }
+            if (names.isEmpty()) {
+                return new Entry(text);
+            }
+            return new Entry(text, names.toArray(new String[0]), amounts.toArray(new BigDecimal[0]),
+                units.toArray(new String[0]));
+        }
+        
+        private void declared(String name, RecipeStep.Action action, String value) {
+            Object typed;
+            if (undecidedDepth > 0) {
+                typed = UNDECIDED;
+            } else if (action == RecipeStep.Action.PREPARE) {
+                typed = number(value);
+            } else if (action == RecipeStep.Action.SET) {
+                typed = Boolean.valueOf(value);
+            } else {
+                typed = value;
+            }
+            assign(name, typed);
+        }
+        
+        // Makes every variable a statement assigns with =, op= or ++ and --
+        // undecided, since those statements are not simulated
+        private void assignments(SyntaxTree.Node node) {
+            for (int i = node.from; i < node.to; i++) {
+                int target;
+                if (tokens.is(i, '=') && i > node.from && !tokens.is(i + 1, '=')
+                        && "=!<>".indexOf(tokens.source.charAt(tokens.starts[i - 1])) < 0) {
+                    // k = ..., or k += ... with the operator right in front of =
+                    boolean compound = tokens.kinds[i - 1] == SourceTokens.SYMBOL
+                        && "+-*/%&|^".indexOf(tokens.source.charAt(tokens.starts[i - 1])) >= 0
+                        && tokens.ends[i - 1] == tokens.starts[i];
+                    target = compound ? i - 2 : i - 1;
+                } else if ((tokens.is(i, '+') && tokens.is(i + 1, '+') || tokens.is(i, '-') && tokens.is(i + 1, '-'))
+                        && tokens.ends[i] == tokens.starts[i + 1]) {
+                    // k++ or ++k
+                    target = i > node.from && tokens.kinds[i - 1] == SourceTokens.IDENTIFIER ? i - 1 : i + 2;
+                    i++;
+                } else {
+                    continue;
+                }
+                uninterpreted++;
+                if (target >= node.from && target < node.to && tokens.kinds[target] == SourceTokens.IDENTIFIER) {
+                    assign(token(target), UNDECIDED);
+                }
+            }
+        }
+        
+        // Sets a value, or removes it for null, and records the change
+        private void assign(String name, Object value) {
+            boolean present = values.containsKey(name);
+            Object previous = value == null ? values.remove(name) : values.put(name, value);
+            if (present != (value != null) || !Objects.equals(previous, value)) {
+                changedNames.add(name);
+                changedValues.add(present ? previous : null);
+            }
+        }
+        
+        // Whether the state differs from what it was when the change list had
+        // mark entries
+        private boolean changedSince(int mark) {
+            Map<String, Object> before = new HashMap<>();
+            for (int i = mark; i < changedNames.size(); i++) {
+                if (!before.containsKey(changedNames.get(i))) {
+                    before.put(changedNames.get(i), changedValues.get(i));
+                }
+            }
+            for (Map.Entry<String, Object> name : before.entrySet()) {
+                if (!Objects.equals(name.getValue(), values.get(name.getKey()))) {
+                    return true;
+                }
+            }
+            return false;
+        }
+        
+        // Keeps only the first change per name after mark, which is all an
+        // enclosing loop's changedSince needs, so long runs stay small
+        private void compact(int mark) {
+            Map<String, Object> before = new LinkedHashMap<>();
+            for (int i = mark; i < changedNames.size(); i++) {
+                if (!before.containsKey(changedNames.get(i))) {
+                    before.put(changedNames.get(i), changedValues.get(i));
+                }
+            }
+            changedNames.subList(mark, changedNames.size()).clear();
+            changedValues.subList(mark, changedValues.size()).clear();
+            for (Map.Entry<String, Object> name : before.entrySet()) {
+                changedNames.add(name.getKey());
+                changedValues.add(name.getValue());
+            }
+        }
+        
+        private int conditionEnd(SyntaxTree.Node node) {
+            return tokens.is(node.to - 1, ')') ? node.to - 1 : node.to;
+        }
+        
+        // The variable a for loop initialises, as in "int i = 0" or "i = 0"
+        private String loopVariable(SyntaxTree.Node node) {
+            int[] parts = forParts(node);
+            if (parts == null) {
+                return null;
+            }
+            int from = parts[0];
+            int equals = from + (tokens.is(from + 1, '=') ? 1 : 2);
+            if (equals < parts[1] && tokens.is(equals, '=') && tokens.kinds[equals - 1] == SourceTokens.IDENTIFIER) {
+                return token(equals - 1);
+            }
+            return null;
+        }
+        
+        // Iterations of for (start; variable op bound; update) when start,
+        // bound and step are constants, otherwise UNKNOWN
+        private long loopCount(SyntaxTree.Node node, String variable) {
+            int[] parts = forParts(node);
+            if (parts == null || variable == null) {
+                return UNKNOWN;
+            }
+            int equals = parts[0] + (tokens.is(parts[0] + 1, '=') ? 1 : 2);
+            Object start = evaluate(equals + 1, parts[1]);
+            
+            // Condition: the variable on one side of a comparison
+            int operator = -1;
+            for (int i = parts[1] + 1; i < parts[2]; i++) {
+                if (tokens.is(i, '<') || tokens.is(i, '>') || tokens.is(i, '!') && tokens.is(i + 1, '=')) {
+                    operator = i;
+                    break;
+                }
+            }
+            if (operator < 0) {
+                return UNKNOWN;
+            }
+            String comparison = token(operator) + (tokens.is(operator + 1, '=') ? "=" : "");
+            int afterOperator = operator + comparison.length();
+            Object bound;
+            if (operator == parts[1] + 2 && tokens.is(parts[1] + 1, variable)) {
+                bound = evaluate(afterOperator, parts[2]);
+            } else if (afterOperator == parts[2] - 1 && tokens.is(afterOperator, variable)) {
+                bound = evaluate(parts[1] + 1, operator);
+                comparison = flip(comparison);
+            } else {
+                return UNKNOWN;
+            }
+            
+            Object step = loopStep(parts[2] + 1, parts[3], variable);
+            if (!(start instanceof BigDecimal) || !(bound instanceof BigDecimal) || !(step instanceof BigDecimal)) {
+                return UNKNOWN;
+            }
+            return iterations((BigDecimal) start, comparison, (BigDecimal) bound, (BigDecimal) step);
+        }
+        
+        // Token indexes of the opening parenthesis, the two semicolons and the
+        // closing parenthesis of a for header, or null for other forms
+        private int[] forParts(SyntaxTree.Node node) {
+            int open = node.from + 1;
+            int close = conditionEnd(node);
+            int first = -1;
+            int second = -1;
+            int depth = 0;
+            for (int i = open + 1; i < close; i++) {
+                if (tokens.is(i, '(')) {
+                    depth++;
+                } else if (tokens.is(i, ')')) {
+                    depth--;
+                } else if (depth == 0 && tokens.is(i, ';')) {
+                    if (first < 0) {
+                        first = i;
+                    } else if (second < 0) {
+                        second = i;
+                    } else {
+                        return null;
+                    }
+                }
+            }
+            if (second < 0) {
+                return null;
+            }
+            return new int[] {open + 1, first, second, close};
+        }
+        
+        // The amount the update adds to the variable per iteration
+        private Object loopStep(int from, int to, String variable) {
+            if (to - from == 3 && tokens.is(from, variable)
+                    && (tokens.is(from + 1, '+') || tokens.is(from + 1, '-'))
+                    && tokens.is(from + 2, token(from + 1).charAt(0))) {
+                return tokens.is(from + 1, '+') ? BigDecimal.ONE : BigDecimal.ONE.negate();
+            }
+            if (to - from == 3 && tokens.is(from + 2, variable)
+                    && (tokens.is(from, '+') || tokens.is(from, '-')) && tokens.is(from + 1, token(from).charAt(0))) {
+                return tokens.is(from, '+') ? BigDecimal.ONE : BigDecimal.ONE.negate();
+            }
+            if (to - from > 3 && tokens.is(from, variable) && tokens.is(from + 2, '=')
+                    && (tokens.is(from + 1, '+') || tokens.is(from + 1, '-'))) {
+                Object amount = evaluate(from + 3, to);
+                if (amount instanceof BigDecimal) {
+                    return tokens.is(from + 1, '+') ? amount : ((BigDecimal) amount).negate();
+                }
+            }
+            return UNDECIDED;
+        }
+        
+        private static String flip(String comparison) {
+            switch (comparison) {
+                case "<":
+                    return ">";
+                case "<=":
+                    return ">=";
+                case ">":
+                    return "<";
+                case ">=":
+                    return "<=";
+                default:
+                    return comparison;
+            }
+        }
+        
+        private static long iterations(BigDecimal start, String comparison, BigDecimal bound, BigDecimal step) {
+            if (!compare(start, comparison, bound)) {
+                return 0;
+            }
+            // More iterations than a long holds are unknown; checked before
+            // dividing, which could build a huge quotient
+            BigDecimal distance = bound.subtract(start).abs();
+            if (distance.compareTo(step.abs().multiply(BigDecimal.valueOf(Long.MAX_VALUE))) > 0) {
+                return UNKNOWN;
+            }
+            BigDecimal count;
+            switch (comparison) {
+                case "<":
+                case ">":
+                    if (step.signum() != (comparison.equals("<") ? 1 : -1)) {
+                        return UNKNOWN;
+                    }
+                    count = bound.subtract(start).divide(step, 0, RoundingMode.CEILING);
+                    break;
+                case "<=":
+                case ">=":
+                    if (step.signum() != (comparison.equals("<=") ? 1 : -1)) {
+                        return UNKNOWN;
+                    }
+                    count = bound.subtract(start).divide(step, 0, RoundingMode.FLOOR).add(BigDecimal.ONE);
+                    break;
+                default:
+                    if (step.signum() == 0) {
+                        return UNKNOWN;
+                    }
+                    BigDecimal[] division = bound.subtract(start).divideAndRemainder(step);
+                    if (division[1].signum() != 0 || division[0].signum() <= 0) {
+                        return UNKNOWN;
+                    }
+                    count = division[0];
+            }
+            return count.compareTo(BigDecimal.valueOf(Long.MAX_VALUE)) > 0 ? UNKNOWN : count.longValue();
+        }
+        
+        private static boolean compare(BigDecimal left, String comparison, BigDecimal right) {
+            int order = left.compareTo(right);
+            switch (comparison) {
+                case "<":
+                    return order < 0;
+                case "<=":
+                    return order <= 0;
+                case ">":
+                    return order > 0;
+                case ">=":
+                    return order >= 0;
+                case "==":
+                    return order == 0;
+                default:
+                    return order != 0;
+            }
+        }
+        
+        // Expressions over tokens [from, to): the value as BigDecimal, String
+        // or Boolean, or UNDECIDED
+        private Object evaluate(int from, int to) {
+            position = from;
+            end = to;
+            failed = false;
+            Object value = or();
+            return failed || position != end ? UNDECIDED : value;
+        }
+        
+        private Object or() {
+            Object left = and();
+            while (symbol('|') && tokens.is(position + 1, '|')) {
+                position += 2;
+                Object right = and();
+                if (Boolean.TRUE.equals(left) || Boolean.TRUE.equals(right)) {
+                    left = Boolean.TRUE;
+                } else if (Boolean.FALSE.equals(left) && Boolean.FALSE.equals(right)) {
+                    left = Boolean.FALSE;
+                } else {
+                    left = UNDECIDED;
+                }
+            }
+            return left;
+        }
+        
+        private Object and() {
+            Object left = equality();
+            while (symbol('&') && tokens.is(position + 1, '&')) {
+                position += 2;
+                Object right = equality();
+                if (Boolean.FALSE.equals(left) || Boolean.FALSE.equals(right)) {
+                    left = Boolean.FALSE;
+                } else if (Boolean.TRUE.equals(left) && Boolean.TRUE.equals(right)) {
+                    left = Boolean.TRUE;
+                } else {
+                    left = UNDECIDED;
+                }
+            }
+            return left;
+        }
+        
+        private Object equality() {
+            Object left = relational();
+            if ((symbol('=') || symbol('!')) && tokens.is(position + 1, '=')) {
+                boolean equal = symbol('=');
+                position += 2;
+                Object right = relational();
+                if (left instanceof BigDecimal && right instanceof BigDecimal) {
+                    return compare((BigDecimal) left, equal ? "==" : "!=", (BigDecimal) right);
+                }
+                if (left instanceof Boolean && right instanceof Boolean) {
+                    return left.equals(right) == equal;
+                }
+                // Strings compare by identity in Java, which a recipe cannot know
+                return UNDECIDED;
+            }
+            return left;
+        }
+        
+        private Object relational() {
+            Object left = additive();
+            if ((symbol('<') || symbol('>')) && !tokens.is(position + 1, token(position).charAt(0))) {
+                String comparison = token(position);
+                position++;
+                if (symbol('=')) {
+                    comparison += "=";
+                    position++;
+                }
+                Object right = additive();
+                if (left instanceof BigDecimal && right instanceof BigDecimal) {
+                    return compare((BigDecimal) left, comparison, (BigDecimal) right);
+                }
+                return UNDECIDED;
+            }
+            return left;
+        }
+        
+        private Object additive() {
+            Object left = multiplicative();
+            while ((symbol('+') || symbol('-')) && !tokens.is(position + 1, token(position).charAt(0))
+                    && !tokens.is(position + 1, '=')) {
+                boolean add = symbol('+');
+                position++;
+                Object right = multiplicative();
+                if (left instanceof BigDecimal && right instanceof BigDecimal) {
+                    left = bounded(add ? ((BigDecimal) left).add((BigDecimal) right)
+                        : ((BigDecimal) left).subtract((BigDecimal) right));
+                } else {
+                    left = UNDECIDED;
+                }
+            }
+            return left;
+        }
+        
+        private Object multiplicative() {
+            Object left = unary();
+            while (symbol('*')) {
+                position++;
+                Object right = unary();
+                if (left instanceof BigDecimal && right instanceof BigDecimal) {
+                    left = bounded(((BigDecimal) left).multiply((BigDecimal) right));
+                } else {
+                    left = UNDECIDED;
+                }
+            }
+            return left;
+        }
+        
+        private Object unary() {
+            if (symbol('!') && !tokens.is(position + 1, '=')) {
+                position++;
+                Object value = unary();
+                return value instanceof Boolean ? !(Boolean) value : UNDECIDED;
+            }
+            if (symbol('-')) {
+                position++;
+                Object value = unary();
+                return value instanceof BigDecimal ? ((BigDecimal) value).negate() : UNDECIDED;
+            }
+            return primary();
+        }
+        
+        private Object primary() {
+            if (position >= end) {
+                failed = true;
+                return UNDECIDED;
+            }
+            if (symbol('(')) {
+                position++;
+                Object value = or();
+                if (!symbol(')')) {
+                    failed = true;
+                    return UNDECIDED;
+                }
+                position++;
+                return value;
+            }
+            
+            int kind = tokens.kinds[position];
+            String token = token(position);
+            position++;
+            if (kind == SourceTokens.NUMBER) {
+                return number(token);
+            }
+            if (kind == SourceTokens.LITERAL && token.length() >= 2 && token.charAt(0) == '"'
+                    && token.indexOf('\\') < 0) {
+                return token.substring(1, token.length() - 1);
+            }
+            if (kind == SourceTokens.IDENTIFIER && !symbol('(') && !symbol('.') && !symbol('[')) {
+                if (token.equals("true") || token.equals("false")) {
+                    return Boolean.valueOf(token);
+                }
+                Object value = values.get(token);
+                return value != null ? value : UNDECIDED;
+            }
+            // Calls, fields, arrays and anything else are not evaluated
+            failed = true;
+            return UNDECIDED;
+        }
+        
+        private boolean symbol(char symbol) {
+            return position < end && tokens.is(position, symbol);
+        }
+        
+        private String token(int index) {
+            return tokens.source.substring(tokens.starts[index], tokens.ends[index]);
+        }
+        
+        // A Java number literal as a decimal, or UNDECIDED for hex, octal and
+        // binary literals
+        private static Object number(String literal) {
+            String digits = literal.replace("_", "");
+            if (!digits.isEmpty() && "lLfFdD".indexOf(digits.charAt(digits.length() - 1)) >= 0) {
+                digits = digits.substring(0, digits.length() - 1);
+            }
+            if (digits.length() > 1 && digits.charAt(0) == '0' && Character.isLetterOrDigit(digits.charAt(1))) {
+                return UNDECIDED;
+            }
+            try {
+                return bounded(new BigDecimal(digits));
+            } catch (NumberFormatException e) {
+                return UNDECIDED;
+            }
+        }
+        
+        private static Object bounded(BigDecimal value) {
+            return value.precision() <= MAX_DIGITS && Math.abs(value.scale()) <= MAX_DIGITS ? value : UNDECIDED;
+        }
+    }
+}
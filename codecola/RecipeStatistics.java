@@ -0,0 +1,24 @@
+package codecola;
+
+// The numbers printed in the statistics block at the end of a recipe
+public final class RecipeStatistics {
+    private final int ingredientCount;
+    private final int stepCount;
+    
+    RecipeStatistics(int ingredientCount, int stepCount) {
+        this.ingredientCount = ingredientCount;
+        this.stepCount = stepCount;
+    }
+    
+    public int getIngredientCount() {
+        return ingredientCount;
+    }
+    
+    public int getStepCount() {
+        return stepCount;
+    }
+    
+    public int getEstimatedMinutes() {
+        return stepCount * 2;
+    }
+}
@@ -0,0 +1,206 @@
+package codecola;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+// One recipe step as data: what to do, with which ingredient and how much,
+// and where it came from. getText renders the same sentence the text output
+// shows, so consumers never have to parse it back out.
+public final class RecipeStep {
+    public enum Action {
+        PREPARE("Prepare"),
+        SELECT("Select"),
+        SET("Set"),
+        HEAT("Heat"),
+        MIX("Mix"),
+        ADD("Add"),
+        SERVE("Serve"),
+        WAIT("Wait"),
+        STIR("Stir"),
+        EXECUTE("Execute"),
+        IF("If"),
+        REPEAT("Repeat"),
+        WHILE("While"),
+        OTHERWISE("Otherwise"),
+        START_RECIPE("Start recipe"),
+        DEFINE_PROCESS("Define process"),
+        ERROR("Error"),
+        // A verb from a custom Vocabulary; the step's target is its label
+        CUSTOM("Custom"),
+        // A line ConversionLimits kept from being converted; the detail says why
+        SKIPPED("Skipped");
+        
+        private final String verb;
+        
+        Action(String verb) {
+            this.verb = verb;
+        }
+        
+        public String getVerb() {
+            return verb;
+        }
+    }
+    
+    private final Action action;
+    private final String ingredient;
+    private final BigDecimal amount;
+    private final String unit;
+    private final String detail;
+    private final String target;
+    private final int line;
+    private final int depth;
+    
+    RecipeStep(Action action, String ingredient, BigDecimal amount, String unit, String detail, String target,
+            int line, int depth) {
+        this.action = action;
+        this.ingredient = ingredient;
+        this.amount = amount;
+        this.unit = unit;
+        this.detail = detail;
+        this.target = target;
+        this.line = line;
+        this.depth = depth;
+    }
+    
+    // Builds the step the last parse* call described in the context
+    static RecipeStep fromContext(ConversionContext context, int line, int depth) {
+        Action action = context.action;
+        switch (action) {
+            case PREPARE: {
+                // The value text is kept only when the amount cannot reproduce it
+                BigDecimal amount = parseAmount(context.detail);
+                return new RecipeStep(action, context.declaredName, amount, context.unit,
+                    amount == null ? context.detail : null, null, line, depth);
+            }
+            case SELECT:
+            case SET:
+                return new RecipeStep(action, context.declaredName, null, null, context.detail, null, line, depth);
+            case HEAT:
+            case MIX:
+            case ADD:
+            case SERVE:
+            case WAIT:
+            case STIR:
+            case EXECUTE:
+            case CUSTOM: {
+                // The first declared ingredient among the arguments
+                String target = action == Action.EXECUTE || action == Action.CUSTOM ? context.target : null;
+                List<String> references = context.references;
+                for (int i = 0; i < references.size(); i += 2) {
+                    String value = references.get(i + 1);
+                    if (value != null) {
+                        String name = references.get(i);
+                        return new RecipeStep(action, name, parseAmount(value), context.units.get(name),
+                            context.detail, target, line, depth);
+                    }
+                }
+                return new RecipeStep(action, null, null, null, context.detail, target, line, depth);
+            }
+            case IF:
+            case WHILE:
+            case ERROR:
+            case SKIPPED:
+                return new RecipeStep(action, null, null, null, context.detail, null, line, depth);
+            case START_RECIPE:
+            case DEFINE_PROCESS:
+                return new RecipeStep(action, null, null, null, null, context.target, line, depth);
+            default:
+                return new RecipeStep(action, null, null, null, null, null, line, depth);
+        }
+    }
+    
+    // A plain decimal whose text BigDecimal gives back unchanged, or null
+    static BigDecimal parseAmount(String text) {
+        if (text == null || text.isEmpty() || text.length() > 18) {
+            return null;
+        }
+        int dots = 0;
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (c == '.') {
+                dots++;
+            } else if (c < '0' || c > '9') {
+                return null;
+            }
+        }
+        if (dots > 1 || text.charAt(0) == '.' || text.charAt(text.length() - 1) == '.') {
+            return null;
+        }
+        BigDecimal amount = new BigDecimal(text);
+        return amount.toPlainString().equals(text) ? amount : null;
+    }
+    
+    public Action getAction() {
+        return action;
+    }
+    
+    // The declared ingredient, or the first one used as an argument; may be null
+    public String getIngredient() {
+        return ingredient;
+    }
+    
+    // Value of the ingredient when it is a plain number; may be null
+    public BigDecimal getAmount() {
+        return amount;
+    }
+    
+    // Unit of a numeric ingredient as given by getUnitForVariable; may be null
+    public String getUnit() {
+        return unit;
+    }
+    
+    // The rest of the sentence: arguments, condition, text value or on/off
+    public String getDetail() {
+        return detail;
+    }
+    
+    // Called process, class or method name, or the label of a custom verb
+    public String getTarget() {
+        return target;
+    }
+    
+    public int getLine() {
+        return line;
+    }
+    
+    public int getDepth() {
+        return depth;
+    }
+    
+    public String getText() {
+        switch (action) {
+            case PREPARE:
+                return "Prepare " + (amount != null ? amount.toPlainString() : detail) + " " + unit + " " + ingredient;
+            case SELECT:
+                return "Select \"" + detail + "\" as " + ingredient;
+            case SET:
+                return "Set " + ingredient + " to " + detail;
+            case EXECUTE:
+                return "Execute " + target + " with " + detail;
+            case IF:
+                return "If " + detail + ", then:";
+            case REPEAT:
+                return "Repeat the following steps:";
+            case WHILE:
+                return "While " + detail + ", repeat:";
+            case OTHERWISE:
+                return "Otherwise:";
+            case START_RECIPE:
+            case DEFINE_PROCESS:
+                return action.verb + ": " + target;
+            case ERROR:
+                return "Error in line " + line + ": " + detail;
+            case SKIPPED:
+                return "Skipped line " + line + ": " + detail;
+            case CUSTOM:
+                return target + " " + detail;
+            default:
+                return action.verb + " " + detail;
+        }
+    }
+    
+    @Override
+    public String toString() {
+        return getText();
+    }
+}
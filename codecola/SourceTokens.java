@@ -0,0 +1,142 @@
+package codecola;
+
+import java.util.Arrays;
+
+// Splits a whole source file into tokens in one pass. Comments and whitespace
+// are dropped wherever they appear, string and character literals stay whole.
+// Tokens are kept as offsets in parallel int arrays instead of objects.
+final class SourceTokens {
+    static final int IDENTIFIER = 1;
+    static final int NUMBER = 2;
+    static final int LITERAL = 3;
+    static final int SYMBOL = 4;
+    
+    final String source;
+    int[] kinds;
+    int[] starts;
+    int[] ends;
+    int[] lines;
+    int count;
+    
+    private SourceTokens(String source) {
+        this.source = source;
+        int capacity = Math.max(16, source.length() / 4);
+        kinds = new int[capacity];
+        starts = new int[capacity];
+        ends = new int[capacity];
+        lines = new int[capacity];
+    }
+    
+    static SourceTokens tokenize(String source) {
+        SourceTokens tokens = new SourceTokens(source);
+        int length = source.length();
+        int line = 1;
+        int i = 0;
+        while (i < length) {
+            char c = source.charAt(i);
+            if (c == '\n') {
+                line++;
+                i++;
+            } else if (Character.isWhitespace(c)) {
+                i++;
+            } else if (c == '/' && i + 1 < length && source.charAt(i + 1) == '/') {
+                while (i < length && source.charAt(i) != '\n') {
+                    i++;
+                }
+            } else if (c == '/' && i + 1 < length && source.charAt(i + 1) == '*') {
+                int end = source.indexOf("*/", i + 2);
+                end = end < 0 ? length : end + 2;
+                line += countLines(source, i, end);
+                i = end;
+            } else if (Character.isJavaIdentifierStart(c)) {
+                int start = i;
+                while (i < length && Character.isJavaIdentifierPart(source.charAt(i))) {
+                    i++;
+                }
+                tokens.add(IDENTIFIER, start, i, line);
+            } else if (Character.isDigit(c) || c == '.' && i + 1 < length && Character.isDigit(source.charAt(i + 1))) {
+                int start = i;
+                while (i < length && (Character.isLetterOrDigit(source.charAt(i)) || source.charAt(i) == '.'
+                        || source.charAt(i) == '_')) {
+                    i++;
+                }
+                tokens.add(NUMBER, start, i, line);
+            } else if (c == '"' || c == '\'') {
+                int start = i;
+                i = skipLiteral(source, i);
+                tokens.add(LITERAL, start, i, line);
+                line += countLines(source, start, i);
+            } else {
+                tokens.add(SYMBOL, i, i + 1, line);
+                i++;
+            }
+        }
+        return tokens;
+    }
+    
+    boolean is(int index, char symbol) {
+        return index < count && kinds[index] == SYMBOL && source.charAt(starts[index]) == symbol;
+    }
+    
+    boolean is(int index, String identifier) {
+        return index < count && kinds[index] == IDENTIFIER && ends[index] - starts[index] == identifier.length()
+            && source.startsWith(identifier, starts[index]);
+    }
+    
+    // Appends the source of tokens [from, to) with every gap between two
+    // tokens, whether whitespace, newlines or comments, turned into one space
+    void appendText(StringBuilder text, int from, int to) {
+        for (int i = from; i < to; i++) {
+            if (i > from && starts[i] > ends[i - 1]) {
+                text.append(' ');
+            }
+            text.append(source, starts[i], ends[i]);
+        }
+    }
+    
+    private void add(int kind, int start, int end, int line) {
+        if (count == kinds.length) {
+            int capacity = count * 2;
+            kinds = Arrays.copyOf(kinds, capacity);
+            starts = Arrays.copyOf(starts, capacity);
+            ends = Arrays.copyOf(ends, capacity);
+            lines = Arrays.copyOf(lines, capacity);
+        }
+        kinds[count] = kind;
+        starts[count] = start;
+        ends[count] = end;
+        lines[count] = line;
+        count++;
+    }
+    
+    private static int skipLiteral(String source, int start) {
+        int length = source.length();
+        if (source.startsWith("\"\"\"", start)) {
+            int end = source.indexOf("\"\"\"", start + 3);
+            return end < 0 ? length : end + 3;
+        }
+        char quote = source.charAt(start);
+        int i = start + 1;
+        while (i < length) {
+            char c = source.charAt(i);
+            if (c == '\\') {
+                i += 2;
+            } else if (c == quote || c == '\n') {
+                return c == quote ? i + 1 : i;
+            } else {
+                i++;
+            }
+        }
+        return length;
+    }
+    
+    private static int countLines(String source, int from, int to) {
+        int lines = 0;
+        for (int i = from; i < to && i < source.length(); i++) {
+            if (source.charAt(i) == '\n') {
+                lines++;
+            }
+        }
+        return lines;
+    }
+}
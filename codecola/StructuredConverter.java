@@ -0,0 +1,231 @@
+package codecola;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.List;
+
+// Walks the syntax tree of one source file and emits nested steps. Statements
+// are recognised from their token shapes, so no regular expression runs here;
+// the step text comes from the same parse* methods the line-based path uses.
+final class StructuredConverter {
+    private final RecipeConverter converter;
+    final SourceTokens tokens;
+    final ConversionContext context;
+    private final StringBuilder recipe = new StringBuilder();
+    private final StringBuilder text = new StringBuilder();
+    
+    StructuredConverter(RecipeConverter converter, SourceTokens tokens, boolean buildModel, IngredientTable project) {
+        this.converter = converter;
+        this.tokens = tokens;
+        this.context = new ConversionContext(converter.getVocabulary(), true);
+        context.project = project;
+        context.guard(converter.getLimits());
+        if (buildModel) {
+            context.startModel();
+        }
+    }
+    
+    ConversionResult convert() {
+        try {
+            RecipeConverter.appendHeader(recipe);
+            emit(SyntaxTree.parse(tokens, maxDepth()), 0);
+            RecipeConverter.appendFooter(recipe, context.variables.size(), context.stepCount);
+        } catch (IOException e) {
+            // Cannot happen for in-memory output
+            throw new UncheckedIOException(e);
+        }
+        if (ConversionMetrics.ENABLED) {
+            ConversionMetrics.finish(context, "structured", tokens.count > 0 ? tokens.lines[tokens.count - 1] : 0);
+        }
+        return new ConversionResult(recipe.toString(), context.recipeSteps, context.variables.size(),
+            context.timedOut);
+    }
+    
+    // The typed steps of the last convert, when built with buildModel
+    Recipe getRecipe() {
+        return new Recipe(context.model, context.variables.size());
+    }
+    
+    private void emit(List<SyntaxTree.Node> nodes, int depth) {
+        for (SyntaxTree.Node node : nodes) {
+            if (context.timedOut) {
+                return;
+            }
+            CharSequence result;
+            if (context.references != null) {
+                context.references.clear();
+            }
+            try {
+                result = context.limits != null ? guardedStep(node) : step(node);
+            } catch (Exception e) {
+                context.errors++;
+                context.action = RecipeStep.Action.ERROR;
+                context.detail = String.valueOf(e.getMessage());
+                result = "Error in line " + tokens.lines[node.from] + ": " + e.getMessage();
+            }
+            
+            int bodyDepth = depth;
+            if (result.length() > 0) {
+                for (int i = 0; i < depth; i++) {
+                    recipe.append("  ");
+                }
+                recipe.append(++context.stepCount).append(". ").append(result).append('\n');
+                context.recipeSteps.add(result.toString());
+                if (context.model != null) {
+                    context.addModelStep(tokens.lines[node.from], depth);
+                }
+                bodyDepth++;
+            }
+            if (node.body != null) {
+                emit(node.body, bodyDepth);
+            }
+            if (node.elseBranch != null) {
+                emit(List.of(node.elseBranch), depth);
+            }
+        }
+    }
+    
+    // Only guarded conversions have skipped nodes or a deadline
+    private CharSequence guardedStep(SyntaxTree.Node node) {
+        ConversionLimits limits = context.limits;
+        if (context.pastDeadline()) {
+            context.timedOut = true;
+            return RecipeConverter.skipped(tokens.lines[node.from], "time limit of " + limits.getTimeLimitMillis()
+                + " ms reached, the rest was not converted", context);
+        }
+        return step(node);
+    }
+    
+    private int maxDepth() {
+        ConversionLimits limits = context.limits;
+        return Math.min(limits != null ? limits.getMaxDepth() : SyntaxTree.MAX_DEPTH, SyntaxTree.MAX_DEPTH);
+    }
+    
+    // The step for one node without its body, also used by RecipeSimulation
+    CharSequence step(SyntaxTree.Node node) {
+        if (node.otherwise) {
+            context.action = RecipeStep.Action.OTHERWISE;
+            return "Otherwise:";
+        }
+        if (node.from >= node.to) {
+            return "";
+        }
+        if (node.skipped) {
+            return RecipeConverter.skipped(tokens.lines[node.from], "blocks nested deeper than " + maxDepth()
+                + " were not converted", context);
+        }
+        if (node.body == null) {
+            return statementStep(node.from, node.to);
+        }
+        if (tokens.is(node.from + 1, '(')) {
+            int conditionEnd = tokens.is(node.to - 1, ')') ? node.to - 1 : node.to;
+            if (tokens.is(node.from, "if")) {
+                return converter.parseIfStatement(text(node.from + 2, conditionEnd), context);
+            } else if (tokens.is(node.from, "while")) {
+                return converter.parseWhileLoop(text(node.from + 2, conditionEnd), context);
+            } else if (tokens.is(node.from, "for")) {
+                return converter.parseForLoop(context);
+            }
+        }
+        return headerStep(node.from, node.to);
+    }
+    
+    // Declarations and calls: the statement forms that end in ';'
+    private CharSequence statementStep(int from, int to) {
+        if (!tokens.is(to - 1, ';')) {
+            return "";
+        }
+        int end = to - 1;
+        
+        if (end - from == 4 && tokens.kinds[from] == SourceTokens.IDENTIFIER
+                && tokens.kinds[from + 1] == SourceTokens.IDENTIFIER && tokens.is(from + 2, '=')) {
+            int value = from + 3;
+            if ((tokens.is(from, "int") || tokens.is(from, "double") || tokens.is(from, "float")
+                    || tokens.is(from, "long")) && isPlainNumber(value)) {
+                return converter.parseNumericVariable(token(from), token(from + 1), token(value), context);
+            } else if (tokens.is(from, "String") && isPlainString(value)) {
+                String literal = token(value);
+                return converter.parseStringVariable(token(from + 1), literal.substring(1, literal.length() - 1),
+                    context);
+            } else if (tokens.is(from, "boolean") && (tokens.is(value, "true") || tokens.is(value, "false"))) {
+                return converter.parseBooleanVariable(token(from + 1), token(value), context);
+            }
+            return "";
+        }
+        
+        if (end - from >= 3 && tokens.kinds[from] == SourceTokens.IDENTIFIER && tokens.is(from + 1, '(')
+                && tokens.is(end - 1, ')') && closingParenthesis(from + 1) == end - 1) {
+            return converter.parseMethodCall(token(from), text(from + 2, end - 1), context);
+        }
+        return "";
+    }
+    
+    // Headers of class and method bodies
+    private CharSequence headerStep(int from, int to) {
+        for (int i = from; i + 1 < to; i++) {
+            if (tokens.is(i, "class") && tokens.kinds[i + 1] == SourceTokens.IDENTIFIER) {
+                return converter.parseClassDefinition(token(i + 1), context);
+            }
+        }
+        
+        if (tokens.is(from + 1, '(')) {
+            return "";
+        }
+        for (int i = from + 2; i < to; i++) {
+            if (tokens.is(i, '(')) {
+                int name = i - 1;
+                int type = i - 2;
+                boolean typed = tokens.kinds[type] == SourceTokens.IDENTIFIER || tokens.is(type, '>')
+                    || tokens.is(type, ']');
+                if (tokens.kinds[name] == SourceTokens.IDENTIFIER && typed && !tokens.is(type, "new")) {
+                    return converter.parseMethodDefinition(token(name), context);
+                }
+                return "";
+            }
+        }
+        return "";
+    }
+    
+    private int closingParenthesis(int open) {
+        int depth = 0;
+        for (int i = open; i < tokens.count; i++) {
+            if (tokens.is(i, '(')) {
+                depth++;
+            } else if (tokens.is(i, ')') && --depth == 0) {
+                return i;
+            }
+        }
+        return -1;
+    }
+    
+    private boolean isPlainNumber(int index) {
+        if (tokens.kinds[index] != SourceTokens.NUMBER) {
+            return false;
+        }
+        for (int i = tokens.starts[index]; i < tokens.ends[index]; i++) {
+            char c = tokens.source.charAt(i);
+            if (!Character.isDigit(c) && c != '.') {
+                return false;
+            }
+        }
+        return true;
+    }
+    
+    private boolean isPlainString(int index) {
+        int start = tokens.starts[index];
+        int end = tokens.ends[index];
+        return tokens.kinds[index] == SourceTokens.LITERAL && end - start >= 2
+            && tokens.source.charAt(start) == '"' && tokens.source.charAt(end - 1) == '"'
+            && tokens.source.indexOf('"', start + 1) == end - 1;
+    }
+    
+    private String token(int index) {
+        return tokens.source.substring(tokens.starts[index], tokens.ends[index]);
+    }
+    
+    private String text(int from, int to) {
+        text.setLength(0);
+        tokens.appendText(text, from, to);
+        return text.toString();
+    }
+}
@@ -0,0 +1,207 @@
+package codecola;
+
+import java.util.ArrayList;
+import java.util.List;
+
+// Block structure of a tokenized source file. Every node covers the tokens of
+// one statement, or the header of a compound statement (class, method, if,
+// for, while, else) together with the statements of its body. Statements are
+// found by brackets and semicolons, not by lines, so a header or call spread
+// over several lines becomes one node.
+//
+// Blocks nest on the Java stack, here and in everything that walks the tree.
+// Past maxDepth, and never deeper than MAX_DEPTH, the rest of a block is not
+// parsed; a single skipped node covers its tokens instead.
+final class SyntaxTree {
+    // Deepest nesting parsed even without limits, so that no input overflows
+    // the stack of a thread with the default stack size
+    static final int MAX_DEPTH = 500;
+    
+    static final class Node {
+        final int from;
+        final int to;
+        final boolean otherwise;
+        boolean skipped;
+        List<Node> body;
+        Node elseBranch;
+        
+        Node(int from, int to, boolean otherwise) {
+            this.from = from;
+            this.to = to;
+            this.otherwise = otherwise;
+        }
+    }
+    
+    private final SourceTokens tokens;
+    private final int maxDepth;
+    private int position;
+    private int depth;
+    
+    private SyntaxTree(SourceTokens tokens, int maxDepth) {
+        this.tokens = tokens;
+        this.maxDepth = maxDepth;
+    }
+    
+    static List<Node> parse(SourceTokens tokens) {
+        return parse(tokens, MAX_DEPTH);
+    }
+    
+    static List<Node> parse(SourceTokens tokens, int maxDepth) {
+        SyntaxTree tree = new SyntaxTree(tokens, Math.min(maxDepth, MAX_DEPTH));
+        List<Node> nodes = new ArrayList<>();
+        while (tree.position < tokens.count) {
+            if (tokens.is(tree.position, '}')) {
+                // Unbalanced closing brace at the top level
+                tree.position++;
+                continue;
+            }
+            tree.addStatement(nodes);
+        }
+        return nodes;
+    }
+    
+    // Reads statements up to and including the closing brace
+    private List<Node> parseBlock() {
+        List<Node> nodes = new ArrayList<>();
+        if (depth == maxDepth) {
+            skipNested(nodes);
+        } else {
+            depth++;
+            while (position < tokens.count && !tokens.is(position, '}')) {
+                addStatement(nodes);
+            }
+            depth--;
+        }
+        position++;
+        return nodes;
+    }
+    
+    private List<Node> parseBody() {
+        if (tokens.is(position, '{')) {
+            position++;
+            return parseBlock();
+        }
+        List<Node> nodes = new ArrayList<>(1);
+        if (depth == maxDepth) {
+            skipNested(nodes);
+        } else if (position < tokens.count && !tokens.is(position, '}')) {
+            depth++;
+            addStatement(nodes);
+            depth--;
+        }
+        return nodes;
+    }
+    
+    // Steps over the rest of the enclosing block without recursing, up to
+    // its closing brace
+    private void skipNested(List<Node> nodes) {
+        int from = position;
+        int braces = 0;
+        while (position < tokens.count && (braces > 0 || !tokens.is(position, '}'))) {
+            if (tokens.is(position, '{')) {
+                braces++;
+            } else if (tokens.is(position, '}')) {
+                braces--;
+            }
+            position++;
+        }
+        if (position > from) {
+            Node node = new Node(from, position, false);
+            node.skipped = true;
+            nodes.add(node);
+        }
+    }
+    
+    private void addStatement(List<Node> nodes) {
+        skipAnnotations();
+        if (position >= tokens.count || tokens.is(position, '}')) {
+            return;
+        }
+        
+        if (tokens.is(position, ';')) {
+            position++;
+        } else if (tokens.is(position, '{')) {
+            position++;
+            Node block = new Node(position, position, false);
+            block.body = parseBlock();
+            nodes.add(block);
+        } else if (isControlHeader()) {
+            int from = position;
+            position++;
+            skipParentheses();
+            Node node = new Node(from, position, false);
+            node.body = parseBody();
+            if (tokens.is(from, "if") && tokens.is(position, "else")) {
+                Node otherwise = new Node(position, position + 1, true);
+                position++;
+                otherwise.body = parseBody();
+                node.elseBranch = otherwise;
+            }
+            nodes.add(node);
+        } else if (tokens.is(position, "else")) {
+            Node otherwise = new Node(position, position + 1, true);
+            position++;
+            otherwise.body = parseBody();
+            nodes.add(otherwise);
+        } else {
+            nodes.add(parseSimpleStatement());
+        }
+    }
+    
+    // A declaration, call or other statement ending in ';', or the header of
+    // anything else that opens a block, like a class or method
+    private Node parseSimpleStatement() {
+        int from = position;
+        int depth = 0;
+        while (position < tokens.count) {
+            if (tokens.is(position, '(') || tokens.is(position, '[')) {
+                depth++;
+            } else if (tokens.is(position, ')') || tokens.is(position, ']')) {
+                depth = Math.max(0, depth - 1);
+            } else if (depth == 0 && tokens.is(position, ';')) {
+                position++;
+                return new Node(from, position, false);
+            } else if (depth == 0 && tokens.is(position, '{')) {
+                Node node = new Node(from, position, false);
+                position++;
+                node.body = parseBlock();
+                return node;
+            } else if (depth == 0 && tokens.is(position, '}')) {
+                break;
+            }
+            position++;
+        }
+        return new Node(from, position, false);
+    }
+    
+    private boolean isControlHeader() {
+        return (tokens.is(position, "if") || tokens.is(position, "for") || tokens.is(position, "while"))
+            && tokens.is(position + 1, '(');
+    }
+    
+    private void skipParentheses() {
+        int depth = 0;
+        while (position < tokens.count) {
+            if (tokens.is(position, '(')) {
+                depth++;
+            } else if (tokens.is(position, ')') && --depth == 0) {
+                position++;
+                return;
+            }
+            position++;
+        }
+    }
+    
+    private void skipAnnotations() {
+        while (tokens.is(position, '@') && position + 1 < tokens.count
+                && tokens.kinds[position + 1] == SourceTokens.IDENTIFIER && !tokens.is(position + 1, "interface")) {
+            position += 2;
+            while (tokens.is(position, '.') && position + 1 < tokens.count) {
+                position += 2;
+            }
+            if (tokens.is(position, '(')) {
+                skipParentheses();
+            }
+        }
+    }
+}
@@ -0,0 +1,507 @@
+package codecola;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+// The verbs method calls turn into and the units ingredient names get,
+// loaded from a small config file:
+//
+//   [verbs]
+//   boil = Heat
+//   add, addFlavor = Add
+//   [units]
+//   water, liquid = ml
+//
+// Verbs match the whole method name, units any keyword inside the ingredient
+// name, both ignoring case; the first [units] line with a match wins. The
+// file is compiled into a perfect hash for verbs and an Aho-Corasick
+// automaton for unit keywords. Both read the name once, without allocating,
+// however many entries there are. Instances are immutable, so a reload just
+// swaps in a new one.
+public final class Vocabulary {
+    public static final String DEFAULT_SOURCE = """
+        # Method names (any case) and the verb their step starts with
+        [verbs]
+        boil = Heat
+        mix = Mix
+        add, addFlavor = Add
+        serve = Serve
+        wait = Wait
+        stir = Stir
+        
+        # Keywords found anywhere in an ingredient name (any case) and its
+        # unit; the first matching line wins
+        [units]
+        water, liquid = ml
+        sugar, salt = g
+        temp = °C
+        time = minutes
+        """;
+    
+    public static final Vocabulary DEFAULT = parseDefault();
+    
+    private static final int NO_RULE = Integer.MAX_VALUE;
+    // Seeds tried per bucket, and salts tried for the whole table, before the
+    // verbs fall back to a plain map. Two keys sharing both hashes can never
+    // be told apart by a seed, only by another salt.
+    private static final int MAX_SEEDS = 1 << 16;
+    private static final int MAX_SALTS = 8;
+    
+    // Action of a verb: one of the built-in ones when the label is theirs
+    static final class Verb {
+        final RecipeStep.Action action;
+        final String label;
+        
+        Verb(String label) {
+            this.label = label;
+            this.action = builtInAction(label);
+        }
+        
+        private static RecipeStep.Action builtInAction(String label) {
+            switch (label) {
+                case "Heat":
+                    return RecipeStep.Action.HEAT;
+                case "Mix":
+                    return RecipeStep.Action.MIX;
+                case "Add":
+                    return RecipeStep.Action.ADD;
+                case "Serve":
+                    return RecipeStep.Action.SERVE;
+                case "Wait":
+                    return RecipeStep.Action.WAIT;
+                case "Stir":
+                    return RecipeStep.Action.STIR;
+                default:
+                    return RecipeStep.Action.CUSTOM;
+            }
+        }
+    }
+    
+    private final String fingerprint;
+    private final int verbCount;
+    private final int unitKeywordCount;
+    
+    // Verbs: bucket seeds, then one slot per key (hash-and-displace), with
+    // the salt the table was built with; or, if no salt worked, a map
+    private final int[] bucketSeeds;
+    private final String[] verbKeys;
+    private final Verb[] verbs;
+    private int salt;
+    private Map<String, Verb> verbMapFallback;
+    
+    // Units: an Aho-Corasick automaton with every failure link resolved into
+    // a dense transition table. Chars map to the few classes the keywords
+    // use, upper and lower case alike; any other char is class 0. best is the
+    // first rule matching at a state, including what its failure links reach.
+    private final int[] asciiClasses = new int[128];
+    private char[] otherChars;
+    private int[] otherClasses;
+    private int classCount;
+    private int[] transitions;
+    private int[] best;
+    private final String[] unitRules;
+    
+    private Vocabulary(Map<String, String> verbMap, List<String[]> unitLines, String fingerprint) {
+        this.fingerprint = fingerprint;
+        this.verbCount = verbMap.size();
+        
+        int slots = Integer.highestOneBit(Math.max(1, verbMap.size()) * 2 - 1) << 1;
+        verbKeys = new String[slots];
+        verbs = new Verb[slots];
+        bucketSeeds = new int[Math.max(1, slots / 4)];
+        buildVerbTable(verbMap);
+        
+        unitRules = new String[unitLines.size()];
+        List<String> keywords = new ArrayList<>();
+        List<Integer> keywordRules = new ArrayList<>();
+        for (int rule = 0; rule < unitLines.size(); rule++) {
+            String[] line = unitLines.get(rule);
+            unitRules[rule] = line[line.length - 1];
+            for (int k = 0; k < line.length - 1; k++) {
+                keywords.add(line[k]);
+                keywordRules.add(rule);
+            }
+        }
+        this.unitKeywordCount = keywords.size();
+        buildAutomaton(keywords, keywordRules);
+    }
+    
+    public static Vocabulary load(Path file) throws IOException {
+        String source = Files.readString(file, StandardCharsets.UTF_8);
+        if (source.isBlank()) {
+            // Most likely caught halfway through being saved
+            throw new IOException(file + ": file is empty");
+        }
+        try {
+            return parse(source);
+        } catch (IOException e) {
+            throw new IOException(file + ": " + e.getMessage(), e);
+        }
+    }
+    
+    public static Vocabulary parse(String source) throws IOException {
+        Map<String, String> verbMap = new LinkedHashMap<>();
+        List<String[]> unitLines = new ArrayList<>();
+        String section = null;
+        
+        BufferedReader reader = new BufferedReader(new StringReader(source));
+        String rawLine;
+        int lineNumber = 0;
+        while ((rawLine = reader.readLine()) != null) {
+            lineNumber++;
+            String line = rawLine.trim();
+            if (line.isEmpty() || line.startsWith("#")) {
+                continue;
+            }
+            if (line.startsWith("[") && line.endsWith("]")) {
+                section = line.substring(1, line.length() - 1).trim();
+                if (!section.equals("verbs") && !section.equals("units")) {
+                    throw new IOException("Line " + lineNumber + ": unknown section [" + section + "]");
+                }
+                continue;
+            }
+            
+            int equals = line.indexOf('=');
+            if (section == null || equals < 0) {
+                throw new IOException("Line " + lineNumber + ": expected 'keys = value' inside [verbs] or [units]");
+            }
+            String value = line.substring(equals + 1).trim();
+            String[] keys = line.substring(0, equals).split(",");
+            if (value.isEmpty()) {
+                throw new IOException("Line " + lineNumber + ": missing value");
+            }
+            
+            String[] unitLine = new String[keys.length + 1];
+            for (int i = 0; i < keys.length; i++) {
+                String key = lowerCase(keys[i].trim());
+                if (key.isEmpty()) {
+                    throw new IOException("Line " + lineNumber + ": empty key");
+                }
+                if (section.equals("verbs")) {
+                    verbMap.put(key, value);
+                } else {
+                    unitLine[i] = key;
+                }
+            }
+            if (section.equals("units")) {
+                unitLine[keys.length] = value;
+                unitLines.add(unitLine);
+            }
+        }
+        return new Vocabulary(verbMap, unitLines, fingerprint(verbMap, unitLines));
+    }
+    
+    // Per char, exactly as the lookups fold the names they are given
+    private static String lowerCase(String text) {
+        char[] chars = text.toCharArray();
+        for (int i = 0; i < chars.length; i++) {
+            chars[i] = lowerCase(chars[i]);
+        }
+        return new String(chars);
+    }
+    
+    private static Vocabulary parseDefault() {
+        try {
+            return parse(DEFAULT_SOURCE);
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+    
+    // The verb for a method name, or null for a plain "Execute" step
+    Verb verb(String method) {
+        if (verbMapFallback != null) {
+            return verbMapFallback.get(lowerCase(method));
+        }
+        int length = method.length();
+        int h1 = 0x811C9DC5;
+        int h2 = 0x01000193;
+        for (int i = 0; i < length; i++) {
+            char c = lowerCase(method.charAt(i));
+            h1 = (h1 ^ c) * 0x01000193;
+            h2 = ((h2 + c) ^ salt) * 0x5BD1E995;
+        }
+        int slot = slot(h2, bucketSeeds[mix(h1) & (bucketSeeds.length - 1)]);
+        String key = verbKeys[slot];
+        if (key == null || key.length() != length) {
+            return null;
+        }
+        for (int i = 0; i < length; i++) {
+            if (key.charAt(i) != lowerCase(method.charAt(i))) {
+                return null;
+            }
+        }
+        return verbs[slot];
+    }
+    
+    // The unit of the first rule with a keyword in name, or null
+    String unitFor(String name) {
+        int state = 0;
+        int rule = NO_RULE;
+        for (int i = 0; i < name.length() && rule != 0; i++) {
+            state = transitions[state * classCount + charClass(name.charAt(i))];
+            rule = Math.min(rule, best[state]);
+        }
+        return rule == NO_RULE ? null : unitRules[rule];
+    }
+    
+    private int charClass(char c) {
+        if (c >= 128) {
+            c = Character.toLowerCase(c);
+            if (c >= 128) {
+                int index = Arrays.binarySearch(otherChars, c);
+                return index < 0 ? 0 : otherClasses[index];
+            }
+        }
+        return asciiClasses[c];
+    }
+    
+    private static char lowerCase(char c) {
+        if (c < 128) {
+            return c >= 'A' && c <= 'Z' ? (char) (c + 32) : c;
+        }
+        return Character.toLowerCase(c);
+    }
+    
+    // Changes whenever the compiled lookups would answer differently
+    public String getFingerprint() {
+        return fingerprint;
+    }
+    
+    public int getVerbCount() {
+        return verbCount;
+    }
+    
+    public int getUnitKeywordCount() {
+        return unitKeywordCount;
+    }
+    
+    @Override
+    public String toString() {
+        return verbCount + " verbs, " + unitKeywordCount + " unit keywords";
+    }
+    
+    private void buildVerbTable(Map<String, String> verbMap) {
+        for (int attempt = 0; attempt < MAX_SALTS; attempt++) {
+            salt = attempt == 0 ? 0 : mix(attempt * 0x9E3779B9);
+            if (placeVerbs(verbMap)) {
+                return;
+            }
+            Arrays.fill(verbKeys, null);
+            Arrays.fill(verbs, null);
+        }
+        verbMapFallback = new HashMap<>();
+        for (Map.Entry<String, String> entry : verbMap.entrySet()) {
+            verbMapFallback.put(entry.getKey(), new Verb(entry.getValue()));
+        }
+    }
+    
+    // Fills the table with the current salt, or returns false when a bucket
+    // finds no seed that places all its keys
+    private boolean placeVerbs(Map<String, String> verbMap) {
+        int bucketMask = bucketSeeds.length - 1;
+        List<List<String>> buckets = new ArrayList<>();
+        for (int i = 0; i < bucketSeeds.length; i++) {
+            buckets.add(new ArrayList<>());
+        }
+        for (String key : verbMap.keySet()) {
+            buckets.get(mix(hash1(key)) & bucketMask).add(key);
+        }
+        
+        // Largest buckets first, while most slots are still free
+        Integer[] order = new Integer[buckets.size()];
+        for (int i = 0; i < order.length; i++) {
+            order[i] = i;
+        }
+        Arrays.sort(order, Comparator.comparingInt((Integer b) -> buckets.get(b).size()).reversed());
+        
+        int[] bucketSlots = new int[16];
+        for (int b : order) {
+            List<String> bucket = buckets.get(b);
+            if (bucket.isEmpty()) {
+                break;
+            }
+            if (bucketSlots.length < bucket.size()) {
+                bucketSlots = new int[bucket.size()];
+            }
+            int seed = 0;
+            while (!tryPlace(bucket, seed, bucketSlots)) {
+                if (++seed == MAX_SEEDS) {
+                    return false;
+                }
+            }
+            bucketSeeds[b] = seed;
+            for (int k = 0; k < bucket.size(); k++) {
+                verbKeys[bucketSlots[k]] = bucket.get(k);
+                verbs[bucketSlots[k]] = new Verb(verbMap.get(bucket.get(k)));
+            }
+        }
+        return true;
+    }
+    
+    private boolean tryPlace(List<String> bucket, int seed, int[] bucketSlots) {
+        for (int k = 0; k < bucket.size(); k++) {
+            int slot = slot(hash2(bucket.get(k), salt), seed);
+            if (verbKeys[slot] != null) {
+                return false;
+            }
+            for (int j = 0; j < k; j++) {
+                if (bucketSlots[j] == slot) {
+                    return false;
+                }
+            }
+            bucketSlots[k] = slot;
+        }
+        return true;
+    }
+    
+    private int slot(int h2, int seed) {
+        return mix(h2 + seed * 0x9E3779B9) & (verbKeys.length - 1);
+    }
+    
+    // Keys are stored in lower case, so these match verb()'s per-char hashing
+    private static int hash1(String key) {
+        int h = 0x811C9DC5;
+        for (int i = 0; i < key.length(); i++) {
+            h = (h ^ key.charAt(i)) * 0x01000193;
+        }
+        return h;
+    }
+    
+    private static int hash2(String key, int salt) {
+        int h = 0x01000193;
+        for (int i = 0; i < key.length(); i++) {
+            h = ((h + key.charAt(i)) ^ salt) * 0x5BD1E995;
+        }
+        return h;
+    }
+    
+    private static int mix(int h) {
+        h ^= h >>> 16;
+        h *= 0x85EBCA6B;
+        h ^= h >>> 13;
+        return h;
+    }
+    
+    private void buildAutomaton(List<String> keywords, List<Integer> rules) {
+        // Char classes: 1.. for every distinct keyword char, 0 for the rest
+        Map<Character, Integer> classes = new LinkedHashMap<>();
+        for (String keyword : keywords) {
+            for (int i = 0; i < keyword.length(); i++) {
+                classes.putIfAbsent(keyword.charAt(i), classes.size() + 1);
+            }
+        }
+        classCount = classes.size() + 1;
+        List<Character> others = new ArrayList<>();
+        for (Map.Entry<Character, Integer> entry : classes.entrySet()) {
+            char c = entry.getKey();
+            if (c < 128) {
+                asciiClasses[c] = entry.getValue();
+                asciiClasses[Character.toUpperCase(c)] = entry.getValue();
+            } else {
+                others.add(c);
+            }
+        }
+        others.sort(null);
+        otherChars = new char[others.size()];
+        otherClasses = new int[others.size()];
+        for (int i = 0; i < others.size(); i++) {
+            otherChars[i] = others.get(i);
+            otherClasses[i] = classes.get(others.get(i));
+        }
+        
+        // The keyword trie, with -1 for missing children
+        int capacity = 16;
+        int[] next = new int[capacity * classCount];
+        int[] rule = new int[capacity];
+        Arrays.fill(next, -1);
+        Arrays.fill(rule, NO_RULE);
+        int states = 1;
+        for (int k = 0; k < keywords.size(); k++) {
+            String keyword = keywords.get(k);
+            int state = 0;
+            for (int i = 0; i < keyword.length(); i++) {
+                int index = state * classCount + classes.get(keyword.charAt(i));
+                if (next[index] < 0) {
+                    if (states == capacity) {
+                        capacity *= 2;
+                        next = Arrays.copyOf(next, capacity * classCount);
+                        rule = Arrays.copyOf(rule, capacity);
+                        Arrays.fill(next, states * classCount, next.length, -1);
+                        Arrays.fill(rule, states, capacity, NO_RULE);
+                    }
+                    next[index] = states++;
+                }
+                state = next[index];
+            }
+            rule[state] = Math.min(rule[state], rules.get(k));
+        }
+        
+        // Breadth-first, so a state's failure target is complete before the
+        // state's own missing transitions are copied from it
+        int[] failure = new int[states];
+        int[] queue = new int[states];
+        int head = 0;
+        int tail = 0;
+        for (int c = 0; c < classCount; c++) {
+            int child = next[c];
+            if (child < 0) {
+                next[c] = 0;
+            } else {
+                failure[child] = 0;
+                queue[tail++] = child;
+            }
+        }
+        while (head < tail) {
+            int state = queue[head++];
+            rule[state] = Math.min(rule[state], rule[failure[state]]);
+            for (int c = 0; c < classCount; c++) {
+                int index = state * classCount + c;
+                int fallback = next[failure[state] * classCount + c];
+                if (next[index] < 0) {
+                    next[index] = fallback;
+                } else {
+                    failure[next[index]] = fallback;
+                    queue[tail++] = next[index];
+                }
+            }
+        }
+        transitions = Arrays.copyOf(next, states * classCount);
+        best = Arrays.copyOf(rule, states);
+    }
+    
+    private static String fingerprint(Map<String, String> verbMap, List<String[]> unitLines) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            for (Map.Entry<String, String> verb : verbMap.entrySet()) {
+                digest.update((verb.getKey() + "=" + verb.getValue() + "\n").getBytes(StandardCharsets.UTF_8));
+            }
+            digest.update((byte) 0);
+            for (String[] line : unitLines) {
+                digest.update((String.join(",", line) + "\n").getBytes(StandardCharsets.UTF_8));
+            }
+            byte[] hash = digest.digest();
+            StringBuilder hex = new StringBuilder(16);
+            for (int i = 0; i < 8; i++) {
+                hex.append(Character.forDigit((hash[i] >> 4) & 0xF, 16)).append(Character.forDigit(hash[i] & 0xF, 16));
+            }
+            return hex.toString();
+        } catch (NoSuchAlgorithmException e) {
+            // Every JDK ships SHA-256
+            throw new IllegalStateException(e);
+        }
+    }
+}
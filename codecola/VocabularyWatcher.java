@@ -0,0 +1,90 @@
+package codecola;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+
+// Reloads a vocabulary file into a converter whenever it changes on disk.
+// The new vocabulary is compiled on the watcher thread and then swapped in,
+// so conversions keep running on the old one meanwhile. A file that fails
+// to parse is reported and the previous vocabulary stays in use.
+public class VocabularyWatcher implements Closeable {
+    private static final long SETTLE_MILLIS = 100;
+    
+    private final Path file;
+    private final RecipeConverter converter;
+    private final PrintStream log;
+    private final WatchService watchService;
+    
+    private VocabularyWatcher(Path file, RecipeConverter converter, PrintStream log) throws IOException {
+        this.file = file.toAbsolutePath();
+        this.converter = converter;
+        this.log = log;
+        this.watchService = FileSystems.getDefault().newWatchService();
+        this.file.getParent().register(watchService, StandardWatchEventKinds.ENTRY_CREATE,
+            StandardWatchEventKinds.ENTRY_MODIFY);
+    }
+    
+    // Loads the file once, failing if it cannot be used, then keeps watching
+    public static VocabularyWatcher start(Path file, RecipeConverter converter, PrintStream log)
+            throws IOException {
+        converter.setVocabulary(Vocabulary.load(file));
+        VocabularyWatcher watcher = new VocabularyWatcher(file, converter, log);
+        Thread thread = new Thread(watcher::watch, "codecola-vocabulary");
+        thread.setDaemon(true);
+        thread.start();
+        return watcher;
+    }
+    
+    private void watch() {
+        try {
+            while (true) {
+                WatchKey key = watchService.take();
+                boolean changed = false;
+                for (WatchEvent<?> event : key.pollEvents()) {
+                    if (file.getFileName().equals(event.context())) {
+                        changed = true;
+                    }
+                }
+                key.reset();
+                if (changed) {
+                    // Editors often truncate first and write after; let the
+                    // burst of events for one save settle before reading
+                    Thread.sleep(SETTLE_MILLIS);
+                    WatchKey more;
+                    while ((more = watchService.poll()) != null) {
+                        more.pollEvents();
+                        more.reset();
+                    }
+                    reload();
+                }
+            }
+        } catch (InterruptedException | ClosedWatchServiceException e) {
+            // Closed
+        }
+    }
+    
+    private void reload() {
+        try {
+            Vocabulary vocabulary = Vocabulary.load(file);
+            if (!vocabulary.getFingerprint().equals(converter.getVocabulary().getFingerprint())) {
+                converter.setVocabulary(vocabulary);
+                log.println("Reloaded vocabulary: " + vocabulary);
+            }
+        } catch (IOException e) {
+            log.println("Keeping previous vocabulary: " + e.getMessage());
+        }
+    }
+    
+    @Override
+    public void close() throws IOException {
+        watchService.close();
+    }
+}
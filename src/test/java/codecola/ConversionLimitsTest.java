@@ -0,0 +1,140 @@
+package codecola;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTimeoutPreemptively;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicReference;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+// Guarded conversions, as the conversion service runs them: over-long lines,
+// the time limit and deep nesting each become a skipped step
+class ConversionLimitsTest {
+    private static final String LONG_LINE = String.join("\n",
+        "int water = 500;",
+        "boil(water, \"" + "x".repeat(60) + "\");",
+        "serve();",
+        "");
+    
+    private final RecipeConverter converter = new RecipeConverter();
+    
+    @Test
+    void skipsOverLongLinesOnEveryPath(@TempDir Path directory) throws IOException {
+        converter.setLimits(new ConversionLimits(40, 3, 60_000));
+        String steps = String.join("\n",
+            "1. Prepare 500 ml water",
+            "2. Skipped line 2: 76 characters, the limit is 40",
+            "3. Serve everything");
+        String fromString = converter.convert(LONG_LINE).getText();
+        assertTrue(fromString.contains(steps), fromString);
+        
+        StringWriter fromReader = new StringWriter();
+        converter.convert(new StringReader(LONG_LINE), fromReader);
+        assertEquals(fromString, fromReader.toString());
+        
+        Path file = directory.resolve("Long.java");
+        Files.writeString(file, LONG_LINE, StandardCharsets.UTF_8);
+        StringWriter fromFile = new StringWriter();
+        converter.convert(file, fromFile);
+        assertEquals(fromString, fromFile.toString());
+        
+        // Unguarded again, the line is converted
+        converter.setLimits(null);
+        assertFalse(converter.convert(LONG_LINE).getText().contains("Skipped"));
+    }
+    
+    @Test
+    void stopsAtTheTimeLimitAndCachesNothing() {
+        converter.setLimits(new ConversionLimits(10_000, 256, 1));
+        String code = "int water = 500;\nboil(water);\nstir();\n".repeat(200_000);
+        ConversionCache cache = new ConversionCache(converter, 16);
+        
+        ConversionResult result = cache.convert(code);
+        assertTrue(result.isTimedOut());
+        String last = result.getSteps().get(result.getSteps().size() - 1);
+        assertTrue(last.matches("Skipped line \\d+: time limit of 1 ms reached, the rest was not converted"), last);
+        assertTrue(result.getSteps().size() < 600_000);
+        
+        cache.convert(code);
+        assertEquals(0, cache.getHits());
+        assertEquals(2, cache.getMisses());
+    }
+    
+    @Test
+    void stopsDescendingAtTheDepthLimit() {
+        converter.setLimits(new ConversionLimits(10_000, 3, 60_000));
+        String text = converter.convertStructured(String.join("\n",
+            "void a() {",
+            "  if (x) {",
+            "    while (y) {",
+            "      for (;;) {",
+            "        stir();",
+            "      }",
+            "    }",
+            "  }",
+            "}",
+            "serve();")).getText();
+        assertTrue(text.contains(String.join("\n",
+            "1. Define process: a",
+            "  2. If x, then:",
+            "    3. While y, repeat:",
+            "      4. Repeat the following steps:",
+            "        5. Skipped line 5: blocks nested deeper than 3 were not converted",
+            "6. Serve everything")), text);
+    }
+    
+    @Test
+    void convertsDeepNestingWithoutOverflowingTheStack() throws InterruptedException {
+        String deep = "if (x) {\n".repeat(50_000) + "stir();\n" + "}\n".repeat(50_000) + "serve();\n";
+        for (ConversionLimits limits : new ConversionLimits[] {ConversionLimits.SERVICE, null}) {
+            converter.setLimits(limits);
+            // A small stack, as a pool thread of the service might have
+            AtomicReference<Throwable> failure = new AtomicReference<>();
+            AtomicReference<String> text = new AtomicReference<>();
+            Thread thread = new Thread(null, () -> {
+                try {
+                    text.set(converter.convertStructured(deep).getText());
+                } catch (Throwable e) {
+                    failure.set(e);
+                }
+            }, "deep", 512 * 1024);
+            thread.start();
+            thread.join();
+            assertEquals(null, failure.get());
+            int depth = limits == null ? ConversionLimits.MAX_DEPTH : limits.getMaxDepth();
+            assertTrue(text.get().contains("blocks nested deeper than " + depth + " were not converted"));
+            assertTrue(text.get().contains(". Serve everything\n"));
+        }
+    }
+    
+    @Test
+    void rejectsDepthsPastTheMaximum() {
+        assertThrows(IllegalArgumentException.class,
+            () -> new ConversionLimits(10_000, ConversionLimits.MAX_DEPTH + 1, 1_000));
+        assertThrows(IllegalArgumentException.class, () -> new ConversionLimits(0, 10, 1_000));
+    }
+    
+    @Test
+    void matchesModifiersFollowedByLongRunsOfSpacesQuickly() {
+        // Quadratic backtracking over the spaces took seconds per line
+        String line = "public" + " ".repeat(16_000) + "x";
+        converter.setLimits(new ConversionLimits(20_000, 256, 60_000));
+        String text = assertTimeoutPreemptively(Duration.ofSeconds(2),
+            () -> converter.convert((line + "\n").repeat(20) + "serve();\n").getText());
+        assertTrue(text.contains("1. Serve everything"), text);
+        
+        converter.setLimits(ConversionLimits.SERVICE);
+        text = converter.convert(line + "\nserve();\n").getText();
+        assertTrue(text.contains("1. Skipped line 1: 16007 characters, the limit is 10000"), text);
+    }
+}
@@ -0,0 +1,85 @@
+package codecola;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import org.junit.jupiter.api.Test;
+
+// Incremental conversion against a full conversion after every one of many
+// random edits. The edits mostly redeclare, add and remove the few
+// ingredients the calls use, which is what invalidates cached steps.
+class IncrementalConverterTest {
+    private static final String[] LINES = {
+        "int water = 500;",
+        "int water = 250;",
+        "double sugar = 12.5;",
+        "int sugar = 3;",
+        "String flavor = \"lime\";",
+        "String flavor = \"mint\";",
+        "boolean iced = true;",
+        "boil(water, sugar);",
+        "add(sugar);",
+        "addFlavor(flavor);",
+        "shake(water, iced);",
+        "if (iced) {",
+        "for (int i = 0; i < 3; i++) {",
+        "}",
+        "// a comment",
+        "",
+        "public class Drink {",
+        "void prepare() {",
+        "serve();",
+    };
+    
+    @Test
+    void matchesFullConversionUnderRandomEdits() {
+        RecipeConverter converter = new RecipeConverter();
+        Random random = new Random(42);
+        List<String> document = new ArrayList<>();
+        for (int i = 0; i < 200; i++) {
+            document.add(LINES[random.nextInt(LINES.length)]);
+        }
+        IncrementalConverter incremental = new IncrementalConverter(converter);
+        incremental.reset(String.join("\n", document));
+        assertEquals(converter.convert(String.join("\n", document)).getText(), incremental.refresh());
+        
+        int partialRefreshes = 0;
+        for (int edit = 0; edit < 2000; edit++) {
+            int index = random.nextInt(document.size() + 1);
+            int removed = Math.min(random.nextInt(3), document.size() - index);
+            List<String> added = new ArrayList<>();
+            for (int i = random.nextInt(3); i > 0; i--) {
+                added.add(LINES[random.nextInt(LINES.length)]);
+            }
+            document.subList(index, index + removed).clear();
+            document.addAll(index, added);
+            incremental.replaceLines(index, removed, added);
+            
+            String code = String.join("\n", document);
+            assertEquals(converter.convert(code).getText(), incremental.refresh(), "after edit " + edit);
+            if (incremental.getParsedLineCount() < document.size()) {
+                partialRefreshes++;
+            }
+        }
+        // Most refreshes must have reused cached lines, or nothing was tested
+        assertTrue(partialRefreshes > 1000, partialRefreshes + " partial refreshes");
+    }
+    
+    @Test
+    void reparsesCallsWhenTheirIngredientIsRedeclared() {
+        RecipeConverter converter = new RecipeConverter();
+        IncrementalConverter incremental = new IncrementalConverter(converter);
+        incremental.reset("int water = 500;\nboil(water);\nserve();");
+        incremental.refresh();
+        
+        incremental.replaceLines(0, 1, List.of("int water = 250;"));
+        String recipe = incremental.refresh();
+        assertEquals(converter.convert("int water = 250;\nboil(water);\nserve();").getText(), recipe);
+        assertTrue(recipe.contains("2. Heat 250"), recipe);
+        // The declaration and the call that uses it, not serve()
+        assertEquals(2, incremental.getParsedLineCount());
+    }
+}
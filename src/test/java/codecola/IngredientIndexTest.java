@@ -0,0 +1,139 @@
+package codecola;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+// Updates, removals and refreshes of the ingredient index, through the
+// compactions they cause and a save and load
+class IngredientIndexTest {
+    private final RecipeConverter converter = new RecipeConverter();
+    private final ByteArrayOutputStream log = new ByteArrayOutputStream();
+    
+    @Test
+    void replacesAndRemovesRecipes() {
+        IngredientIndex index = new IngredientIndex(converter);
+        index.update("a", "int water = 500;\nint sugar = 20;");
+        index.update("b", "int water = 250;\nboil(water);");
+        assertEquals(2, index.getRecipeCount());
+        assertEquals(3, index.getRowCount());
+        assertEquals(750, index.total("water", "ml"));
+        
+        index.update("a", "int water = 100;");
+        assertEquals(350, index.total("water", "ml"));
+        assertEquals(0, index.total("sugar", "g"));
+        assertEquals(List.of("b"), index.recipesUsingMoreThan("water", 200, null));
+        
+        index.remove("b");
+        index.remove("missing");
+        assertEquals(1, index.getRecipeCount());
+        assertEquals(1, index.getRowCount());
+        assertEquals(List.of("water: 100 ml"), strings(index.shoppingList(null)));
+    }
+    
+    @Test
+    void answersQueriesAcrossCompactions() {
+        // Every update kills the recipe's rows, so compaction runs many times
+        // and renumbers the recipes left after the removals
+        IngredientIndex index = new IngredientIndex(converter);
+        for (int round = 0; round < 50; round++) {
+            for (int recipe = 0; recipe < 10; recipe++) {
+                index.update("r" + recipe, "int water = " + (recipe * 100 + round) + ";\nint sugar = 5;");
+            }
+            index.remove("r" + (round % 10));
+        }
+        assertEquals(9, index.getRecipeCount());
+        assertEquals(18, index.getRowCount());
+        assertEquals(List.of("r6", "r7", "r8"), index.recipesUsingMoreThan("water", 600, "ml"));
+        assertEquals(45, index.total("sugar", "g"));
+        assertEquals(List.of("sugar: 10 g", "water: 898 ml"), strings(index.shoppingList(List.of("r0", "r8", "r9"))));
+    }
+    
+    @Test
+    void roundTripsThroughAFile(@TempDir Path directory) throws IOException {
+        IngredientIndex index = new IngredientIndex(converter);
+        index.update("a", "int water = 500;\ndouble lime = 1.5;");
+        index.update("b", "int water = 250;\nint sugar = 20;");
+        index.update("c", "int water = 1;");
+        index.remove("c");
+        Path file = directory.resolve("index");
+        index.save(file);
+        
+        IngredientIndex loaded = IngredientIndex.load(converter, file);
+        assertEquals(index.getRecipeCount(), loaded.getRecipeCount());
+        assertEquals(index.getRowCount(), loaded.getRowCount());
+        assertEquals(strings(index.shoppingList(null)), strings(loaded.shoppingList(null)));
+        assertEquals(List.of("a"), loaded.recipesUsingMoreThan("water", 300, "ml"));
+        
+        // The loaded index takes further updates
+        loaded.update("b", "int water = 50;");
+        assertEquals(550, loaded.total("water", "ml"));
+    }
+    
+    @Test
+    void refreshesOnlyChangedFiles(@TempDir Path root) throws IOException {
+        Path a = write(root.resolve("A.java"), "int water = 500;");
+        write(root.resolve("sub/B.java"), "int water = 250;");
+        write(root.resolve("notes.txt"), "int water = 9;");
+        IngredientIndex index = new IngredientIndex(converter);
+        assertEquals(2, index.refresh(root, 2, new PrintStream(log)));
+        assertEquals(750, index.total("water", "ml"));
+        assertEquals(0, index.refresh(root, 2, new PrintStream(log)));
+        
+        write(a, "int water = 100;\nint sugar = 10;");
+        Files.setLastModifiedTime(a, FileTime.fromMillis(Files.getLastModifiedTime(a).toMillis() + 1000));
+        Files.delete(root.resolve("sub/B.java"));
+        assertEquals(1, index.refresh(root, 2, new PrintStream(log)));
+        assertEquals(1, index.getRecipeCount());
+        assertEquals(100, index.total("water", "ml"));
+        assertEquals(10, index.total("sugar", "g"));
+        assertEquals("", log.toString());
+    }
+    
+    @Test
+    void skipsUnreadableFilesAndKeepsTheirRows(@TempDir Path root) throws IOException {
+        Path a = write(root.resolve("A.java"), "int water = 500;");
+        write(root.resolve("B.java"), "int water = 250;");
+        IngredientIndex index = new IngredientIndex(converter);
+        index.refresh(root, 2, new PrintStream(log));
+        
+        // Latin-1 bytes are not UTF-8
+        Files.write(a, "int water = 100;\n// café\n".getBytes(StandardCharsets.ISO_8859_1));
+        Files.setLastModifiedTime(a, FileTime.fromMillis(Files.getLastModifiedTime(a).toMillis() + 1000));
+        write(root.resolve("C.java"), "int water = 5;");
+        assertEquals(1, index.refresh(root, 2, new PrintStream(log)));
+        assertTrue(log.toString().startsWith("Failed: " + a + ": "), log.toString());
+        assertEquals(3, index.getRecipeCount());
+        assertEquals(755, index.total("water", "ml"));
+        
+        // Read again once it is fixed
+        write(a, "int water = 100;");
+        Files.setLastModifiedTime(a, FileTime.fromMillis(Files.getLastModifiedTime(a).toMillis() + 2000));
+        assertEquals(1, index.refresh(root, 2, new PrintStream(log)));
+        assertEquals(355, index.total("water", "ml"));
+    }
+    
+    private static Path write(Path file, String code) throws IOException {
+        Files.createDirectories(file.getParent());
+        return Files.writeString(file, code, StandardCharsets.UTF_8);
+    }
+    
+    private static List<String> strings(List<IngredientIndex.Amount> amounts) {
+        List<String> strings = new ArrayList<>();
+        for (IngredientIndex.Amount amount : amounts) {
+            strings.add(amount.toString());
+        }
+        return strings;
+    }
+}
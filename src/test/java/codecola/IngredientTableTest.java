@@ -0,0 +1,50 @@
+package codecola;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import org.junit.jupiter.api.Test;
+
+// Project ingredients declared by several files in every order the threads of
+// the first pass might merge them in
+class IngredientTableTest {
+    @Test
+    void givesTheSameWinnerAndConflictsInAnyOrder() {
+        // Name, value, file; each file's declarations stay in file order
+        String[][] declarations = {
+            {"water", "1", "A.java"}, {"water", "2", "B.java"}, {"water", "1", "C.java"},
+            {"sugar", "5", "B.java"}, {"sugar", "6", "B.java"}, {"sugar", "6", "C.java"},
+            {"lime", "3", "C.java"}, {"water", "4", "A.java"},
+        };
+        Random random = new Random(3);
+        for (int round = 0; round < 500; round++) {
+            List<List<String[]>> files = new ArrayList<>();
+            for (String file : new String[] {"A.java", "B.java", "C.java"}) {
+                List<String[]> ofFile = new ArrayList<>();
+                for (String[] declaration : declarations) {
+                    if (declaration[2].equals(file)) {
+                        ofFile.add(declaration);
+                    }
+                }
+                files.add(ofFile);
+            }
+            IngredientTable table = new IngredientTable();
+            while (!files.isEmpty()) {
+                Collections.shuffle(files, random);
+                String[] next = files.get(0).remove(0);
+                table.declare(next[0], next[1], next[2]);
+                if (files.get(0).isEmpty()) {
+                    files.remove(0);
+                }
+            }
+            assertEquals("4", table.valueOf("water"), "round " + round);
+            assertEquals("6", table.valueOf("sugar"), "round " + round);
+            assertEquals(3, table.size());
+            // B.java and C.java declare water with other values than A.java's last
+            assertEquals(2, table.getConflicts(), "round " + round);
+        }
+    }
+}
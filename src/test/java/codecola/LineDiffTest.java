@@ -0,0 +1,105 @@
+package codecola;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import org.junit.jupiter.api.Test;
+
+// Hunks of random edits against a longest common subsequence found by
+// dynamic programming: they must turn the old lines into the new ones with
+// no more edits than needed
+class LineDiffTest {
+    @Test
+    void findsShortestEditsOfRandomTexts() {
+        Random random = new Random(7);
+        for (int round = 0; round < 3000; round++) {
+            List<String> oldLines = randomLines(random, random.nextInt(40), 1 + random.nextInt(6));
+            List<String> newLines = random.nextBoolean()
+                ? randomLines(random, random.nextInt(40), 1 + random.nextInt(6))
+                : edited(random, oldLines);
+            List<int[]> hunks = LineDiff.hunks(oldLines, newLines);
+            
+            assertEquals(newLines, apply(oldLines, newLines, hunks), "round " + round);
+            int edits = 0;
+            for (int[] hunk : hunks) {
+                edits += hunk[1] + hunk[3];
+            }
+            int common = commonLength(oldLines, newLines);
+            assertEquals(oldLines.size() + newLines.size() - 2 * common, edits, "round " + round);
+        }
+    }
+    
+    @Test
+    void replacesTheMiddleWholesalePastMaxEdits() {
+        List<String> oldLines = new ArrayList<>();
+        List<String> newLines = new ArrayList<>();
+        oldLines.add("same");
+        newLines.add("same");
+        for (int i = 0; i < LineDiff.MAX_EDITS; i++) {
+            oldLines.add("old " + i);
+            newLines.add("new " + i);
+        }
+        List<int[]> hunks = LineDiff.hunks(oldLines, newLines);
+        assertEquals(1, hunks.size());
+        assertArrayEquals(new int[] {1, LineDiff.MAX_EDITS, 1, LineDiff.MAX_EDITS}, hunks.get(0));
+        
+        // Within the limit, the common lines between the edits are kept
+        List<String> lines = new ArrayList<>(oldLines.subList(0, 1000));
+        List<String> kept = new ArrayList<>(lines);
+        for (int i = 0; i < kept.size(); i += 2) {
+            kept.set(i, "changed " + i);
+        }
+        hunks = LineDiff.hunks(lines, kept);
+        assertEquals(500, hunks.size());
+        assertEquals(kept, apply(lines, kept, hunks));
+    }
+    
+    private static List<String> randomLines(Random random, int count, int distinct) {
+        List<String> lines = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            lines.add("line " + random.nextInt(distinct));
+        }
+        return lines;
+    }
+    
+    private static List<String> edited(Random random, List<String> lines) {
+        List<String> edited = new ArrayList<>(lines);
+        for (int edit = random.nextInt(6); edit > 0; edit--) {
+            int index = random.nextInt(edited.size() + 1);
+            if (random.nextBoolean() && index < edited.size()) {
+                edited.remove(index);
+            } else {
+                edited.add(index, "new " + random.nextInt(3));
+            }
+        }
+        return edited;
+    }
+    
+    // Old lines outside the hunks, new lines inside them
+    private static List<String> apply(List<String> oldLines, List<String> newLines, List<int[]> hunks) {
+        List<String> result = new ArrayList<>();
+        int next = 0;
+        for (int[] hunk : hunks) {
+            result.addAll(oldLines.subList(next, hunk[0]));
+            result.addAll(newLines.subList(hunk[2], hunk[2] + hunk[3]));
+            next = hunk[0] + hunk[1];
+        }
+        result.addAll(oldLines.subList(next, oldLines.size()));
+        return result;
+    }
+    
+    private static int commonLength(List<String> a, List<String> b) {
+        int[][] lengths = new int[a.size() + 1][b.size() + 1];
+        for (int i = a.size() - 1; i >= 0; i--) {
+            for (int j = b.size() - 1; j >= 0; j--) {
+                lengths[i][j] = a.get(i).equals(b.get(j))
+                    ? lengths[i + 1][j + 1] + 1
+                    : Math.max(lengths[i + 1][j], lengths[i][j + 1]);
+            }
+        }
+        return lengths[0][0];
+    }
+}
@@ -0,0 +1,58 @@
+package codecola;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+// Parallel conversion against the sequential one at several parallelism
+// levels, on input where calls use ingredients declared and redeclared in
+// other chunks
+class ParallelConverterTest {
+    @Test
+    void matchesSequentialConversion() {
+        String code = crossReferencingCode(600);
+        assertTrue(IncrementalConverter.splitLines(code).size() > 2 * ParallelConverter.MIN_PARALLEL_LINES);
+        RecipeConverter converter = new RecipeConverter();
+        String expected = converter.convert(code).getText();
+        for (int parallelism : new int[] {1, 2, 3, 4, 8}) {
+            ConversionResult result = new ParallelConverter(converter, parallelism).convert(code);
+            assertEquals(expected, result.getText(), "parallelism " + parallelism);
+        }
+    }
+    
+    @Test
+    void matchesSequentialConversionOfSmallInput() {
+        RecipeConverter converter = new RecipeConverter();
+        String code = RecipeSamples.getAdvancedColaCode();
+        assertEquals(converter.convert(code).getText(), new ParallelConverter(converter, 4).convert(code).getText());
+    }
+    
+    // Every block redeclares water, declares one of a few sugars and uses
+    // sugars and a flavor declared in earlier blocks, often in another chunk
+    private static String crossReferencingCode(int blocks) {
+        StringBuilder code = new StringBuilder();
+        code.append("String flavor = \"lemon\";\n");
+        for (int b = 0; b < blocks; b++) {
+            code.append("public class Block").append(b).append(" {\n");
+            code.append("    public static void main(String[] args) {\n");
+            code.append("        int water = ").append(b).append(";\n");
+            code.append("        boil(water, sugar").append((b + 3) % 7).append(");\n");
+            code.append("        int sugar").append(b % 7).append(" = ").append(b * 10).append(";\n");
+            code.append("        add(sugar").append(b % 7).append(");\n");
+            code.append("        addFlavor(flavor);\n");
+            if (b % 50 == 0) {
+                code.append("        String flavor = \"mint").append(b).append("\";\n");
+            }
+            code.append("        for (int i = 0; i < ").append(b % 5).append("; i++) {\n");
+            code.append("            stir();\n");
+            code.append("        }\n");
+            code.append("    }\n");
+            code.append("    private static void shake(int ml) {\n");
+            code.append("        pour(ml, water);\n");
+            code.append("    }\n");
+            code.append("}\n");
+        }
+        return code.toString();
+    }
+}
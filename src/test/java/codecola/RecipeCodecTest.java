@@ -0,0 +1,88 @@
+package codecola;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+
+// Recipes through the binary form and back, against the text convert gives,
+// and corrupt data failing cleanly
+class RecipeCodecTest {
+    private final RecipeConverter converter = new RecipeConverter();
+    
+    @Test
+    void recipeTextMatchesConversion() {
+        for (String code : inputs()) {
+            assertEquals(converter.convert(code).getText(), converter.convertToRecipe(code).toText());
+            assertEquals(converter.convertStructured(code).getText(),
+                converter.convertStructuredToRecipe(code).toText());
+        }
+    }
+    
+    @Test
+    void roundTripsThroughBytesAndStreams() throws IOException {
+        for (String code : inputs()) {
+            for (Recipe recipe : List.of(converter.convertToRecipe(code), converter.convertStructuredToRecipe(code))) {
+                assertSame(recipe, RecipeCodec.fromBinary(RecipeCodec.toBinary(recipe)));
+                
+                ByteArrayOutputStream out = new ByteArrayOutputStream();
+                RecipeCodec.write(recipe, out);
+                assertSame(recipe, RecipeCodec.read(new ByteArrayInputStream(out.toByteArray())));
+            }
+        }
+    }
+    
+    @Test
+    void rejectsTruncatedData() {
+        byte[] binary = RecipeCodec.toBinary(converter.convertToRecipe(RecipeSamples.getAdvancedColaCode()));
+        for (int length = 0; length < binary.length; length++) {
+            byte[] truncated = Arrays.copyOf(binary, length);
+            assertThrows(IOException.class, () -> RecipeCodec.fromBinary(truncated), "length " + length);
+        }
+    }
+    
+    @Test
+    void rejectsCountsAndLengthsTheInputCannotHold() {
+        // String count, then a string length, of Integer.MAX_VALUE
+        byte[][] corrupt = {
+            {'C', 'C', 'R', 1, 0, (byte) 0xFF, (byte) 0xFF, (byte) 0xFF, (byte) 0xFF, 0x07},
+            {'C', 'C', 'R', 1, 0, 1, (byte) 0xFF, (byte) 0xFF, (byte) 0xFF, (byte) 0xFF, 0x07, 'x'},
+            // One step at depth 2^20, and one with an amount of scale 2^20
+            {'C', 'C', 'R', 1, 0, 0, 1, 0, 0, 0, (byte) 0x80, (byte) 0x80, 0x40},
+            {'C', 'C', 'R', 1, 0, 0, 1, 0, 2, 0, 0, 2, (byte) 0x80, (byte) 0x80, 0x40},
+        };
+        for (byte[] data : corrupt) {
+            assertThrows(IOException.class, () -> RecipeCodec.fromBinary(data));
+            assertThrows(IOException.class, () -> RecipeCodec.read(new ByteArrayInputStream(data)));
+        }
+    }
+    
+    private static void assertSame(Recipe expected, Recipe actual) {
+        assertEquals(expected.getIngredientCount(), actual.getIngredientCount());
+        assertEquals(expected.getSteps().size(), actual.getSteps().size());
+        for (int i = 0; i < expected.getSteps().size(); i++) {
+            RecipeStep step = expected.getSteps().get(i);
+            RecipeStep read = actual.getSteps().get(i);
+            assertEquals(step.getAction(), read.getAction());
+            assertEquals(step.getIngredient(), read.getIngredient());
+            assertEquals(step.getAmount(), read.getAmount());
+            assertEquals(step.getUnit(), read.getUnit());
+            assertEquals(step.getDetail(), read.getDetail());
+            assertEquals(step.getTarget(), read.getTarget());
+            assertEquals(step.getLine(), read.getLine());
+            assertEquals(step.getDepth(), read.getDepth());
+        }
+        assertEquals(expected.toText(), actual.toText());
+    }
+    
+    private static List<String> inputs() {
+        return List.of(RecipeSamples.getDefaultCode(), RecipeSamples.getAdvancedColaCode(),
+            RecipeSamples.getCocktailCode(), RecipeSamples.getCoffeeCode(),
+            "double lime = 0.25;\nint water = 1000000;\nboil(water, lime);\n\"" + "é".repeat(5000) + "\";\n");
+    }
+}
@@ -0,0 +1,107 @@
+package codecola;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+// The statement classifier's output for every statement form, and the
+// streaming and listener paths against convert(String)
+class RecipeConverterTest {
+    private static final String CODE = String.join("\n",
+        "public class Cola {",
+        "    public static void main(String[] args) {",
+        "        int water = 500;",
+        "        double temperature = 80.5;",
+        "        String flavor = \"vanilla\";",
+        "        boolean iced = false;",
+        "        // comment lines give no step",
+        "        boil(water, temperature);",
+        "        addFlavor(flavor);",
+        "        for (int i = 0; i < 3; i++) {",
+        "            stir();",
+        "        }",
+        "        if (iced) {",
+        "            shake(water);",
+        "        }",
+        "        while (temperature > 40) {",
+        "            wait(1);",
+        "        }",
+        "        serve();",
+        "    }",
+        "}",
+        "");
+    
+    private final RecipeConverter converter = new RecipeConverter();
+    
+    @Test
+    void convertsEveryStatementForm() {
+        String expected = String.join("\n",
+            "Recipe Generated from Code",
+            "===================================",
+            "",
+            "1. Start recipe: Cola",
+            "2. Prepare 500 ml water",
+            "3. Prepare 80.5 °C temperature",
+            "4. Select \"vanilla\" as flavor",
+            "5. Set iced to off",
+            "6. Heat 500, 80.5",
+            "7. Add vanilla",
+            "8. Repeat the following steps:",
+            "9. Stir everything",
+            "10. If iced, then:",
+            "11. Execute shake with 500",
+            "12. While temperature > 40, repeat:",
+            "13. Wait 1",
+            "14. Serve everything",
+            "",
+            "Recipe completed!",
+            "===================================",
+            "Statistics:",
+            "   - Ingredients found: 4",
+            "   - Processing steps: 14",
+            "   - Estimated time: 28 minutes",
+            "");
+        assertEquals(expected, converter.convert(CODE).getText());
+    }
+    
+    @Test
+    void streamingMatchesStringConversion(@TempDir Path directory) throws IOException {
+        for (String code : inputs()) {
+            String expected = converter.convert(code).getText();
+            
+            StringWriter fromReader = new StringWriter();
+            converter.convert(new StringReader(code), fromReader);
+            assertEquals(expected, fromReader.toString());
+            
+            Path file = directory.resolve("Input.java");
+            Files.writeString(file, code, StandardCharsets.UTF_8);
+            StringWriter fromFile = new StringWriter();
+            converter.convert(file, fromFile);
+            assertEquals(expected, fromFile.toString());
+        }
+    }
+    
+    @Test
+    void listenerChunksJoinToTheRecipe() {
+        for (String code : inputs()) {
+            StringBuilder joined = new StringBuilder();
+            ConversionResult result = converter.convert(code, (chunk, charsRead, totalChars) -> joined.append(chunk));
+            assertEquals(converter.convert(code).getText(), result.getText());
+            assertEquals(result.getText(), joined.toString());
+        }
+    }
+    
+    // The samples, and one input long enough for several listener reports
+    private static List<String> inputs() {
+        return List.of(CODE, RecipeSamples.getAdvancedColaCode(), RecipeSamples.getCocktailCode(),
+            CODE.repeat(100));
+    }
+}
@@ -0,0 +1,68 @@
+package codecola;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+
+// Diffs of known edits, step by step
+class RecipeDiffTest {
+    private static final String OLD = String.join("\n",
+        "int water = 500;",
+        "int sugar = 20;",
+        "boil(water);",
+        "add(sugar);",
+        "serve();");
+    
+    private final RecipeConverter converter = new RecipeConverter();
+    
+    @Test
+    void reportsChangedAddedAndRemovedSteps() {
+        // Water redeclared, a stir added and serve removed; boil(water) is
+        // unchanged source that now reads differently
+        String newCode = String.join("\n",
+            "int water = 250;",
+            "int sugar = 20;",
+            "boil(water);",
+            "stir();",
+            "add(sugar);");
+        RecipeDiff diff = RecipeDiff.compare(converter, OLD, newCode);
+        
+        assertEquals(List.of(
+            "~ step 1 -> 1 (line 1 -> 1): Prepare 500 ml water -> Prepare 250 ml water",
+            "~ step 3 -> 3 (line 3 -> 3): Heat 500 -> Heat 250",
+            "+ step 4 (line 4): Stir everything",
+            "- step 5 (line 5): Serve everything"), lines(diff));
+        assertEquals(2, diff.count(RecipeDiff.Change.Kind.CHANGED));
+        assertEquals(1, diff.count(RecipeDiff.Change.Kind.ADDED));
+        assertEquals(1, diff.count(RecipeDiff.Change.Kind.REMOVED));
+        // The edited declaration, the call that uses it and the added line
+        assertEquals(3, diff.getParsedLines());
+    }
+    
+    @Test
+    void comparesStepsNotSource() {
+        // addFlavor(sugar) reads as the same step as add(sugar)
+        String newCode = OLD.replace("add(sugar);", "addFlavor(sugar);\nwait(5);");
+        RecipeDiff diff = RecipeDiff.compare(converter, OLD, newCode);
+        
+        assertEquals(List.of("+ step 5 (line 5): Wait 5"), lines(diff));
+    }
+    
+    @Test
+    void findsNothingInUnchangedCode() {
+        RecipeDiff diff = RecipeDiff.compare(converter, OLD, OLD);
+        assertTrue(diff.isEmpty());
+        assertEquals(0, diff.getParsedLines());
+    }
+    
+    private static List<String> lines(RecipeDiff diff) {
+        List<String> lines = new ArrayList<>();
+        for (RecipeDiff.Change change : diff.getChanges()) {
+            lines.add(change.toString());
+        }
+        return lines;
+    }
+}
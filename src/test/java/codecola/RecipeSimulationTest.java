@@ -0,0 +1,213 @@
+package codecola;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTimeoutPreemptively;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import org.junit.jupiter.api.Test;
+
+// Loop counts, decided and undecided conditions, jumps and the totals of
+// simulated recipes
+class RecipeSimulationTest {
+    private final RecipeConverter converter = new RecipeConverter();
+    
+    @Test
+    void multipliesCountsThroughNestedLoops() {
+        RecipeSimulation simulation = simulate(
+            "int water = 250;",
+            "int sugar = 10;",
+            "for (int i = 0; i < 3; i++) {",
+            "    for (int j = 0; j < 4; j++) {",
+            "        add(sugar);",
+            "    }",
+            "    boil(water);",
+            "}");
+        assertSteps(simulation,
+            "1. Prepare 250 ml water",
+            "2. Prepare 10 g sugar",
+            "3. Repeat 3 times:",
+            "  4. 3× Repeat 4 times:",
+            "    5. 12× Add 10",
+            "  6. 3× Heat 250");
+        assertEquals(21, simulation.getStepsPerformed());
+        assertEquals(Map.of("sugar", new BigDecimal("120"), "water", new BigDecimal("750")),
+            simulation.getIngredientTotals());
+        assertTrue(simulation.getText().contains("   - Used sugar: 120 g\n"), simulation.getText());
+    }
+    
+    @Test
+    void countsForLoopsWithOtherSteps() {
+        RecipeSimulation simulation = simulate(
+            "int temperature = 90;",
+            "int water = 100;",
+            "for (int i = 10; i >= 0; i -= 2) {",
+            "    boil(water, temperature);",
+            "}",
+            "for (int i = 5; i < 5; i++) {",
+            "    stir();",
+            "}");
+        assertSteps(simulation,
+            "1. Prepare 90 °C temperature",
+            "2. Prepare 100 ml water",
+            "3. Repeat 6 times:",
+            "  4. 6× Heat 100, 90",
+            "5. Repeat 0 times:");
+        // Temperatures are settings, not amounts used
+        assertEquals(Map.of("water", new BigDecimal("600")), simulation.getIngredientTotals());
+    }
+    
+    @Test
+    void countsWhileLoopsOverDeclaredIngredients() {
+        RecipeSimulation simulation = simulate(
+            "boolean warm = true;",
+            "while (warm && 3 > 2) {",
+            "    stir();",
+            "    boolean warm = false;",
+            "}");
+        assertSteps(simulation,
+            "1. Set warm to on",
+            "2. While warm && 3 > 2, repeat 1 time:",
+            "  3. Stir everything",
+            "  4. Set warm to off");
+        assertEquals(4, simulation.getStepsPerformed());
+    }
+    
+    @Test
+    void reportsAnEndlessLoopOnlyWhenItsBodyWasSimulated() {
+        RecipeSimulation simulation = simulate(
+            "boolean done = false;",
+            "while (!done) {",
+            "    wait(5);",
+            "}",
+            "int k = 0;",
+            "while (k < 3) {",
+            "    stir();",
+            "    k++;",
+            "}");
+        assertSteps(simulation,
+            "1. Set done to off",
+            "2. While !done, repeat without end:",
+            "  3. ?× Wait 5",
+            "4. Prepare 0 units k",
+            "5. While k < 3, repeat:",
+            "  6. ?× Stir everything");
+        assertEquals(RecipeSimulation.UNKNOWN, simulation.getStepsPerformed());
+    }
+    
+    @Test
+    void runsOnlyTheBranchOfADecidedIf() {
+        RecipeSimulation simulation = simulate(
+            "boolean iced = true;",
+            "int water = 200;",
+            "if (iced) {",
+            "    shake(water);",
+            "} else {",
+            "    boil(water);",
+            "}",
+            "if (water < 100) {",
+            "    stir();",
+            "}",
+            "if (unknown) {",
+            "    add(water);",
+            "}");
+        assertSteps(simulation,
+            "1. Set iced to on",
+            "2. Prepare 200 ml water",
+            "3. If iced, then:",
+            "  4. Execute shake with 200",
+            "5. If water < 100: not met, skipped",
+            "6. If unknown, then:",
+            "  7. ?× Add 200");
+        Map<String, BigDecimal> totals = new LinkedHashMap<>();
+        totals.put("water", null);
+        assertEquals(totals, simulation.getIngredientTotals());
+    }
+    
+    @Test
+    void stopsLoopsAtJumps() {
+        RecipeSimulation simulation = simulate(
+            "int water = 100;",
+            "for (int i = 0; i < 5; i++) { boil(water); break; }",
+            "boolean running = true;",
+            "while (running) { stir(); break; }",
+            "for (int i = 0; i < 4; i++) { stir(); continue; }",
+            "for (int j = 0; j < 3; j++) { for (int i = 0; i < 5; i++) { shake(water); break; } }");
+        assertSteps(simulation,
+            "1. Prepare 100 ml water",
+            "2. Repeat 1 time:",
+            "  3. Heat 100",
+            "4. Set running to on",
+            "5. While running, repeat 1 time:",
+            "  6. Stir everything",
+            "7. Repeat 4 times:",
+            "  8. 4× Stir everything",
+            "9. Repeat 3 times:",
+            "  10. 3× Repeat 1 time:",
+            "    11. 3× Execute shake with 100");
+        assertEquals(Map.of("water", new BigDecimal("400")), simulation.getIngredientTotals());
+    }
+    
+    @Test
+    void leavesCountsOfLoopsThatMightJumpUnknown() {
+        RecipeSimulation simulation = simulate(
+            "int water = 100;",
+            "for (int i = 0; i < 4; i++) { add(water); if (i == 2) { break; } }",
+            "boolean running = true;",
+            "while (running) { stir(); if (ready) { return; } }");
+        assertSteps(simulation,
+            "1. Prepare 100 ml water",
+            "2. Repeat the following steps:",
+            "  3. ?× Add 100",
+            "  4. ?× If i == 2, then:",
+            "5. Set running to on",
+            "6. While running, repeat:",
+            "  7. ?× Stir everything",
+            "  8. ?× If ready, then:");
+    }
+    
+    @Test
+    void endsAMethodAtItsReturn() {
+        RecipeSimulation simulation = simulate(
+            "void prepare() {",
+            "    for (int i = 0; i < 10; i++) { serve(); return; }",
+            "    stir();",
+            "}",
+            "wait(2);");
+        assertSteps(simulation,
+            "1. Define process: prepare",
+            "  2. Repeat 1 time:",
+            "    3. Serve everything",
+            "4. Wait 2");
+    }
+    
+    @Test
+    void leavesHugeLoopBoundsUnknown() {
+        RecipeSimulation simulation = assertTimeoutPreemptively(Duration.ofSeconds(5), () -> simulate(
+            "for (int i = 0; i < 1e99999999; i++) { stir(); }",
+            "for (long i = 0; i < 1e30; i++) { stir(); }",
+            "for (double i = 0; i < 1; i += 1e-300) { stir(); }"));
+        assertSteps(simulation,
+            "1. Repeat the following steps:",
+            "  2. ?× Stir everything",
+            "3. Repeat the following steps:",
+            "  4. ?× Stir everything",
+            "5. Repeat the following steps:",
+            "  6. ?× Stir everything");
+    }
+    
+    private RecipeSimulation simulate(String... lines) {
+        return RecipeSimulation.simulate(converter, String.join("\n", lines));
+    }
+    
+    // The numbered steps, without the header and the totals
+    private static void assertSteps(RecipeSimulation simulation, String... steps) {
+        String text = simulation.getText();
+        int from = text.indexOf("\n\n") + 2;
+        int to = text.indexOf("\n\n", from);
+        assertEquals(String.join("\n", steps), text.substring(from, to), text);
+    }
+}